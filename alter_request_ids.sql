@@ -0,0 +1,10 @@
+-- Add the client request IDs that make booking and payment idempotent
+USE event_ticket_booking;
+
+-- Existing rows keep a NULL request ID, which the unique keys allow any number of times
+ALTER TABLE tickets ADD COLUMN request_id VARCHAR(64) UNIQUE;
+ALTER TABLE payments ADD COLUMN request_id VARCHAR(64) UNIQUE;
+
+-- Verify the change
+DESCRIBE tickets;
+DESCRIBE payments;
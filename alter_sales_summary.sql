@@ -0,0 +1,21 @@
+-- Add the sales_summary table with running sales totals per event, ticket type and day
+USE event_ticket_booking;
+
+CREATE TABLE IF NOT EXISTS sales_summary (
+    event_id INT NOT NULL,
+    ticket_type_id INT NOT NULL DEFAULT 0,
+    sales_date DATE NOT NULL,
+    paid_quantity INT NOT NULL DEFAULT 0,
+    revenue DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    cancelled_quantity INT NOT NULL DEFAULT 0,
+    refunded_quantity INT NOT NULL DEFAULT 0,
+    refunded_amount DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (event_id, ticket_type_id, sales_date),
+    FOREIGN KEY (event_id) REFERENCES events(event_id) ON DELETE CASCADE
+);
+
+-- The totals start empty; fill them from the existing tickets with
+-- Reports > Recalculate Totals in the admin dashboard
+
+-- Verify the change
+DESCRIBE sales_summary;
@@ -0,0 +1,9 @@
+-- Add the EXPIRED status used for unpaid bookings whose seat hold ran out
+USE event_ticket_booking;
+
+-- Only needed while payment_status is still the ENUM from sql/db_schema.sql;
+-- after alter_payment_status.sql it is a VARCHAR that already accepts EXPIRED
+ALTER TABLE tickets MODIFY COLUMN payment_status ENUM('PENDING', 'COMPLETED', 'CANCELLED', 'REFUNDED', 'EXPIRED') NOT NULL DEFAULT 'PENDING';
+
+-- Verify the change
+DESCRIBE tickets;
@@ -0,0 +1,7 @@
+-- Index for the "My Tickets" page: one user's tickets, newest first
+USE event_ticket_booking;
+
+CREATE INDEX idx_tickets_user_booking ON tickets (user_id, booking_date);
+
+-- Verify the change
+SHOW INDEX FROM tickets;
@@ -0,0 +1,113 @@
+package com.ticketbooking.benchmarks;
+
+import com.ticketbooking.util.DatabaseUtil;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-process H2 database in MySQL mode, created from the application schema,
+ * for benchmarks that go through the DAOs and services.
+ */
+public final class BenchmarkDatabase {
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Point the application at a fresh in-memory database with the schema
+     * and sample data of sql/db_schema.sql
+     *
+     * @param name Database name (each name is a separate database)
+     * @throws SQLException if the schema cannot be created
+     */
+    public static void start(String name) throws SQLException {
+        DatabaseUtil.setCredentials("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        File script = schemaScript();
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("RUNSCRIPT FROM '" + script.getAbsolutePath().replace("'", "''") + "'");
+            replaceIdentityColumns(stmt);
+        } finally {
+            script.delete();
+        }
+    }
+
+    /**
+     * H2 in MySQL mode can hand out the same AUTO_INCREMENT value to two
+     * concurrent inserts (duplicate primary keys under load), so every
+     * identity column takes its values from a sequence instead. Generated
+     * keys are still returned to the DAOs.
+     */
+    private static void replaceIdentityColumns(Statement stmt) throws SQLException {
+        List<String[]> columns = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery("SELECT TABLE_NAME, COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE TABLE_SCHEMA = SCHEMA() AND IS_IDENTITY = 'YES'")) {
+            while (rs.next()) {
+                columns.add(new String[] {rs.getString(1), rs.getString(2)});
+            }
+        }
+        for (String[] column : columns) {
+            String table = '"' + column[0] + '"';
+            String name = '"' + column[1] + '"';
+            String sequence = '"' + column[0] + "_" + column[1] + "_SEQ\"";
+            long next;
+            try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(" + name + "), 0) + 1 FROM " + table)) {
+                rs.next();
+                next = rs.getLong(1);
+            }
+            stmt.execute("CREATE SEQUENCE " + sequence + " START WITH " + next);
+            stmt.execute("ALTER TABLE " + table + " ALTER COLUMN " + name + " DROP IDENTITY");
+            stmt.execute("ALTER TABLE " + table + " ALTER COLUMN " + name + " SET DEFAULT NEXT VALUE FOR " + sequence);
+        }
+    }
+
+    /**
+     * Run statements against the benchmark database
+     *
+     * @param sql Statements to run in order
+     * @throws SQLException if a statement fails
+     */
+    public static void execute(String... sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String statement : sql) {
+                stmt.execute(statement);
+            }
+        }
+    }
+
+    // The schema file creates and selects a MySQL database first; H2 only needs the tables
+    private static File schemaScript() throws SQLException {
+        try (InputStream in = BenchmarkDatabase.class.getResourceAsStream("/db_schema.sql")) {
+            if (in == null) {
+                throw new SQLException("db_schema.sql is not on the classpath");
+            }
+            File script = File.createTempFile("benchmark-schema", ".sql");
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                 PrintWriter writer = new PrintWriter(script, "UTF-8")) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String upper = line.trim().toUpperCase();
+                    if (!upper.startsWith("DROP DATABASE") && !upper.startsWith("CREATE DATABASE")
+                            && !upper.startsWith("USE ")) {
+                        writer.println(line);
+                    }
+                }
+            }
+            return script;
+        } catch (IOException e) {
+            throw new SQLException("Cannot prepare the schema script", e);
+        }
+    }
+}
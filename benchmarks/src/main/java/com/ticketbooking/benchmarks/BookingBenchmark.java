@@ -0,0 +1,56 @@
+package com.ticketbooking.benchmarks;
+
+import com.ticketbooking.model.Ticket;
+import com.ticketbooking.service.TicketService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end bookings through TicketService against the embedded database,
+ * with the booking engine in its default configuration (inventory, holds,
+ * group commit and journal). The sample events get ten million seats, so a
+ * run does not sell out while the seat maps stay small.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dbooking.journal.directory=target/benchmark-journal")
+public class BookingBenchmark {
+    private static final List<String> ATTENDEES = Arrays.asList("Attendee One", "Attendee Two");
+
+    private TicketService ticketService;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkDatabase.start("booking");
+        BenchmarkDatabase.execute("UPDATE events SET total_seats = 10000000, available_seats = 10000000");
+        ticketService = new TicketService();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Ticket bookTickets() throws Exception {
+        return ticketService.bookTickets(1, 2, 2, ATTENDEES, null);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Ticket bookTicketsContended() throws Exception {
+        return ticketService.bookTickets(1, 2, 2, ATTENDEES, null);
+    }
+}
@@ -0,0 +1,544 @@
+package com.ticketbooking.benchmarks;
+
+import com.ticketbooking.model.Payment;
+import com.ticketbooking.model.Ticket;
+import com.ticketbooking.service.PaymentService;
+import com.ticketbooking.service.SeatInventory;
+import com.ticketbooking.service.TicketService;
+import com.ticketbooking.util.DatabaseUtil;
+import com.ticketbooking.util.Metrics;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Flash-sale load generator: releases many threads at once against the
+ * service layer on an embedded H2 database (MySQL mode), then checks the
+ * database for overbooking.
+ *
+ * Each operation books, pays for or cancels tickets. Events and users are
+ * picked from a Zipf distribution (skew 0 is uniform), so a few events take
+ * most of the traffic as in an on-sale. Payments and cancellations pick a
+ * recently booked ticket from a shared pool, so they race with each other
+ * the way double clicks and impatient users do. Afterwards it reports
+ * throughput and latency percentiles per operation and the violated
+ * invariants: seats sold above total_seats, available_seats out of step
+ * with the tickets, seat numbers sold twice, seat rows missing, successful
+ * payments on expired tickets or accepted after the ticket's cancellation
+ * had returned, and tickets paid twice. A paid ticket may still be
+ * cancelled afterwards. The exit status is 1 when an invariant is violated.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.ticketbooking.benchmarks.FlashSaleLoadTest \
+ *         --threads=1000 --operations=50000 --events=3 --seats=2000 --event-skew=1.2
+ * </pre>
+ *
+ * Application settings can be changed with -D options (e.g.
+ * -Dbooking.groupCommit.enabled=false). The booking journal goes to a new
+ * temporary directory unless -Dbooking.journal.directory is given, so a run
+ * never restores seats from an earlier one.
+ */
+public final class FlashSaleLoadTest {
+    private static final String[] OPERATIONS = {"book", "pay", "cancel"};
+    private static final int BOOK = 0;
+    private static final int PAY = 1;
+    private static final int CANCEL = 2;
+
+    private static final String RELEASED = "('CANCELLED', 'EXPIRED')";
+
+    private final Options options;
+    private final AtomicReferenceArray<Ticket> booked;
+    private final AtomicLong bookedCount = new AtomicLong();
+    private final AtomicInteger remaining;
+    // When each successful cancellation returned, and when the first call that got each payment started
+    private final ConcurrentHashMap<Integer, Long> cancelledAt = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, long[]> paymentStarts = new ConcurrentHashMap<>();
+    private TicketService ticketService;
+    private PaymentService paymentService;
+    private int firstEventId;
+    private int firstUserId;
+
+    private FlashSaleLoadTest(Options options) {
+        this.options = options;
+        this.booked = new AtomicReferenceArray<>(options.ticketPool);
+        this.remaining = new AtomicInteger(options.operations);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        if (System.getProperty("booking.journal.directory") == null) {
+            File journal = Files.createTempDirectory("flash-sale-journal").toFile();
+            System.setProperty("booking.journal.directory", journal.getAbsolutePath());
+        }
+
+        FlashSaleLoadTest test = new FlashSaleLoadTest(options);
+        test.setUp();
+        Recorder total = test.run();
+        if (Metrics.isEnabled()) {
+            System.out.println();
+            System.out.print(Metrics.dump());
+        }
+        int violations = test.checkInvariants();
+        System.exit(violations == 0 && total.errors() == 0 ? 0 : 1);
+    }
+
+    private void setUp() throws SQLException {
+        BenchmarkDatabase.start("flashsale");
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            firstEventId = nextId(conn, "events", "event_id");
+            firstUserId = nextId(conn, "users", "user_id");
+            try (PreparedStatement events = conn.prepareStatement(
+                    "INSERT INTO events (event_id, event_name, description, venue, event_date, event_time, " +
+                    "total_seats, available_seats, ticket_price, created_by) " +
+                    "VALUES (?, ?, 'Flash sale', 'Arena', '2030-01-01', '20:00:00', ?, ?, 50.00, 1)");
+                 PreparedStatement users = conn.prepareStatement(
+                    "INSERT INTO users (user_id, username, password, full_name, email, role) " +
+                    "VALUES (?, ?, 'load', 'Load Test', ?, 'USER')")) {
+                for (int i = 0; i < options.events; i++) {
+                    events.setInt(1, firstEventId + i);
+                    events.setString(2, "Flash Sale " + (i + 1));
+                    events.setInt(3, options.seats);
+                    events.setInt(4, options.seats);
+                    events.addBatch();
+                }
+                for (int i = 0; i < options.users; i++) {
+                    users.setInt(1, firstUserId + i);
+                    users.setString(2, "load" + i);
+                    users.setString(3, "load" + i + "@example.com");
+                    users.addBatch();
+                }
+                events.executeBatch();
+                users.executeBatch();
+            }
+            conn.commit();
+        }
+        ticketService = new TicketService();
+        paymentService = new PaymentService();
+    }
+
+    private static int nextId(Connection conn, String table, String column) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COALESCE(MAX(" + column + "), 0) + 1 FROM " + table);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private Recorder run() throws InterruptedException {
+        System.out.printf(Locale.ROOT, "%d threads, %d operations (book/pay/cancel %d/%d/%d), %d events x %d seats, "
+                        + "%d users, event skew %.2f, user skew %.2f%n",
+                options.threads, options.operations, options.mix[BOOK], options.mix[PAY], options.mix[CANCEL],
+                options.events, options.seats, options.users, options.eventSkew, options.userSkew);
+
+        Zipf events = new Zipf(options.events, options.eventSkew);
+        Zipf users = new Zipf(options.users, options.userSkew);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < options.threads; i++) {
+            Worker worker = new Worker(events, users, start);
+            worker.setName("flash-sale-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+
+        // Everyone arrives at once, as when the sale opens
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Worker worker : workers) {
+            worker.join();
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+
+        Recorder total = new Recorder();
+        for (Worker worker : workers) {
+            total.add(worker.recorder);
+        }
+        total.print(elapsedNanos);
+        return total;
+    }
+
+    private int checkInvariants() throws SQLException {
+        // Write out the seat decrements still held by the in-memory inventory
+        if (SeatInventory.isEnabled()) {
+            SeatInventory.getInstance().flush();
+        }
+
+        int violations = 0;
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            violations += report(conn, "Seats sold above total_seats",
+                    "SELECT e.event_id, e.total_seats, SUM(t.quantity) FROM events e JOIN tickets t ON t.event_id = e.event_id " +
+                    "WHERE t.payment_status NOT IN " + RELEASED + " GROUP BY e.event_id, e.total_seats " +
+                    "HAVING SUM(t.quantity) > e.total_seats",
+                    "event %s: %s seats, %s sold");
+            violations += report(conn, "available_seats out of step with tickets",
+                    "SELECT e.event_id, e.available_seats, e.total_seats - COALESCE(SUM(t.quantity), 0) " +
+                    "FROM events e LEFT JOIN tickets t ON t.event_id = e.event_id AND t.payment_status NOT IN " + RELEASED +
+                    " GROUP BY e.event_id, e.available_seats, e.total_seats " +
+                    "HAVING e.available_seats <> e.total_seats - COALESCE(SUM(t.quantity), 0)",
+                    "event %s: available_seats %s, expected %s");
+            violations += report(conn, "Seat numbers sold more than once",
+                    "SELECT t.event_id, d.seat_number, COUNT(*) FROM ticket_details d JOIN tickets t ON t.ticket_id = d.ticket_id " +
+                    "WHERE t.payment_status NOT IN " + RELEASED + " GROUP BY t.event_id, d.seat_number HAVING COUNT(*) > 1",
+                    "event %s: seat %s sold %s times");
+            violations += report(conn, "Tickets without a seat per ticket",
+                    "SELECT t.ticket_id, t.quantity, COUNT(d.detail_id) FROM tickets t " +
+                    "LEFT JOIN ticket_details d ON d.ticket_id = t.ticket_id " +
+                    "GROUP BY t.ticket_id, t.quantity HAVING COUNT(d.detail_id) <> t.quantity",
+                    "ticket %s: quantity %s, %s seats");
+            violations += report(conn, "Successful payments on expired tickets",
+                    "SELECT t.ticket_id, t.payment_status, p.payment_id FROM tickets t JOIN payments p ON p.ticket_id = t.ticket_id " +
+                    "WHERE p.status = 'SUCCESS' AND t.payment_status = 'EXPIRED'",
+                    "ticket %s: %s with payment %s");
+            violations += report("Payments accepted after cancellation", paymentsAfterCancellation());
+            violations += report(conn, "Tickets paid more than once",
+                    "SELECT ticket_id, COUNT(*), SUM(amount) FROM payments WHERE status = 'SUCCESS' " +
+                    "GROUP BY ticket_id HAVING COUNT(*) > 1",
+                    "ticket %s: %s payments totalling %s");
+            printSales(conn);
+        }
+
+        System.out.println();
+        System.out.println(violations == 0 ? "All invariants hold" : violations + " invariant violation(s)");
+        return violations;
+    }
+
+    private static int report(Connection conn, String title, String sql, String format) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                rows.add(String.format(Locale.ROOT, format, rs.getString(1), rs.getString(2), rs.getString(3)));
+            }
+        }
+        return report(title, rows);
+    }
+
+    /**
+     * Payments made by a call that started after the ticket's cancellation
+     * had returned. A repeated request returns the payment made by its first
+     * call, so each payment is dated by the earliest call that returned it.
+     */
+    private List<String> paymentsAfterCancellation() {
+        List<String> rows = new ArrayList<>();
+        for (Map.Entry<Integer, long[]> payment : paymentStarts.entrySet()) {
+            int ticketId = (int) payment.getValue()[0];
+            Long cancelled = cancelledAt.get(ticketId);
+            if (cancelled != null && cancelled - payment.getValue()[1] < 0) {
+                rows.add("ticket " + ticketId + ": payment " + payment.getKey());
+            }
+        }
+        return rows;
+    }
+
+    private static int report(String title, List<String> rows) {
+        System.out.printf(Locale.ROOT, "%n%-45s %s%n", title, rows.isEmpty() ? "OK" : rows.size() + " VIOLATION(S)");
+        for (int i = 0; i < rows.size() && i < 10; i++) {
+            System.out.println("  " + rows.get(i));
+        }
+        if (rows.size() > 10) {
+            System.out.println("  ... " + (rows.size() - 10) + " more");
+        }
+        return rows.size();
+    }
+
+    private void printSales(Connection conn) throws SQLException {
+        System.out.printf(Locale.ROOT, "%n%-8s %8s %8s %8s %10s%n", "event", "seats", "sold", "paid", "available");
+        String sql = "SELECT e.event_id, e.total_seats, " +
+                "COALESCE(SUM(CASE WHEN t.payment_status NOT IN " + RELEASED + " THEN t.quantity END), 0), " +
+                "COALESCE(SUM(CASE WHEN t.payment_status = 'COMPLETED' THEN t.quantity END), 0), e.available_seats " +
+                "FROM events e LEFT JOIN tickets t ON t.event_id = e.event_id WHERE e.event_id >= ? " +
+                "GROUP BY e.event_id, e.total_seats, e.available_seats ORDER BY e.event_id";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, firstEventId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    System.out.printf(Locale.ROOT, "%-8d %8d %8d %8d %10d%n",
+                            rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getInt(5));
+                }
+            }
+        }
+    }
+
+    private final class Worker extends Thread {
+        final Recorder recorder = new Recorder();
+        private final Zipf events;
+        private final Zipf users;
+        private final CountDownLatch start;
+
+        Worker(Zipf events, Zipf users, CountDownLatch start) {
+            this.events = events;
+            this.users = users;
+            this.start = start;
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            while (remaining.getAndDecrement() > 0) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int operation = options.pick(random.nextInt(options.mixTotal));
+                Ticket ticket = operation == BOOK ? null : randomBookedTicket(random);
+                if (ticket == null) {
+                    operation = BOOK;
+                }
+
+                long began = System.nanoTime();
+                boolean succeeded;
+                try {
+                    succeeded = perform(operation, ticket, random);
+                } catch (SQLException | RuntimeException e) {
+                    recorder.error(operation, e);
+                    continue;
+                }
+                recorder.record(operation, System.nanoTime() - began, succeeded);
+            }
+        }
+
+        private boolean perform(int operation, Ticket ticket, ThreadLocalRandom random) throws SQLException {
+            switch (operation) {
+                case PAY:
+                    long began = System.nanoTime();
+                    // One request ID per ticket, as a client retrying a payment would send
+                    Payment payment = paymentService.processPayment(ticket.getTicketId(), ticket.getTotalPrice(),
+                            "CARD", "load-pay-" + ticket.getTicketId());
+                    if (payment == null) {
+                        return false;
+                    }
+                    paymentStarts.merge(payment.getPaymentId(), new long[] {ticket.getTicketId(), began},
+                            (first, next) -> next[1] - first[1] < 0 ? next : first);
+                    return true;
+                case CANCEL:
+                    if (!ticketService.cancelTicket(ticket.getTicketId())) {
+                        return false;
+                    }
+                    cancelledAt.putIfAbsent(ticket.getTicketId(), System.nanoTime());
+                    return true;
+                default:
+                    int quantity = 1 + random.nextInt(options.maxQuantity);
+                    Ticket created = ticketService.bookTickets(firstEventId + events.next(random),
+                            firstUserId + users.next(random), quantity, Collections.<String>emptyList(), null);
+                    if (created != null) {
+                        booked.set((int) (bookedCount.getAndIncrement() % booked.length()), created);
+                    }
+                    return created != null;
+            }
+        }
+
+        private Ticket randomBookedTicket(ThreadLocalRandom random) {
+            long count = Math.min(bookedCount.get(), booked.length());
+            return count == 0 ? null : booked.get(random.nextInt((int) count));
+        }
+    }
+
+    /**
+     * Latencies and outcomes per operation for one thread, merged at the end
+     */
+    private static final class Recorder {
+        private final long[][] latencies = new long[OPERATIONS.length][];
+        private final int[] counts = new int[OPERATIONS.length];
+        private final int[] succeeded = new int[OPERATIONS.length];
+        private final int[] failed = new int[OPERATIONS.length];
+        private final Map<String, Integer> errorMessages = new HashMap<>();
+
+        Recorder() {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new long[256];
+            }
+        }
+
+        void record(int operation, long nanos, boolean success) {
+            if (counts[operation] == latencies[operation].length) {
+                latencies[operation] = Arrays.copyOf(latencies[operation], counts[operation] * 2);
+            }
+            latencies[operation][counts[operation]++] = nanos;
+            if (success) {
+                succeeded[operation]++;
+            }
+        }
+
+        void error(int operation, Exception e) {
+            failed[operation]++;
+            errorMessages.merge(OPERATIONS[operation] + ": " + e, 1, Integer::sum);
+        }
+
+        int errors() {
+            int total = 0;
+            for (int count : failed) {
+                total += count;
+            }
+            return total;
+        }
+
+        void add(Recorder other) {
+            for (int op = 0; op < OPERATIONS.length; op++) {
+                long[] merged = Arrays.copyOf(latencies[op], counts[op] + other.counts[op]);
+                System.arraycopy(other.latencies[op], 0, merged, counts[op], other.counts[op]);
+                latencies[op] = merged;
+                counts[op] += other.counts[op];
+                succeeded[op] += other.succeeded[op];
+                failed[op] += other.failed[op];
+            }
+            for (Map.Entry<String, Integer> entry : other.errorMessages.entrySet()) {
+                errorMessages.merge(entry.getKey(), entry.getValue(), Integer::sum);
+            }
+        }
+
+        void print(long elapsedNanos) {
+            double seconds = elapsedNanos / 1e9;
+            int all = 0;
+            System.out.printf(Locale.ROOT, "%n%-8s %8s %8s %8s %7s %9s %9s %9s %9s %9s %9s%n", "op", "calls",
+                    "ok", "no", "errors", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+            for (int op = 0; op < OPERATIONS.length; op++) {
+                long[] sorted = Arrays.copyOf(latencies[op], counts[op]);
+                Arrays.sort(sorted);
+                int calls = counts[op] + failed[op];
+                all += calls;
+                System.out.printf(Locale.ROOT, "%-8s %8d %8d %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                        OPERATIONS[op], calls, succeeded[op], counts[op] - succeeded[op], failed[op],
+                        calls / seconds, percentile(sorted, 50), percentile(sorted, 90),
+                        percentile(sorted, 99), percentile(sorted, 99.9), percentile(sorted, 100));
+            }
+            System.out.printf(Locale.ROOT, "%-8s %8d %44.1f%n", "total", all, all / seconds);
+            System.out.printf(Locale.ROOT, "Elapsed %.2f s (\"no\" = sold out, hold expired or already cancelled)%n",
+                    seconds);
+            for (Map.Entry<String, Integer> entry : errorMessages.entrySet()) {
+                System.out.println("  " + entry.getValue() + " x " + entry.getKey());
+            }
+        }
+
+        private static double percentile(long[] sorted, double percent) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+        }
+    }
+
+    /**
+     * Zipf distribution over 0..n-1: rank k is picked with weight 1/(k+1)^skew
+     */
+    private static final class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double skew) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int k = 0; k < n; k++) {
+                sum += 1 / Math.pow(k + 1, skew);
+                cumulative[k] = sum;
+            }
+        }
+
+        int next(ThreadLocalRandom random) {
+            double target = random.nextDouble() * cumulative[cumulative.length - 1];
+            int index = Arrays.binarySearch(cumulative, target);
+            return index >= 0 ? index : Math.min(cumulative.length - 1, -index - 1);
+        }
+    }
+
+    /**
+     * Command line options, given as --name=value
+     */
+    private static final class Options {
+        int threads = 500;
+        int operations = 20000;
+        int events = 3;
+        int seats = 1000;
+        int users = 1000;
+        int maxQuantity = 4;
+        double eventSkew = 1.0;
+        double userSkew = 0.0;
+        int[] mix = {80, 12, 8};
+        int mixTotal;
+        int ticketPool = 2000;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw usage("Unrecognised argument: " + arg);
+                }
+                String name = arg.substring(2, eq);
+                String value = arg.substring(eq + 1);
+                switch (name) {
+                    case "threads": options.threads = positive(name, value); break;
+                    case "operations": options.operations = positive(name, value); break;
+                    case "events": options.events = positive(name, value); break;
+                    case "seats": options.seats = positive(name, value); break;
+                    case "users": options.users = positive(name, value); break;
+                    case "max-quantity": options.maxQuantity = positive(name, value); break;
+                    case "event-skew": options.eventSkew = Double.parseDouble(value); break;
+                    case "user-skew": options.userSkew = Double.parseDouble(value); break;
+                    case "ticket-pool": options.ticketPool = positive(name, value); break;
+                    case "mix": options.mix = parseMix(value); break;
+                    default: throw usage("Unknown option: --" + name);
+                }
+            }
+            options.mixTotal = options.mix[BOOK] + options.mix[PAY] + options.mix[CANCEL];
+            if (options.mixTotal <= 0 || options.mix[BOOK] <= 0) {
+                throw usage("--mix needs a positive book weight");
+            }
+            return options;
+        }
+
+        int pick(int roll) {
+            if (roll < mix[BOOK]) {
+                return BOOK;
+            }
+            return roll < mix[BOOK] + mix[PAY] ? PAY : CANCEL;
+        }
+
+        private static int[] parseMix(String value) {
+            String[] parts = value.split(",");
+            if (parts.length != 3) {
+                throw usage("--mix takes three weights: book,pay,cancel");
+            }
+            int[] mix = new int[3];
+            for (int i = 0; i < 3; i++) {
+                mix[i] = Integer.parseInt(parts[i].trim());
+                if (mix[i] < 0) {
+                    throw usage("--mix weights cannot be negative");
+                }
+            }
+            return mix;
+        }
+
+        private static int positive(String name, String value) {
+            int parsed = Integer.parseInt(value);
+            if (parsed <= 0) {
+                throw usage("--" + name + " must be positive");
+            }
+            return parsed;
+        }
+
+        private static IllegalArgumentException usage(String message) {
+            return new IllegalArgumentException(message + "\nOptions: --threads=500 --operations=20000 --events=3 "
+                    + "--seats=1000 --users=1000 --max-quantity=4 --event-skew=1.0 --user-skew=0.0 "
+                    + "--mix=80,12,8 (book,pay,cancel) --ticket-pool=2000 (recent tickets paid or cancelled)");
+        }
+    }
+}
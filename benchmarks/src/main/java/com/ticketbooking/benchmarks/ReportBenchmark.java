@@ -0,0 +1,146 @@
+package com.ticketbooking.benchmarks;
+
+import com.ticketbooking.dao.ReportDAO;
+import com.ticketbooking.dao.SalesAggregateDAO;
+import com.ticketbooking.model.Event;
+import com.ticketbooking.model.EventSalesSummary;
+import com.ticketbooking.model.Ticket;
+import com.ticketbooking.model.TicketType;
+import com.ticketbooking.service.EventService;
+import com.ticketbooking.service.TicketService;
+import com.ticketbooking.service.TicketTypeService;
+import com.ticketbooking.util.DatabaseUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The admin booking summary computed three ways: the old per-event loop over
+ * tickets and ticket types, one grouped query over the tickets, and the
+ * maintained sales totals.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dbooking.journal.directory=target/benchmark-journal")
+public class ReportBenchmark {
+    @Param({"100", "1000"})
+    public int events;
+
+    @Param({"20"})
+    public int ticketsPerEvent;
+
+    private EventService eventService;
+    private TicketService ticketService;
+    private TicketTypeService ticketTypeService;
+    private ReportDAO reportDAO;
+    private SalesAggregateDAO salesAggregates;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkDatabase.start("report" + events);
+        // Same change as alter_payment_status.sql, so the dashboard's PAID status fits
+        BenchmarkDatabase.execute("ALTER TABLE tickets ALTER COLUMN payment_status VARCHAR(50)");
+        seed();
+
+        eventService = new EventService();
+        ticketService = new TicketService();
+        ticketTypeService = new TicketTypeService();
+        reportDAO = new ReportDAO();
+        salesAggregates = new SalesAggregateDAO();
+        salesAggregates.rebuild();
+    }
+
+    @Benchmark
+    public List<EventSalesSummary> perEventLoop() throws Exception {
+        List<EventSalesSummary> summaries = new ArrayList<>();
+        for (Event event : eventService.getAllEvents()) {
+            int paidTickets = 0;
+            double revenue = 0;
+            for (Ticket ticket : ticketService.getTicketsByEventId(event.getEventId())) {
+                if ("PAID".equals(ticket.getPaymentStatus())) {
+                    paidTickets += ticket.getQuantity();
+                    revenue += ticket.getTotalPrice();
+                }
+            }
+            int totalTickets = 0;
+            for (TicketType type : ticketTypeService.getTicketTypesByEventId(event.getEventId())) {
+                totalTickets += type.getAvailableQuantity();
+            }
+            summaries.add(new EventSalesSummary(event.getEventId(), event.getEventName(),
+                    totalTickets, paidTickets, revenue));
+        }
+        return summaries;
+    }
+
+    @Benchmark
+    public List<EventSalesSummary> groupedQuery() throws Exception {
+        return reportDAO.getEventSalesSummaries();
+    }
+
+    @Benchmark
+    public List<EventSalesSummary> maintainedTotals() throws Exception {
+        return salesAggregates.getEventSalesSummaries();
+    }
+
+    private void seed() throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement eventStmt = conn.prepareStatement(
+                    "INSERT INTO events (event_id, event_name, description, venue, event_date, event_time, " +
+                    "total_seats, available_seats, ticket_price, created_by) " +
+                    "VALUES (?, ?, '', 'Venue', '2030-01-01', '20:00:00', 1000, 1000, 50.00, 1)");
+                 PreparedStatement typeStmt = conn.prepareStatement(
+                    "INSERT INTO ticket_types (event_id, category, price, available_quantity, is_active) " +
+                    "VALUES (?, ?, ?, 100, true)");
+                 PreparedStatement ticketStmt = conn.prepareStatement(
+                    "INSERT INTO tickets (event_id, user_id, quantity, total_price, payment_status) " +
+                    "VALUES (?, 2, ?, ?, ?)")) {
+                for (int e = 0; e < events; e++) {
+                    int eventId = 1000 + e;
+                    eventStmt.setInt(1, eventId);
+                    eventStmt.setString(2, "Benchmark Event " + e);
+                    eventStmt.addBatch();
+
+                    String[] categories = {"VIP", "Regular", "Balcony"};
+                    double[] prices = {150.0, 75.0, 40.0};
+                    for (int t = 0; t < categories.length; t++) {
+                        typeStmt.setInt(1, eventId);
+                        typeStmt.setString(2, categories[t]);
+                        typeStmt.setDouble(3, prices[t]);
+                        typeStmt.addBatch();
+                    }
+
+                    for (int t = 0; t < ticketsPerEvent; t++) {
+                        int quantity = 1 + t % 4;
+                        ticketStmt.setInt(1, eventId);
+                        ticketStmt.setInt(2, quantity);
+                        ticketStmt.setDouble(3, quantity * prices[t % prices.length]);
+                        ticketStmt.setString(4, t % 5 == 0 ? "PENDING" : "PAID");
+                        ticketStmt.addBatch();
+                    }
+                }
+                eventStmt.executeBatch();
+                typeStmt.executeBatch();
+                ticketStmt.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+}
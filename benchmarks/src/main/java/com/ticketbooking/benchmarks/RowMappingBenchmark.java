@@ -0,0 +1,132 @@
+package com.ticketbooking.benchmarks;
+
+import com.ticketbooking.dao.EventDAO;
+import com.ticketbooking.dao.TicketDAO;
+import com.ticketbooking.model.Event;
+import com.ticketbooking.model.Ticket;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DAO row mappers against an in-memory result set (no database), next
+ * to a mapper that looks every column up by label as a baseline. Scores are
+ * per page of {@link #ROWS} rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark {
+    private static final int ROWS = 100;
+
+    private SimpleResultSet tickets;
+    private SimpleResultSet events;
+    private MethodHandle ticketMapper;
+    private MethodHandle eventMapper;
+
+    @Setup
+    public void setUp() throws Exception {
+        tickets = new SimpleResultSet();
+        tickets.setAutoClose(false);
+        tickets.addColumn("ticket_id", Types.INTEGER, 10, 0);
+        tickets.addColumn("event_id", Types.INTEGER, 10, 0);
+        tickets.addColumn("user_id", Types.INTEGER, 10, 0);
+        tickets.addColumn("quantity", Types.INTEGER, 10, 0);
+        tickets.addColumn("total_price", Types.DOUBLE, 10, 2);
+        tickets.addColumn("booking_date", Types.TIMESTAMP, 0, 0);
+        tickets.addColumn("payment_status", Types.VARCHAR, 20, 0);
+        tickets.addColumn("request_id", Types.VARCHAR, 64, 0);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (int i = 1; i <= ROWS; i++) {
+            tickets.addRow(i, 1 + i % 7, 1 + i % 13, 1 + i % 4, 75.0 * (1 + i % 4), now, "PENDING", "req-" + i);
+        }
+
+        events = new SimpleResultSet();
+        events.setAutoClose(false);
+        events.addColumn("event_id", Types.INTEGER, 10, 0);
+        events.addColumn("event_name", Types.VARCHAR, 100, 0);
+        events.addColumn("description", Types.VARCHAR, 1000, 0);
+        events.addColumn("venue", Types.VARCHAR, 100, 0);
+        events.addColumn("event_date", Types.DATE, 0, 0);
+        events.addColumn("event_time", Types.TIME, 0, 0);
+        events.addColumn("total_seats", Types.INTEGER, 10, 0);
+        events.addColumn("available_seats", Types.INTEGER, 10, 0);
+        events.addColumn("ticket_price", Types.DOUBLE, 10, 2);
+        events.addColumn("event_status", Types.VARCHAR, 20, 0);
+        events.addColumn("created_by", Types.INTEGER, 10, 0);
+        events.addColumn("created_at", Types.TIMESTAMP, 0, 0);
+        Date date = Date.valueOf("2030-06-01");
+        Time time = Time.valueOf("19:30:00");
+        for (int i = 1; i <= ROWS; i++) {
+            events.addRow(i, "Event " + i, "Description of event " + i, "Venue " + i % 10, date, time,
+                    500, 500 - i, 50.0, "UPCOMING", 1, now);
+        }
+
+        ticketMapper = mapper(TicketDAO.class, "mapResultSetToTicket", new TicketDAO());
+        eventMapper = mapper(EventDAO.class, "mapResultSetToEvent", new EventDAO());
+    }
+
+    @Benchmark
+    public void ticketDaoMapper(Blackhole bh) throws Throwable {
+        tickets.beforeFirst();
+        while (tickets.next()) {
+            bh.consume((Ticket) ticketMapper.invokeExact((ResultSet) tickets));
+        }
+    }
+
+    @Benchmark
+    public void ticketLabelLookups(Blackhole bh) throws SQLException {
+        tickets.beforeFirst();
+        while (tickets.next()) {
+            Ticket ticket = new Ticket();
+            ticket.setTicketId(tickets.getInt("ticket_id"));
+            ticket.setEventId(tickets.getInt("event_id"));
+            ticket.setUserId(tickets.getInt("user_id"));
+            ticket.setQuantity(tickets.getInt("quantity"));
+            ticket.setTotalPrice(tickets.getDouble("total_price"));
+            ticket.setBookingDate(tickets.getTimestamp("booking_date"));
+            ticket.setPaymentStatus(tickets.getString("payment_status"));
+            ticket.setRequestId(tickets.getString("request_id"));
+            bh.consume(ticket);
+        }
+    }
+
+    @Benchmark
+    public void eventDaoMapper(Blackhole bh) throws Throwable {
+        events.beforeFirst();
+        while (events.next()) {
+            bh.consume((Event) eventMapper.invokeExact((ResultSet) events));
+        }
+    }
+
+    // The mappers are private to their DAOs; bind one to a DAO instance
+    private static MethodHandle mapper(Class<?> dao, String name, Object instance) throws Exception {
+        Method method = dao.getDeclaredMethod(name, ResultSet.class);
+        method.setAccessible(true);
+        MethodHandle handle = MethodHandles.lookup().unreflect(method).bindTo(instance);
+        return handle.asType(handle.type().changeReturnType(method.getReturnType()));
+    }
+}
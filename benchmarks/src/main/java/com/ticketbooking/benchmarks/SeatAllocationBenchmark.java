@@ -0,0 +1,104 @@
+package com.ticketbooking.benchmarks;
+
+import com.ticketbooking.dao.EventDAO;
+import com.ticketbooking.model.Event;
+import com.ticketbooking.service.SeatAllocator;
+import com.ticketbooking.service.SeatMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seat assignment for one booking on a 2000-seat event that is 90% sold,
+ * with the free seats scattered: claiming seats on the event's SeatMap, and
+ * the full SeatAllocator call that also labels them. Each call frees its
+ * seats again, so the map stays equally full.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dbooking.journal.directory=target/benchmark-journal")
+public class SeatAllocationBenchmark {
+    private static final int TOTAL_SEATS = 2000;
+    private static final int ROW_WIDTH = 10;
+
+    @Param({"1", "4"})
+    public int quantity;
+
+    private SeatMap seatMap;
+    private SeatAllocator seatAllocator;
+    private Event event;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkDatabase.start("seats");
+        BenchmarkDatabase.execute("DELETE FROM ticket_details",
+                "UPDATE events SET total_seats = " + TOTAL_SEATS + ", available_seats = " + TOTAL_SEATS);
+
+        seatMap = new SeatMap(TOTAL_SEATS, ROW_WIDTH);
+        for (int seat = 0; seat < TOTAL_SEATS; seat++) {
+            seatMap.markTaken(seat);
+        }
+        for (int seat : freeSeats()) {
+            seatMap.release(seat);
+        }
+
+        event = new EventDAO().getEventById(1);
+        seatAllocator = SeatAllocator.getInstance();
+        seatAllocator.invalidate(event.getEventId());
+        List<String> sold = new ArrayList<>(TOTAL_SEATS);
+        for (int seat = 0; seat < TOTAL_SEATS; seat++) {
+            sold.addAll(seatAllocator.allocate(event, 1));
+        }
+        List<String> free = new ArrayList<>();
+        for (int seat : freeSeats()) {
+            free.add(sold.get(seat));
+        }
+        seatAllocator.release(event.getEventId(), free);
+    }
+
+    @Benchmark
+    public int[] claim() {
+        int[] seats = seatMap.claim(quantity);
+        for (int seat : seats) {
+            seatMap.release(seat);
+        }
+        return seats;
+    }
+
+    @Benchmark
+    public List<String> allocate() throws Exception {
+        List<String> seatNumbers = seatAllocator.allocate(event, quantity);
+        seatAllocator.release(event.getEventId(), seatNumbers);
+        return seatNumbers;
+    }
+
+    /**
+     * The same 10% of the seats, chosen at random, for both maps
+     */
+    private static List<Integer> freeSeats() {
+        Random random = new Random(42);
+        List<Integer> seats = new ArrayList<>();
+        for (int seat = 0; seat < TOTAL_SEATS; seat++) {
+            if (random.nextInt(10) == 0) {
+                seats.add(seat);
+            }
+        }
+        return seats;
+    }
+}
@@ -46,9 +46,11 @@ CREATE TABLE tickets (
     quantity INT NOT NULL,
     total_price DECIMAL(10, 2) NOT NULL,
     booking_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    payment_status ENUM('PENDING', 'COMPLETED', 'CANCELLED', 'REFUNDED') NOT NULL DEFAULT 'PENDING',
+    payment_status ENUM('PENDING', 'COMPLETED', 'CANCELLED', 'REFUNDED', 'EXPIRED') NOT NULL DEFAULT 'PENDING',
+    request_id VARCHAR(64) UNIQUE,
     FOREIGN KEY (event_id) REFERENCES events(event_id),
-    FOREIGN KEY (user_id) REFERENCES users(user_id)
+    FOREIGN KEY (user_id) REFERENCES users(user_id),
+    INDEX idx_tickets_user_booking (user_id, booking_date)
 );
 
 -- Create TicketDetails table
@@ -69,6 +71,7 @@ CREATE TABLE payments (
     payment_method VARCHAR(50) NOT NULL,
     transaction_id VARCHAR(100),
     status ENUM('SUCCESS', 'FAILED', 'REFUNDED') NOT NULL,
+    request_id VARCHAR(64) UNIQUE,
     FOREIGN KEY (ticket_id) REFERENCES tickets(ticket_id)
 );
 
@@ -85,6 +88,20 @@ CREATE TABLE IF NOT EXISTS ticket_types (
     FOREIGN KEY (event_id) REFERENCES events(event_id) ON DELETE CASCADE
 );
 
+-- Create sales_summary table (running totals maintained on ticket status changes)
+CREATE TABLE IF NOT EXISTS sales_summary (
+    event_id INT NOT NULL,
+    ticket_type_id INT NOT NULL DEFAULT 0,
+    sales_date DATE NOT NULL,
+    paid_quantity INT NOT NULL DEFAULT 0,
+    revenue DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    cancelled_quantity INT NOT NULL DEFAULT 0,
+    refunded_quantity INT NOT NULL DEFAULT 0,
+    refunded_amount DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (event_id, ticket_type_id, sales_date),
+    FOREIGN KEY (event_id) REFERENCES events(event_id) ON DELETE CASCADE
+);
+
 -- Insert default admin user
 INSERT INTO users (username, password, full_name, email, phone, role)
 VALUES ('admin', 'admin123', 'System Administrator', 'admin@ticketbooking.com', '1234567890', 'ADMIN');
@@ -2,12 +2,34 @@ package com.ticketbooking.dao;
 
 import com.ticketbooking.model.Event;
 import com.ticketbooking.util.DatabaseUtil;
+import com.ticketbooking.util.RowMapper;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class EventDAO {
+    private static final RowMapper<Event> EVENT_MAPPER = RowMapper.builder(Event::new)
+            .intColumn("event_id", Event::setEventId)
+            .stringColumn("event_name", Event::setEventName)
+            .stringColumn("description", Event::setDescription)
+            .stringColumn("venue", Event::setVenue)
+            .dateColumn("event_date", Event::setEventDate)
+            .timeColumn("event_time", Event::setEventTime)
+            .intColumn("total_seats", Event::setTotalSeats)
+            .intColumn("available_seats", Event::setAvailableSeats)
+            .doubleColumn("ticket_price", Event::setTicketPrice)
+            .stringColumn("event_status", Event::setEventStatus)
+            .intColumn("created_by", Event::setCreatedBy)
+            .timestampColumn("created_at", Event::setCreatedAt)
+            .build();
+    
+    private static final int MAX_IDS_PER_QUERY = 500;
     
     /**
      * Get all events from the database
@@ -19,7 +41,7 @@ public class EventDAO {
         List<Event> events = new ArrayList<>();
         String query = "SELECT * FROM events";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("EventDAO.getAllEvents");
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
@@ -31,6 +53,57 @@ public class EventDAO {
         return events;
     }
     
+    /**
+     * Get one page of events in event ID order, continuing after a given
+     * event ID (keyset pagination: each page is an index range scan, however
+     * deep into the table it is)
+     * 
+     * @param afterEventId Last event ID of the previous page (0 for the first page)
+     * @param pageSize Maximum number of events to return
+     * @return The page; fewer than pageSize events means it is the last
+     * @throws SQLException if a database error occurs
+     */
+    public List<Event> getEventsPage(int afterEventId, int pageSize) throws SQLException {
+        List<Event> page = new ArrayList<>();
+        String query = "SELECT * FROM events WHERE event_id > ? ORDER BY event_id LIMIT ?";
+        
+        try (Connection conn = DatabaseUtil.getConnection("EventDAO.getEventsPage");
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            
+            pstmt.setInt(1, afterEventId);
+            pstmt.setInt(2, pageSize);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    page.add(mapResultSetToEvent(rs));
+                }
+            }
+        }
+        
+        return page;
+    }
+    
+    /**
+     * Pass every event to a consumer as it is read, without holding them
+     * all in memory. The consumer runs while the query is open, so it should
+     * not take long per row.
+     * 
+     * @param consumer Receives each event in event ID order
+     * @throws SQLException if a database error occurs
+     */
+    public void forEachEvent(Consumer<Event> consumer) throws SQLException {
+        String query = "SELECT * FROM events ORDER BY event_id";
+        
+        try (Connection conn = DatabaseUtil.getConnection("EventDAO.forEachEvent");
+             PreparedStatement pstmt = DatabaseUtil.prepareStreamingStatement(conn, query);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                consumer.accept(mapResultSetToEvent(rs));
+            }
+        }
+    }
+    
     /**
      * Get event by ID
      * 
@@ -39,30 +112,57 @@ public class EventDAO {
      */
     public Event getEventById(int eventId) throws SQLException {
         String sql = "SELECT * FROM events WHERE event_id = ?";
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("EventDAO.getEventById");
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, eventId);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Event event = new Event();
-                    event.setEventId(rs.getInt("event_id"));
-                    event.setEventName(rs.getString("event_name"));
-                    event.setDescription(rs.getString("description"));
-                    event.setVenue(rs.getString("venue"));
-                    event.setEventDate(rs.getDate("event_date"));
-                    event.setEventTime(rs.getTime("event_time"));
-                    event.setTotalSeats(rs.getInt("total_seats"));
-                    event.setAvailableSeats(rs.getInt("available_seats"));
-                    event.setTicketPrice(rs.getDouble("ticket_price"));
-                    event.setCreatedBy(rs.getInt("created_by"));
-                    event.setEventStatus(rs.getString("event_status"));
-                    return event;
+                    return mapResultSetToEvent(rs);
                 }
             }
         }
         return null;
     }
     
+    /**
+     * Get several events by ID with one query per 500 IDs
+     * 
+     * @param eventIds The event IDs to look up (duplicates are ignored)
+     * @return Events found, keyed by event ID; missing IDs have no entry
+     * @throws SQLException if a database error occurs
+     */
+    public Map<Integer, Event> getEventsByIds(Collection<Integer> eventIds) throws SQLException {
+        Map<Integer, Event> events = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(eventIds));
+        if (ids.isEmpty()) {
+            return events;
+        }
+        
+        try (Connection conn = DatabaseUtil.getConnection("EventDAO.getEventsByIds")) {
+            for (int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+                List<Integer> chunk = ids.subList(start, Math.min(start + MAX_IDS_PER_QUERY, ids.size()));
+                StringBuilder query = new StringBuilder("SELECT * FROM events WHERE event_id IN (");
+                for (int i = 0; i < chunk.size(); i++) {
+                    query.append(i == 0 ? "?" : ", ?");
+                }
+                query.append(")");
+                
+                try (PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Event event = mapResultSetToEvent(rs);
+                            events.put(event.getEventId(), event);
+                        }
+                    }
+                }
+            }
+        }
+        return events;
+    }
+    
     /**
      * Get events by status
      * 
@@ -73,7 +173,7 @@ public class EventDAO {
         List<Event> events = new ArrayList<>();
         String query = "SELECT * FROM events WHERE event_status = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("EventDAO.getEventsByStatus");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setString(1, status);
@@ -102,7 +202,7 @@ public class EventDAO {
                       "total_seats, available_seats, ticket_price, event_status, created_by) " +
                       "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("EventDAO.createEvent");
              PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             
             pstmt.setString(1, event.getEventName());
@@ -134,17 +234,22 @@ public class EventDAO {
     }
     
     /**
-     * Update an existing event
+     * Update an existing event. Available seats are not taken from the event
+     * object: they move by the change in total seats, computed in the UPDATE
+     * from the row's current values, so seats sold meanwhile are kept. The
+     * update fails if the event has fewer seats left than a reduction removes.
      * 
      * @param event The event object with updated values
      * @return true if update successful, false otherwise
      */
     public boolean updateEvent(Event event) {
+        // available_seats is assigned before total_seats so it reads the old total (MySQL assigns left to right)
         String query = "UPDATE events SET event_name = ?, description = ?, venue = ?, " +
-                      "event_date = ?, event_time = ?, total_seats = ?, available_seats = ?, " +
-                      "ticket_price = ?, event_status = ? WHERE event_id = ?";
+                      "event_date = ?, event_time = ?, available_seats = available_seats + ? - total_seats, " +
+                      "total_seats = ?, ticket_price = ?, event_status = ? " +
+                      "WHERE event_id = ? AND available_seats + ? - total_seats >= 0";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("EventDAO.updateEvent");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setString(1, event.getEventName());
@@ -153,10 +258,11 @@ public class EventDAO {
             pstmt.setDate(4, event.getEventDate());
             pstmt.setTime(5, event.getEventTime());
             pstmt.setInt(6, event.getTotalSeats());
-            pstmt.setInt(7, event.getAvailableSeats());
+            pstmt.setInt(7, event.getTotalSeats());
             pstmt.setDouble(8, event.getTicketPrice());
             pstmt.setString(9, event.getEventStatus());
             pstmt.setInt(10, event.getEventId());
+            pstmt.setInt(11, event.getTotalSeats());
             
             int affectedRows = pstmt.executeUpdate();
             return affectedRows > 0;
@@ -176,7 +282,7 @@ public class EventDAO {
     public boolean deleteEvent(int eventId) throws SQLException {
         String query = "DELETE FROM events WHERE event_id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("EventDAO.deleteEvent");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setInt(1, eventId);
@@ -196,7 +302,7 @@ public class EventDAO {
     public boolean updateAvailableSeats(int eventId, int seatsToReduce) {
         String query = "UPDATE events SET available_seats = available_seats - ? WHERE event_id = ? AND available_seats >= ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("EventDAO.updateAvailableSeats");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setInt(1, seatsToReduce);
@@ -211,6 +317,34 @@ public class EventDAO {
         }
     }
     
+    /**
+     * Apply accumulated seat reductions for several events in one transaction
+     * 
+     * @param reductions Map of event ID to number of seats to subtract
+     * @throws SQLException if a database error occurs (nothing is applied)
+     */
+    public void applySeatReductions(Map<Integer, Integer> reductions) throws SQLException {
+        String query = "UPDATE events SET available_seats = available_seats - ? WHERE event_id = ?";
+        
+        try (Connection conn = DatabaseUtil.getConnection("EventDAO.applySeatReductions")) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                for (Map.Entry<Integer, Integer> entry : reductions.entrySet()) {
+                    pstmt.setInt(1, entry.getValue());
+                    pstmt.setInt(2, entry.getKey());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+    
     /**
      * Search events by name or venue
      * 
@@ -221,7 +355,7 @@ public class EventDAO {
         List<Event> events = new ArrayList<>();
         String query = "SELECT * FROM events WHERE event_name LIKE ? OR venue LIKE ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("EventDAO.searchEvents");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             String searchPattern = "%" + searchTerm + "%";
@@ -249,19 +383,6 @@ public class EventDAO {
      * @throws SQLException if a database access error occurs
      */
     private Event mapResultSetToEvent(ResultSet rs) throws SQLException {
-        Event event = new Event();
-        event.setEventId(rs.getInt("event_id"));
-        event.setEventName(rs.getString("event_name"));
-        event.setDescription(rs.getString("description"));
-        event.setVenue(rs.getString("venue"));
-        event.setEventDate(rs.getDate("event_date"));
-        event.setEventTime(rs.getTime("event_time"));
-        event.setTotalSeats(rs.getInt("total_seats"));
-        event.setAvailableSeats(rs.getInt("available_seats"));
-        event.setTicketPrice(rs.getDouble("ticket_price"));
-        event.setEventStatus(rs.getString("event_status"));
-        event.setCreatedBy(rs.getInt("created_by"));
-        event.setCreatedAt(rs.getTimestamp("created_at"));
-        return event;
+        return EVENT_MAPPER.map(rs);
     }
 } 
\ No newline at end of file
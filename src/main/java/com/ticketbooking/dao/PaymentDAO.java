@@ -3,12 +3,29 @@ package com.ticketbooking.dao;
 import com.ticketbooking.model.Payment;
 import com.ticketbooking.model.Ticket;
 import com.ticketbooking.util.DatabaseUtil;
+import com.ticketbooking.util.RowMapper;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class PaymentDAO {
+    private static final RowMapper<Payment> PAYMENT_MAPPER = RowMapper.builder(Payment::new)
+            .intColumn("payment_id", Payment::setPaymentId)
+            .intColumn("ticket_id", Payment::setTicketId)
+            .doubleColumn("amount", Payment::setAmount)
+            .timestampColumn("payment_date", Payment::setPaymentDate)
+            .stringColumn("payment_method", Payment::setPaymentMethod)
+            .stringColumn("transaction_id", Payment::setTransactionId)
+            .stringColumn("status", Payment::setStatus)
+            .stringColumn("request_id", Payment::setRequestId)
+            .build();
+    
+    private static final int MAX_IDS_PER_QUERY = 500;
     
     private TicketDAO ticketDAO = new TicketDAO();
     
@@ -21,7 +38,7 @@ public class PaymentDAO {
         List<Payment> payments = new ArrayList<>();
         String query = "SELECT * FROM payments";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("PaymentDAO.getAllPayments");
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
@@ -36,6 +53,57 @@ public class PaymentDAO {
         return payments;
     }
     
+    /**
+     * Get one page of payments in payment ID order, continuing after a given
+     * payment ID (keyset pagination: each page is an index range scan, however
+     * deep into the table it is)
+     * 
+     * @param afterPaymentId Last payment ID of the previous page (0 for the first page)
+     * @param pageSize Maximum number of payments to return
+     * @return The page; fewer than pageSize payments means it is the last
+     * @throws SQLException if a database error occurs
+     */
+    public List<Payment> getPaymentsPage(int afterPaymentId, int pageSize) throws SQLException {
+        List<Payment> page = new ArrayList<>();
+        String query = "SELECT * FROM payments WHERE payment_id > ? ORDER BY payment_id LIMIT ?";
+        
+        try (Connection conn = DatabaseUtil.getConnection("PaymentDAO.getPaymentsPage");
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            
+            pstmt.setInt(1, afterPaymentId);
+            pstmt.setInt(2, pageSize);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    page.add(mapResultSetToPayment(rs));
+                }
+            }
+        }
+        
+        return page;
+    }
+    
+    /**
+     * Pass every payment to a consumer as it is read, without holding them
+     * all in memory. The consumer runs while the query is open, so it should
+     * not take long per row.
+     * 
+     * @param consumer Receives each payment in payment ID order
+     * @throws SQLException if a database error occurs
+     */
+    public void forEachPayment(Consumer<Payment> consumer) throws SQLException {
+        String query = "SELECT * FROM payments ORDER BY payment_id";
+        
+        try (Connection conn = DatabaseUtil.getConnection("PaymentDAO.forEachPayment");
+             PreparedStatement pstmt = DatabaseUtil.prepareStreamingStatement(conn, query);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                consumer.accept(mapResultSetToPayment(rs));
+            }
+        }
+    }
+    
     /**
      * Get payment by ID
      * 
@@ -45,7 +113,7 @@ public class PaymentDAO {
     public Payment getPaymentById(int paymentId) {
         String query = "SELECT * FROM payments WHERE payment_id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("PaymentDAO.getPaymentById");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setInt(1, paymentId);
@@ -54,9 +122,9 @@ public class PaymentDAO {
                 if (rs.next()) {
                     Payment payment = mapResultSetToPayment(rs);
                     
-                    // Load associated ticket
-                    Ticket ticket = ticketDAO.getTicketById(payment.getTicketId());
-                    payment.setTicket(ticket);
+                    // The ticket is only fetched if the caller asks for it
+                    int ticketId = payment.getTicketId();
+                    payment.setTicketLoader(() -> ticketDAO.getTicketById(ticketId));
                     
                     return payment;
                 }
@@ -68,6 +136,113 @@ public class PaymentDAO {
         return null;
     }
     
+    /**
+     * Get the payment created by a client request
+     * 
+     * @param requestId Idempotency key the payment was made with
+     * @return Payment if found, null otherwise
+     */
+    public Payment getPaymentByRequestId(String requestId) {
+        String query = "SELECT * FROM payments WHERE request_id = ?";
+        
+        try (Connection conn = DatabaseUtil.getConnection("PaymentDAO.getPaymentByRequestId");
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            
+            pstmt.setString(1, requestId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapResultSetToPayment(rs);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving payment by request ID: " + e.getMessage());
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Get several payments by ID with their tickets, in two queries
+     * however many payments there are
+     * 
+     * @param paymentIds Payment IDs
+     * @return The payments that exist, in payment ID order, with tickets attached
+     * @throws SQLException if a database error occurs
+     */
+    public List<Payment> getPaymentsWithTickets(Collection<Integer> paymentIds) throws SQLException {
+        List<Payment> payments = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(paymentIds));
+        
+        try (Connection conn = DatabaseUtil.getConnection("PaymentDAO.getPaymentsWithTickets")) {
+            for (int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+                List<Integer> chunk = ids.subList(start, Math.min(start + MAX_IDS_PER_QUERY, ids.size()));
+                String query = "SELECT * FROM payments WHERE payment_id IN (" + placeholders(chunk.size()) + ") " +
+                              "ORDER BY payment_id";
+                
+                try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            payments.add(mapResultSetToPayment(rs));
+                        }
+                    }
+                }
+            }
+        }
+        
+        fetchTickets(payments);
+        return payments;
+    }
+    
+    /**
+     * Attach the tickets of already loaded payments with one IN query
+     * 
+     * @param payments Payments whose tickets should be loaded
+     * @throws SQLException if a database error occurs
+     */
+    public void fetchTickets(List<Payment> payments) throws SQLException {
+        List<Integer> ticketIds = new ArrayList<>();
+        for (Payment payment : payments) {
+            ticketIds.add(payment.getTicketId());
+        }
+        Map<Integer, Ticket> tickets = ticketDAO.getTicketsByIds(ticketIds);
+        for (Payment payment : payments) {
+            payment.setTicket(tickets.get(payment.getTicketId()));
+        }
+    }
+    
+    /**
+     * Make the tickets of a list of payments load lazily as a batch: the first
+     * getTicket() call on any of them loads the tickets of all of them in one query
+     * 
+     * @param payments Payments to attach lazy tickets to
+     */
+    public void fetchTicketsLazily(final List<Payment> payments) {
+        final List<Payment> batch = new ArrayList<>(payments);
+        for (final Payment payment : batch) {
+            payment.setTicketLoader(() -> {
+                // This payment's loader is already cleared; take along the others still waiting
+                List<Payment> pending = new ArrayList<>();
+                pending.add(payment);
+                for (Payment p : batch) {
+                    if (!p.isTicketLoaded()) {
+                        pending.add(p);
+                    }
+                }
+                try {
+                    fetchTickets(pending);
+                } catch (SQLException e) {
+                    System.err.println("Error loading tickets for payments: " + e.getMessage());
+                    return null;
+                }
+                return payment.getTicket();
+            });
+        }
+    }
+    
     /**
      * Get payments by ticket ID
      * 
@@ -78,7 +253,7 @@ public class PaymentDAO {
         List<Payment> payments = new ArrayList<>();
         String query = "SELECT * FROM payments WHERE ticket_id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("PaymentDAO.getPaymentsByTicketId");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setInt(1, ticketId);
@@ -97,42 +272,56 @@ public class PaymentDAO {
     }
     
     /**
-     * Create a new payment in the database
+     * Create a new payment in the database. A successful payment marks its
+     * ticket COMPLETED in the same transaction, and only if the ticket is
+     * still PENDING, so a payment can never land on a ticket that was
+     * cancelled, expired or already paid in the meantime.
      * 
      * @param payment The payment object to create
      * @return The created payment with ID set, or null if creation failed
+     *         or the ticket was no longer pending
      */
     public Payment createPayment(Payment payment) {
-        String query = "INSERT INTO payments (ticket_id, amount, payment_method, transaction_id, status) VALUES (?, ?, ?, ?, ?)";
+        String query = "INSERT INTO payments (ticket_id, amount, payment_method, transaction_id, status, request_id) VALUES (?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
-            
-            pstmt.setInt(1, payment.getTicketId());
-            pstmt.setDouble(2, payment.getAmount());
-            pstmt.setString(3, payment.getPaymentMethod());
-            pstmt.setString(4, payment.getTransactionId());
-            pstmt.setString(5, payment.getStatus());
-            
-            int affectedRows = pstmt.executeUpdate();
-            
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        payment.setPaymentId(generatedKeys.getInt(1));
-                        
-                        // Update ticket payment status if payment is successful
-                        if ("SUCCESS".equals(payment.getStatus())) {
-                            Ticket ticket = ticketDAO.getTicketById(payment.getTicketId());
-                            if (ticket != null) {
-                                ticket.setPaymentStatus("COMPLETED");
-                                ticketDAO.updateTicket(ticket);
+        try (Connection conn = DatabaseUtil.getConnection("PaymentDAO.createPayment")) {
+            conn.setAutoCommit(false);
+            try {
+                boolean created = false;
+                try (PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setInt(1, payment.getTicketId());
+                    pstmt.setDouble(2, payment.getAmount());
+                    pstmt.setString(3, payment.getPaymentMethod());
+                    pstmt.setString(4, payment.getTransactionId());
+                    pstmt.setString(5, payment.getStatus());
+                    pstmt.setString(6, payment.getRequestId());
+                    
+                    if (pstmt.executeUpdate() > 0) {
+                        try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                            if (generatedKeys.next()) {
+                                payment.setPaymentId(generatedKeys.getInt(1));
+                                created = true;
                             }
                         }
-                        
-                        return payment;
                     }
                 }
+                
+                // Update ticket payment status if payment is successful
+                if (created && "SUCCESS".equals(payment.getStatus())) {
+                    created = ticketDAO.updatePaymentStatus(conn, payment.getTicketId(), "COMPLETED", "PENDING");
+                }
+                
+                if (!created) {
+                    conn.rollback();
+                    return null;
+                }
+                conn.commit();
+                return payment;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
         } catch (SQLException e) {
             System.err.println("Error creating payment: " + e.getMessage());
@@ -142,59 +331,97 @@ public class PaymentDAO {
     }
     
     /**
-     * Update an existing payment
+     * Update an existing payment. A change to REFUNDED goes through
+     * {@link #refundPayment}, so the ticket's seats are returned with it.
      * 
      * @param payment The payment object with updated values
      * @return true if update successful, false otherwise
      */
     public boolean updatePayment(Payment payment) {
+        if ("REFUNDED".equals(payment.getStatus())) {
+            return refundPayment(payment.getPaymentId()) != null;
+        }
+        
         String query = "UPDATE payments SET status = ? WHERE payment_id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("PaymentDAO.updatePayment");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setString(1, payment.getStatus());
             pstmt.setInt(2, payment.getPaymentId());
             
-            int affectedRows = pstmt.executeUpdate();
-            
-            if (affectedRows > 0) {
-                // Update ticket payment status if payment status is changed
-                Ticket ticket = ticketDAO.getTicketById(payment.getTicketId());
-                if (ticket != null) {
-                    if ("SUCCESS".equals(payment.getStatus())) {
-                        ticket.setPaymentStatus("COMPLETED");
-                    } else if ("REFUNDED".equals(payment.getStatus())) {
-                        ticket.setPaymentStatus("REFUNDED");
-                    } else if ("FAILED".equals(payment.getStatus())) {
-                        ticket.setPaymentStatus("CANCELLED");
-                    }
-                    ticketDAO.updateTicket(ticket);
-                }
-                
-                return true;
+            if (pstmt.executeUpdate() == 0) {
+                return false;
             }
-            return false;
         } catch (SQLException e) {
             System.err.println("Error updating payment: " + e.getMessage());
             return false;
         }
+        
+        // Update ticket payment status if payment status is changed (after releasing the connection)
+        Ticket ticket = ticketDAO.getTicketById(payment.getTicketId());
+        if (ticket != null) {
+            if ("SUCCESS".equals(payment.getStatus())) {
+                ticket.setPaymentStatus("COMPLETED");
+            } else if ("FAILED".equals(payment.getStatus())) {
+                ticket.setPaymentStatus("CANCELLED");
+            }
+            ticketDAO.updateTicket(ticket);
+        }
+        
+        return true;
     }
     
     /**
-     * Process a refund for a payment
+     * Process a refund for a payment. The payment is marked REFUNDED and, if
+     * its ticket is still paid, the ticket is marked REFUNDED and its seats
+     * go back to the event, all in one transaction. A ticket cancelled in the
+     * meantime has already given its seats back and keeps its status.
      * 
      * @param paymentId The ID of the payment to refund
-     * @return true if refund successful, false otherwise
+     * @return The payment's ticket, whose status is REFUNDED only if this refund
+     *         returned its seats, or null if the payment could not be refunded
      */
-    public boolean refundPayment(int paymentId) {
+    public Ticket refundPayment(int paymentId) {
         Payment payment = getPaymentById(paymentId);
         if (payment == null || !"SUCCESS".equals(payment.getStatus())) {
-            return false;
+            return null;
+        }
+        Ticket ticket = ticketDAO.getTicketById(payment.getTicketId());
+        if (ticket == null) {
+            return null;
         }
         
-        payment.setStatus("REFUNDED");
-        return updatePayment(payment);
+        String query = "UPDATE payments SET status = 'REFUNDED' WHERE payment_id = ? AND status = 'SUCCESS'";
+        
+        try (Connection conn = DatabaseUtil.getConnection("PaymentDAO.refundPayment")) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                    pstmt.setInt(1, paymentId);
+                    if (pstmt.executeUpdate() == 0) {
+                        // Refunded concurrently
+                        conn.rollback();
+                        return null;
+                    }
+                }
+                
+                if (ticketDAO.refundTicket(conn, ticket)) {
+                    ticket.setPaymentStatus("REFUNDED");
+                }
+                conn.commit();
+                return ticket;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error refunding payment: " + e.getMessage());
+        }
+        
+        return null;
     }
     
     /**
@@ -205,14 +432,14 @@ public class PaymentDAO {
      * @throws SQLException if a database access error occurs
      */
     private Payment mapResultSetToPayment(ResultSet rs) throws SQLException {
-        Payment payment = new Payment();
-        payment.setPaymentId(rs.getInt("payment_id"));
-        payment.setTicketId(rs.getInt("ticket_id"));
-        payment.setAmount(rs.getDouble("amount"));
-        payment.setPaymentDate(rs.getTimestamp("payment_date"));
-        payment.setPaymentMethod(rs.getString("payment_method"));
-        payment.setTransactionId(rs.getString("transaction_id"));
-        payment.setStatus(rs.getString("status"));
-        return payment;
+        return PAYMENT_MAPPER.map(rs);
+    }
+    
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
     }
-} 
\ No newline at end of file
+}
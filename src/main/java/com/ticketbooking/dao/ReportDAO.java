@@ -0,0 +1,107 @@
+package com.ticketbooking.dao;
+
+import com.ticketbooking.model.EventSalesSummary;
+import com.ticketbooking.model.TicketTypeSales;
+import com.ticketbooking.util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for the admin sales reports. Each report is one
+ * grouped query; the database does the counting and summing.
+ */
+public class ReportDAO {
+
+    /**
+     * Get tickets offered, tickets sold and revenue for every event
+     * 
+     * @return One row per event, in event ID order
+     * @throws SQLException if a database error occurs
+     */
+    public List<EventSalesSummary> getEventSalesSummaries() throws SQLException {
+        List<EventSalesSummary> summaries = new ArrayList<>();
+        // Aggregate each side before joining so ticket types do not multiply ticket sums
+        String query = "SELECT e.event_id, e.event_name, " +
+                      "COALESCE(tt.total_tickets, 0) AS total_tickets, " +
+                      "COALESCE(s.booked_tickets, 0) AS booked_tickets, " +
+                      "COALESCE(s.revenue, 0) AS revenue " +
+                      "FROM events e " +
+                      "LEFT JOIN (SELECT event_id, SUM(available_quantity) AS total_tickets " +
+                      "FROM ticket_types GROUP BY event_id) tt ON tt.event_id = e.event_id " +
+                      "LEFT JOIN (SELECT event_id, SUM(quantity) AS booked_tickets, SUM(total_price) AS revenue " +
+                      "FROM tickets WHERE payment_status IN (?, ?) GROUP BY event_id) s ON s.event_id = e.event_id " +
+                      "ORDER BY e.event_id";
+        
+        try (Connection conn = DatabaseUtil.getConnection("ReportDAO.getEventSalesSummaries");
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            
+            pstmt.setString(1, SalesAggregateDAO.PAID);
+            pstmt.setString(2, SalesAggregateDAO.COMPLETED);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    summaries.add(new EventSalesSummary(
+                            rs.getInt("event_id"),
+                            rs.getString("event_name"),
+                            rs.getInt("total_tickets"),
+                            rs.getInt("booked_tickets"),
+                            rs.getDouble("revenue")));
+                }
+            }
+        }
+        
+        return summaries;
+    }
+    
+    /**
+     * Get tickets sold and revenue for every ticket type of every event.
+     * Tickets do not record their type, so a ticket is attributed to the
+     * type of its event whose price matches the ticket's unit price, and to
+     * the lowest type ID if several do, as in the sales totals; a ticket is
+     * never counted twice.
+     * 
+     * @return One row per ticket type (or per event without types), grouped by event
+     * @throws SQLException if a database error occurs
+     */
+    public List<TicketTypeSales> getTicketTypeSales() throws SQLException {
+        List<TicketTypeSales> sales = new ArrayList<>();
+        String query = "SELECT e.event_id, e.event_name, tt.ticket_type_id, tt.category, tt.price, " +
+                      "COALESCE(SUM(t.quantity), 0) AS sold, COALESCE(SUM(t.total_price), 0) AS revenue " +
+                      "FROM events e " +
+                      "LEFT JOIN ticket_types tt ON tt.event_id = e.event_id " +
+                      "LEFT JOIN (SELECT t.quantity, t.total_price, " +
+                      "(SELECT MIN(m.ticket_type_id) FROM ticket_types m WHERE m.event_id = t.event_id " +
+                      "AND ABS(t.total_price / t.quantity - m.price) < 0.01) AS ticket_type_id " +
+                      "FROM tickets t WHERE t.payment_status IN (?, ?) AND t.quantity > 0) t " +
+                      "ON t.ticket_type_id = tt.ticket_type_id " +
+                      "GROUP BY e.event_id, e.event_name, tt.ticket_type_id, tt.category, tt.price " +
+                      "ORDER BY e.event_id, tt.ticket_type_id";
+        
+        try (Connection conn = DatabaseUtil.getConnection("ReportDAO.getTicketTypeSales");
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            
+            pstmt.setString(1, SalesAggregateDAO.PAID);
+            pstmt.setString(2, SalesAggregateDAO.COMPLETED);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    sales.add(new TicketTypeSales(
+                            rs.getInt("event_id"),
+                            rs.getString("event_name"),
+                            rs.getInt("ticket_type_id"),
+                            rs.getString("category"),
+                            rs.getDouble("price"),
+                            rs.getInt("sold"),
+                            rs.getDouble("revenue")));
+                }
+            }
+        }
+        
+        return sales;
+    }
+}
@@ -0,0 +1,253 @@
+package com.ticketbooking.dao;
+
+import com.ticketbooking.model.EventSalesSummary;
+import com.ticketbooking.model.Ticket;
+import com.ticketbooking.model.TicketTypeSales;
+import com.ticketbooking.util.AppConfig;
+import com.ticketbooking.util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for the sales_summary table: running totals of paid,
+ * cancelled and refunded tickets per event, ticket type and day.
+ *
+ * The totals are kept as deltas. Every ticket status change made through
+ * {@link TicketDAO} adds the difference it makes to the row for the day the
+ * ticket was booked, in the same transaction as the change, so the reports
+ * can sum a few rows per event instead of reading every ticket, and the rows
+ * match what {@link #rebuild} computes. Paid quantity and revenue count the
+ * tickets currently paid (PAID or COMPLETED): a paid ticket that is later
+ * cancelled or refunded is taken off its booking day again. Tickets do not record their
+ * type, so a ticket is filed under the type of its event whose price matches
+ * its unit price at the time of the change, or under type 0 if none does.
+ */
+public class SalesAggregateDAO {
+    // The dashboard marks paid tickets PAID; a recorded payment marks them COMPLETED
+    static final String PAID = "PAID";
+    static final String COMPLETED = "COMPLETED";
+    static final String CANCELLED = "CANCELLED";
+    static final String REFUNDED = "REFUNDED";
+
+    /**
+     * Check whether sales aggregates are switched on in app.properties
+     *
+     * @return true if status changes should update the sales_summary table
+     */
+    public static boolean isEnabled() {
+        return AppConfig.getBoolean("sales.aggregates.enabled", true);
+    }
+
+    /**
+     * Add the effect of a ticket status change to the totals of the day the
+     * ticket was booked. Must be
+     * called on the connection and in the transaction that changes the status.
+     *
+     * @param conn Connection holding the transaction
+     * @param ticket The ticket as it was before the change
+     * @param newStatus The status it is changing to
+     * @throws SQLException if a database error occurs
+     */
+    public void recordTransition(Connection conn, Ticket ticket, String newStatus) throws SQLException {
+        String oldStatus = ticket.getPaymentStatus();
+        int quantity = ticket.getQuantity();
+        double amount = ticket.getTotalPrice();
+
+        int paid = (isPaid(newStatus) ? 1 : 0) - (isPaid(oldStatus) ? 1 : 0);
+        int cancelled = Math.max(0, delta(CANCELLED, oldStatus, newStatus));
+        int refunded = Math.max(0, delta(REFUNDED, oldStatus, newStatus));
+        if (paid == 0 && cancelled == 0 && refunded == 0) {
+            return;
+        }
+
+        String query = "INSERT INTO sales_summary (event_id, ticket_type_id, sales_date, paid_quantity, revenue, " +
+                      "cancelled_quantity, refunded_quantity, refunded_amount) " +
+                      "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+                      "ON DUPLICATE KEY UPDATE paid_quantity = paid_quantity + VALUES(paid_quantity), " +
+                      "revenue = revenue + VALUES(revenue), " +
+                      "cancelled_quantity = cancelled_quantity + VALUES(cancelled_quantity), " +
+                      "refunded_quantity = refunded_quantity + VALUES(refunded_quantity), " +
+                      "refunded_amount = refunded_amount + VALUES(refunded_amount)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, ticket.getEventId());
+            pstmt.setInt(2, findTicketTypeId(conn, ticket));
+            pstmt.setDate(3, salesDate(ticket));
+            pstmt.setInt(4, paid * quantity);
+            pstmt.setDouble(5, paid * amount);
+            pstmt.setInt(6, cancelled * quantity);
+            pstmt.setInt(7, refunded * quantity);
+            pstmt.setDouble(8, refunded * amount);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Get tickets offered, tickets sold and revenue for every event from the totals
+     *
+     * @return One row per event, in event ID order
+     * @throws SQLException if a database error occurs
+     */
+    public List<EventSalesSummary> getEventSalesSummaries() throws SQLException {
+        List<EventSalesSummary> summaries = new ArrayList<>();
+        String query = "SELECT e.event_id, e.event_name, " +
+                      "COALESCE(tt.total_tickets, 0) AS total_tickets, " +
+                      "COALESCE(s.booked_tickets, 0) AS booked_tickets, " +
+                      "COALESCE(s.revenue, 0) AS revenue " +
+                      "FROM events e " +
+                      "LEFT JOIN (SELECT event_id, SUM(available_quantity) AS total_tickets " +
+                      "FROM ticket_types GROUP BY event_id) tt ON tt.event_id = e.event_id " +
+                      "LEFT JOIN (SELECT event_id, SUM(paid_quantity) AS booked_tickets, SUM(revenue) AS revenue " +
+                      "FROM sales_summary GROUP BY event_id) s ON s.event_id = e.event_id " +
+                      "ORDER BY e.event_id";
+
+        try (Connection conn = DatabaseUtil.getConnection("SalesAggregateDAO.getEventSalesSummaries");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+
+            while (rs.next()) {
+                summaries.add(new EventSalesSummary(
+                        rs.getInt("event_id"),
+                        rs.getString("event_name"),
+                        rs.getInt("total_tickets"),
+                        rs.getInt("booked_tickets"),
+                        rs.getDouble("revenue")));
+            }
+        }
+
+        return summaries;
+    }
+
+    /**
+     * Get tickets sold and revenue for every ticket type of every event from the totals
+     *
+     * @return One row per ticket type (or per event without types), grouped by event
+     * @throws SQLException if a database error occurs
+     */
+    public List<TicketTypeSales> getTicketTypeSales() throws SQLException {
+        List<TicketTypeSales> sales = new ArrayList<>();
+        String query = "SELECT e.event_id, e.event_name, tt.ticket_type_id, tt.category, tt.price, " +
+                      "COALESCE(s.sold, 0) AS sold, COALESCE(s.revenue, 0) AS revenue " +
+                      "FROM events e " +
+                      "LEFT JOIN ticket_types tt ON tt.event_id = e.event_id " +
+                      "LEFT JOIN (SELECT event_id, ticket_type_id, SUM(paid_quantity) AS sold, SUM(revenue) AS revenue " +
+                      "FROM sales_summary GROUP BY event_id, ticket_type_id) s " +
+                      "ON s.event_id = tt.event_id AND s.ticket_type_id = tt.ticket_type_id " +
+                      "ORDER BY e.event_id, tt.ticket_type_id";
+
+        try (Connection conn = DatabaseUtil.getConnection("SalesAggregateDAO.getTicketTypeSales");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+
+            while (rs.next()) {
+                sales.add(new TicketTypeSales(
+                        rs.getInt("event_id"),
+                        rs.getString("event_name"),
+                        rs.getInt("ticket_type_id"),
+                        rs.getString("category"),
+                        rs.getDouble("price"),
+                        rs.getInt("sold"),
+                        rs.getDouble("revenue")));
+            }
+        }
+
+        return sales;
+    }
+
+    /**
+     * Recompute the totals from the tickets table, filing each ticket under
+     * the day it was booked. Used to fill the table the first time, or after
+     * statuses were changed outside the application.
+     *
+     * @return Number of summary rows written
+     * @throws SQLException if a database error occurs (the old totals are kept)
+     */
+    public int rebuild() throws SQLException {
+        String insertQuery = "INSERT INTO sales_summary (event_id, ticket_type_id, sales_date, paid_quantity, " +
+                            "revenue, cancelled_quantity, refunded_quantity, refunded_amount) " +
+                            "SELECT event_id, ticket_type_id, sales_date, " +
+                            "SUM(CASE WHEN payment_status IN (?, ?) THEN quantity ELSE 0 END), " +
+                            "SUM(CASE WHEN payment_status IN (?, ?) THEN total_price ELSE 0 END), " +
+                            "SUM(CASE WHEN payment_status = ? THEN quantity ELSE 0 END), " +
+                            "SUM(CASE WHEN payment_status = ? THEN quantity ELSE 0 END), " +
+                            "SUM(CASE WHEN payment_status = ? THEN total_price ELSE 0 END) " +
+                            "FROM (SELECT t.event_id, t.quantity, t.total_price, t.payment_status, " +
+                            "CAST(t.booking_date AS DATE) AS sales_date, " +
+                            "COALESCE((SELECT MIN(tt.ticket_type_id) FROM ticket_types tt " +
+                            "WHERE tt.event_id = t.event_id AND t.quantity > 0 " +
+                            "AND ABS(t.total_price / t.quantity - tt.price) < 0.01), 0) AS ticket_type_id " +
+                            "FROM tickets t WHERE t.payment_status IN (?, ?, ?, ?)) sold " +
+                            "GROUP BY event_id, ticket_type_id, sales_date";
+
+        try (Connection conn = DatabaseUtil.getConnection("SalesAggregateDAO.rebuild")) {
+            conn.setAutoCommit(false);
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate("DELETE FROM sales_summary");
+                }
+
+                int rows;
+                try (PreparedStatement pstmt = conn.prepareStatement(insertQuery)) {
+                    int index = 1;
+                    for (int i = 0; i < 2; i++) {
+                        pstmt.setString(index++, PAID);
+                        pstmt.setString(index++, COMPLETED);
+                    }
+                    pstmt.setString(index++, CANCELLED);
+                    pstmt.setString(index++, REFUNDED);
+                    pstmt.setString(index++, REFUNDED);
+                    pstmt.setString(index++, PAID);
+                    pstmt.setString(index++, COMPLETED);
+                    pstmt.setString(index++, CANCELLED);
+                    pstmt.setString(index, REFUNDED);
+                    rows = pstmt.executeUpdate();
+                }
+
+                conn.commit();
+                return rows;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    static boolean isPaid(String status) {
+        return PAID.equals(status) || COMPLETED.equals(status);
+    }
+
+    // +1 if the change enters the status, -1 if it leaves it, 0 otherwise
+    private static int delta(String status, String oldStatus, String newStatus) {
+        return (status.equals(newStatus) ? 1 : 0) - (status.equals(oldStatus) ? 1 : 0);
+    }
+
+    // Same day as CAST(booking_date AS DATE) in rebuild
+    private static Date salesDate(Ticket ticket) {
+        return Date.valueOf(ticket.getBookingDate() != null
+                ? ticket.getBookingDate().toLocalDateTime().toLocalDate() : LocalDate.now());
+    }
+
+    private int findTicketTypeId(Connection conn, Ticket ticket) throws SQLException {
+        if (ticket.getQuantity() <= 0) {
+            return 0;
+        }
+        String query = "SELECT MIN(ticket_type_id) FROM ticket_types WHERE event_id = ? AND ABS(price - ?) < 0.01";
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, ticket.getEventId());
+            pstmt.setDouble(2, ticket.getTotalPrice() / ticket.getQuantity());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+}
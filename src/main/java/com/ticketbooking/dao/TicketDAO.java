@@ -2,17 +2,48 @@ package com.ticketbooking.dao;
 
 import com.ticketbooking.model.Ticket;
 import com.ticketbooking.model.Event;
+import com.ticketbooking.model.TicketDetail;
+import com.ticketbooking.model.TicketSummary;
 import com.ticketbooking.model.User;
 import com.ticketbooking.util.DatabaseUtil;
+import com.ticketbooking.util.RowMapper;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class TicketDAO {
+    private static final RowMapper<Ticket> TICKET_MAPPER = RowMapper.builder(Ticket::new)
+            .intColumn("ticket_id", Ticket::setTicketId)
+            .intColumn("event_id", Ticket::setEventId)
+            .intColumn("user_id", Ticket::setUserId)
+            .intColumn("quantity", Ticket::setQuantity)
+            .doubleColumn("total_price", Ticket::setTotalPrice)
+            .timestampColumn("booking_date", Ticket::setBookingDate)
+            .stringColumn("payment_status", Ticket::setPaymentStatus)
+            .stringColumn("request_id", Ticket::setRequestId)
+            .build();
+    
+    private static final int MAX_ROWS_PER_INSERT = 500;
+    private static final int MAX_IDS_PER_QUERY = 500;
+    
+    // Only these statuses hold seats; expired and refunded tickets have already given theirs back
+    private static final List<String> CANCELLABLE_STATUSES = Arrays.asList(
+            "PENDING", SalesAggregateDAO.PAID, SalesAggregateDAO.COMPLETED);
+    private static final List<String> REFUNDABLE_STATUSES = Arrays.asList(
+            SalesAggregateDAO.PAID, SalesAggregateDAO.COMPLETED);
     
     private EventDAO eventDAO = new EventDAO();
     private UserDAO userDAO = new UserDAO();
+    private SalesAggregateDAO salesAggregates = SalesAggregateDAO.isEnabled() ? new SalesAggregateDAO() : null;
     
     /**
      * Get all tickets from the database
@@ -23,7 +54,7 @@ public class TicketDAO {
         List<Ticket> tickets = new ArrayList<>();
         String query = "SELECT * FROM tickets";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("TicketDAO.getAllTickets");
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
@@ -38,6 +69,57 @@ public class TicketDAO {
         return tickets;
     }
     
+    /**
+     * Get one page of tickets in ticket ID order, continuing after a given
+     * ticket ID (keyset pagination: each page is an index range scan, however
+     * deep into the table it is)
+     * 
+     * @param afterTicketId Last ticket ID of the previous page (0 for the first page)
+     * @param pageSize Maximum number of tickets to return
+     * @return The page; fewer than pageSize tickets means it is the last
+     * @throws SQLException if a database error occurs
+     */
+    public List<Ticket> getTicketsPage(int afterTicketId, int pageSize) throws SQLException {
+        List<Ticket> page = new ArrayList<>();
+        String query = "SELECT * FROM tickets WHERE ticket_id > ? ORDER BY ticket_id LIMIT ?";
+        
+        try (Connection conn = DatabaseUtil.getConnection("TicketDAO.getTicketsPage");
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            
+            pstmt.setInt(1, afterTicketId);
+            pstmt.setInt(2, pageSize);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    page.add(mapResultSetToTicket(rs));
+                }
+            }
+        }
+        
+        return page;
+    }
+    
+    /**
+     * Pass every ticket to a consumer as it is read, without holding them
+     * all in memory. The consumer runs while the query is open, so it should
+     * not take long per row.
+     * 
+     * @param consumer Receives each ticket in ticket ID order
+     * @throws SQLException if a database error occurs
+     */
+    public void forEachTicket(Consumer<Ticket> consumer) throws SQLException {
+        String query = "SELECT * FROM tickets ORDER BY ticket_id";
+        
+        try (Connection conn = DatabaseUtil.getConnection("TicketDAO.forEachTicket");
+             PreparedStatement pstmt = DatabaseUtil.prepareStreamingStatement(conn, query);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                consumer.accept(mapResultSetToTicket(rs));
+            }
+        }
+    }
+    
     /**
      * Get ticket by ID
      * 
@@ -46,33 +128,94 @@ public class TicketDAO {
      */
     public Ticket getTicketById(int ticketId) {
         String query = "SELECT * FROM tickets WHERE ticket_id = ?";
+        Ticket ticket = null;
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("TicketDAO.getTicketById");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setInt(1, ticketId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    Ticket ticket = mapResultSetToTicket(rs);
-                    
-                    // Load associated event and user
-                    Event event = eventDAO.getEventById(ticket.getEventId());
-                    User user = userDAO.getUserById(ticket.getUserId());
-                    
-                    ticket.setEvent(event);
-                    ticket.setUser(user);
-                    
-                    return ticket;
+                    ticket = mapResultSetToTicket(rs);
                 }
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving ticket by ID: " + e.getMessage());
         }
         
+        if (ticket != null) {
+            // Load associated event and user once the connection is back in the pool,
+            // so a full pool cannot leave every caller waiting for a second one
+            try {
+                ticket.setEvent(eventDAO.getEventById(ticket.getEventId()));
+                ticket.setUser(userDAO.getUserById(ticket.getUserId()));
+                return ticket;
+            } catch (SQLException e) {
+                System.err.println("Error retrieving ticket by ID: " + e.getMessage());
+            }
+        }
+        
         return null;
     }
     
+    /**
+     * Get several tickets by ID, querying up to MAX_IDS_PER_QUERY IDs at a
+     * time. Associated events and users are not loaded.
+     * 
+     * @param ticketIds Ticket IDs
+     * @return Ticket ID to ticket, for the tickets that exist
+     * @throws SQLException if a database error occurs
+     */
+    public Map<Integer, Ticket> getTicketsByIds(Collection<Integer> ticketIds) throws SQLException {
+        Map<Integer, Ticket> tickets = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(ticketIds));
+        if (ids.isEmpty()) {
+            return tickets;
+        }
+        
+        try (Connection conn = DatabaseUtil.getConnection("TicketDAO.getTicketsByIds")) {
+            for (int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+                List<Integer> chunk = ids.subList(start, Math.min(start + MAX_IDS_PER_QUERY, ids.size()));
+                String query = "SELECT * FROM tickets WHERE ticket_id IN (" + placeholders(chunk.size()) + ")";
+                
+                try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Ticket ticket = mapResultSetToTicket(rs);
+                            tickets.put(ticket.getTicketId(), ticket);
+                        }
+                    }
+                }
+            }
+        }
+        return tickets;
+    }
+    
+    /**
+     * Get the ticket created by a client request
+     * 
+     * @param requestId Idempotency key the ticket was booked with
+     * @return Ticket if found, null otherwise
+     * @throws SQLException if a database error occurs
+     */
+    public Ticket getTicketByRequestId(String requestId) throws SQLException {
+        String query = "SELECT * FROM tickets WHERE request_id = ?";
+        
+        try (Connection conn = DatabaseUtil.getConnection("TicketDAO.getTicketByRequestId");
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            
+            pstmt.setString(1, requestId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapResultSetToTicket(rs) : null;
+            }
+        }
+    }
+    
     /**
      * Get tickets by user ID
      * 
@@ -83,29 +226,79 @@ public class TicketDAO {
         List<Ticket> tickets = new ArrayList<>();
         String query = "SELECT * FROM tickets WHERE user_id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("TicketDAO.getTicketsByUserId");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setInt(1, userId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    Ticket ticket = mapResultSetToTicket(rs);
-                    
-                    // Load associated event
-                    Event event = eventDAO.getEventById(ticket.getEventId());
-                    ticket.setEvent(event);
-                    
-                    tickets.add(ticket);
+                    tickets.add(mapResultSetToTicket(rs));
                 }
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving tickets by user ID: " + e.getMessage());
         }
         
+        // Load associated events in one lookup after releasing the connection. If it
+        // fails the tickets are still returned, without their events.
+        List<Integer> eventIds = new ArrayList<>();
+        for (Ticket ticket : tickets) {
+            eventIds.add(ticket.getEventId());
+        }
+        try {
+            Map<Integer, Event> events = eventDAO.getEventsByIds(eventIds);
+            for (Ticket ticket : tickets) {
+                ticket.setEvent(events.get(ticket.getEventId()));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving events for tickets by user ID: " + e.getMessage());
+        }
+        
         return tickets;
     }
     
+    /**
+     * Get one page of a user's tickets with their event names, newest first, in a single query
+     * 
+     * @param userId The user ID to search for
+     * @param offset Number of tickets to skip
+     * @param limit Maximum number of tickets to return
+     * @return Ticket summaries for the page
+     * @throws SQLException if a database error occurs
+     */
+    public List<TicketSummary> getTicketSummariesByUserId(int userId, int offset, int limit) throws SQLException {
+        List<TicketSummary> summaries = new ArrayList<>();
+        String query = "SELECT t.ticket_id, t.event_id, e.event_name, e.event_date, t.quantity, t.total_price, " +
+                      "t.booking_date, t.payment_status " +
+                      "FROM tickets t JOIN events e ON e.event_id = t.event_id " +
+                      "WHERE t.user_id = ? ORDER BY t.booking_date DESC, t.ticket_id DESC LIMIT ? OFFSET ?";
+        
+        try (Connection conn = DatabaseUtil.getConnection("TicketDAO.getTicketSummariesByUserId");
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, limit);
+            pstmt.setInt(3, offset);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    summaries.add(new TicketSummary(
+                            rs.getInt("ticket_id"),
+                            rs.getInt("event_id"),
+                            rs.getString("event_name"),
+                            rs.getDate("event_date"),
+                            rs.getInt("quantity"),
+                            rs.getDouble("total_price"),
+                            rs.getTimestamp("booking_date"),
+                            rs.getString("payment_status")));
+                }
+            }
+        }
+        
+        return summaries;
+    }
+    
     /**
      * Get tickets by event ID
      * 
@@ -116,66 +309,246 @@ public class TicketDAO {
         List<Ticket> tickets = new ArrayList<>();
         String query = "SELECT * FROM tickets WHERE event_id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("TicketDAO.getTicketsByEventId");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setInt(1, eventId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    Ticket ticket = mapResultSetToTicket(rs);
-                    
-                    // Load associated user
-                    User user = userDAO.getUserById(ticket.getUserId());
-                    ticket.setUser(user);
-                    
-                    tickets.add(ticket);
+                    tickets.add(mapResultSetToTicket(rs));
                 }
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving tickets by event ID: " + e.getMessage());
         }
         
+        // Load associated users after releasing the connection
+        for (Ticket ticket : tickets) {
+            User user = userDAO.getUserById(ticket.getUserId());
+            ticket.setUser(user);
+        }
+        
         return tickets;
     }
     
     /**
-     * Create a new ticket in the database
+     * Reserve seats and create a ticket with its details in a single transaction.
+     * The seat decrement is conditional, so concurrent bookings cannot oversell;
+     * if any step fails the whole booking is rolled back.
+     * 
+     * @param ticket The ticket to create (ID is set on success)
+     * @param details Ticket details to insert; their ticket ID is filled in
+     * @return The created ticket, or null if the event does not have enough seats
+     * @throws SQLException if a database error occurs (the transaction is rolled back)
+     */
+    public Ticket createTicketWithDetails(Ticket ticket, List<TicketDetail> details) throws SQLException {
+        return createTicketWithDetails(ticket, details, true);
+    }
+    
+    /**
+     * Create a ticket with its details in a single transaction
      * 
-     * @param ticket The ticket object to create
-     * @return The created ticket with ID set, or null if creation failed
+     * @param ticket The ticket to create (ID is set on success)
+     * @param details Ticket details to insert; their ticket ID is filled in
+     * @param reserveSeats Whether to decrement events.available_seats in the same transaction;
+     *                     false when the seats were already reserved by the in-memory inventory
+     * @return The created ticket, or null if the event does not have enough seats
+     * @throws SQLException if a database error occurs (the transaction is rolled back)
      */
-    public Ticket createTicket(Ticket ticket) {
-        String query = "INSERT INTO tickets (event_id, user_id, quantity, total_price, payment_status) VALUES (?, ?, ?, ?, ?)";
+    public Ticket createTicketWithDetails(Ticket ticket, List<TicketDetail> details, boolean reserveSeats) throws SQLException {
+        String reserveQuery = "UPDATE events SET available_seats = available_seats - ? WHERE event_id = ? AND available_seats >= ?";
+        String ticketQuery = "INSERT INTO tickets (event_id, user_id, quantity, total_price, payment_status, request_id) VALUES (?, ?, ?, ?, ?, ?)";
+        String detailQuery = "INSERT INTO ticket_details (ticket_id, seat_number, attendee_name) VALUES (?, ?, ?)";
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
-            
-            pstmt.setInt(1, ticket.getEventId());
-            pstmt.setInt(2, ticket.getUserId());
-            pstmt.setInt(3, ticket.getQuantity());
-            pstmt.setDouble(4, ticket.getTotalPrice());
-            pstmt.setString(5, ticket.getPaymentStatus());
-            
-            int affectedRows = pstmt.executeUpdate();
-            
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        ticket.setTicketId(generatedKeys.getInt(1));
+        try (Connection conn = DatabaseUtil.getConnection("TicketDAO.createTicketWithDetails")) {
+            conn.setAutoCommit(false);
+            try {
+                if (reserveSeats) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(reserveQuery)) {
+                        pstmt.setInt(1, ticket.getQuantity());
+                        pstmt.setInt(2, ticket.getEventId());
+                        pstmt.setInt(3, ticket.getQuantity());
                         
-                        // Update available seats in the event
-                        eventDAO.updateAvailableSeats(ticket.getEventId(), ticket.getQuantity());
-                        
-                        return ticket;
+                        if (pstmt.executeUpdate() == 0) {
+                            conn.rollback();
+                            return null;
+                        }
+                    }
+                }
+                
+                try (PreparedStatement pstmt = conn.prepareStatement(ticketQuery, Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setInt(1, ticket.getEventId());
+                    pstmt.setInt(2, ticket.getUserId());
+                    pstmt.setInt(3, ticket.getQuantity());
+                    pstmt.setDouble(4, ticket.getTotalPrice());
+                    pstmt.setString(5, ticket.getPaymentStatus());
+                    pstmt.setString(6, ticket.getRequestId());
+                    pstmt.executeUpdate();
+                    
+                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                        if (!generatedKeys.next()) {
+                            throw new SQLException("Creating ticket failed, no ID obtained");
+                        }
+                        ticket.setTicketId(generatedKeys.getInt(1));
+                    }
+                }
+                
+                if (!details.isEmpty()) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(detailQuery)) {
+                        for (TicketDetail detail : details) {
+                            detail.setTicketId(ticket.getTicketId());
+                            pstmt.setInt(1, detail.getTicketId());
+                            pstmt.setString(2, detail.getSeatNumber());
+                            pstmt.setString(3, detail.getAttendeeName());
+                            pstmt.addBatch();
+                        }
+                        pstmt.executeBatch();
                     }
                 }
+                
+                conn.commit();
+                return ticket;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                ticket.setTicketId(0);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
-        } catch (SQLException e) {
-            System.err.println("Error creating ticket: " + e.getMessage());
         }
+    }
+    
+    /**
+     * Create several bookings in one transaction (group commit): one seat
+     * decrement per event, one multi-row insert for the tickets and one for
+     * their details. If an event cannot cover all of its bookings together,
+     * they are reserved one by one and the ones that do not fit are skipped.
+     * 
+     * @param tickets Tickets to create
+     * @param details Details for each ticket, in the same order
+     * @param reserveSeats Whether to decrement events.available_seats
+     * @return Tickets that were created (with their generated IDs); skipped tickets keep ID 0
+     * @throws SQLException if a database error occurs (nothing is written)
+     */
+    public List<Ticket> createTicketsWithDetails(List<Ticket> tickets, List<List<TicketDetail>> details,
+                                                 boolean reserveSeats) throws SQLException {
+        String reserveQuery = "UPDATE events SET available_seats = available_seats - ? WHERE event_id = ? AND available_seats >= ?";
+        List<Ticket> created = new ArrayList<>();
+        List<List<TicketDetail>> createdDetails = new ArrayList<>();
         
-        return null;
+        try (Connection conn = DatabaseUtil.getConnection("TicketDAO.createTicketsWithDetails")) {
+            conn.setAutoCommit(false);
+            try {
+                boolean[] rejected = new boolean[tickets.size()];
+                if (reserveSeats) {
+                    Map<Integer, Integer> seatsByEvent = new LinkedHashMap<>();
+                    for (Ticket ticket : tickets) {
+                        seatsByEvent.merge(ticket.getEventId(), ticket.getQuantity(), Integer::sum);
+                    }
+                    try (PreparedStatement pstmt = conn.prepareStatement(reserveQuery)) {
+                        for (Map.Entry<Integer, Integer> entry : seatsByEvent.entrySet()) {
+                            pstmt.setInt(1, entry.getValue());
+                            pstmt.setInt(2, entry.getKey());
+                            pstmt.setInt(3, entry.getValue());
+                            if (pstmt.executeUpdate() > 0) {
+                                continue;
+                            }
+                            
+                            // Not enough seats for the whole group: take them in arrival order
+                            for (int i = 0; i < tickets.size(); i++) {
+                                Ticket ticket = tickets.get(i);
+                                if (ticket.getEventId() != entry.getKey()) {
+                                    continue;
+                                }
+                                pstmt.setInt(1, ticket.getQuantity());
+                                pstmt.setInt(2, ticket.getEventId());
+                                pstmt.setInt(3, ticket.getQuantity());
+                                rejected[i] = pstmt.executeUpdate() == 0;
+                            }
+                        }
+                    }
+                }
+                
+                for (int i = 0; i < tickets.size(); i++) {
+                    if (!rejected[i]) {
+                        created.add(tickets.get(i));
+                        createdDetails.add(details.get(i));
+                    }
+                }
+                
+                if (!created.isEmpty()) {
+                    insertTickets(conn, created);
+                    insertTicketDetails(conn, created, createdDetails);
+                }
+                
+                conn.commit();
+                return created;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                for (Ticket ticket : created) {
+                    ticket.setTicketId(0);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+    
+    private void insertTickets(Connection conn, List<Ticket> tickets) throws SQLException {
+        String query = "INSERT INTO tickets (event_id, user_id, quantity, total_price, payment_status, request_id) VALUES " +
+                      rowPlaceholders(tickets.size(), 6);
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            int index = 1;
+            for (Ticket ticket : tickets) {
+                pstmt.setInt(index++, ticket.getEventId());
+                pstmt.setInt(index++, ticket.getUserId());
+                pstmt.setInt(index++, ticket.getQuantity());
+                pstmt.setDouble(index++, ticket.getTotalPrice());
+                pstmt.setString(index++, ticket.getPaymentStatus());
+                pstmt.setString(index++, ticket.getRequestId());
+            }
+            pstmt.executeUpdate();
+            
+            // MySQL returns the keys of a multi-row insert in row order
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                for (Ticket ticket : tickets) {
+                    if (!generatedKeys.next()) {
+                        throw new SQLException("Creating tickets failed, not all IDs obtained");
+                    }
+                    ticket.setTicketId(generatedKeys.getInt(1));
+                }
+            }
+        }
+    }
+    
+    private void insertTicketDetails(Connection conn, List<Ticket> tickets, List<List<TicketDetail>> details)
+            throws SQLException {
+        List<TicketDetail> rows = new ArrayList<>();
+        for (int i = 0; i < tickets.size(); i++) {
+            for (TicketDetail detail : details.get(i)) {
+                detail.setTicketId(tickets.get(i).getTicketId());
+                rows.add(detail);
+            }
+        }
+        
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_INSERT) {
+            List<TicketDetail> chunk = rows.subList(from, Math.min(rows.size(), from + MAX_ROWS_PER_INSERT));
+            String query = "INSERT INTO ticket_details (ticket_id, seat_number, attendee_name) VALUES " +
+                          rowPlaceholders(chunk.size(), 3);
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                int index = 1;
+                for (TicketDetail detail : chunk) {
+                    pstmt.setInt(index++, detail.getTicketId());
+                    pstmt.setString(index++, detail.getSeatNumber());
+                    pstmt.setString(index++, detail.getAttendeeName());
+                }
+                pstmt.executeUpdate();
+            }
+        }
     }
     
     /**
@@ -185,16 +558,8 @@ public class TicketDAO {
      * @return true if update successful, false otherwise
      */
     public boolean updateTicket(Ticket ticket) {
-        String query = "UPDATE tickets SET payment_status = ? WHERE ticket_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-            
-            pstmt.setString(1, ticket.getPaymentStatus());
-            pstmt.setInt(2, ticket.getTicketId());
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
+        try {
+            return updatePaymentStatus(ticket.getTicketId(), ticket.getPaymentStatus(), null);
         } catch (SQLException e) {
             System.err.println("Error updating ticket: " + e.getMessage());
             return false;
@@ -213,33 +578,67 @@ public class TicketDAO {
         if (ticket == null) {
             return false;
         }
-        
-        String query = "UPDATE tickets SET payment_status = 'CANCELLED' WHERE ticket_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-            
-            pstmt.setInt(1, ticketId);
-            
-            int affectedRows = pstmt.executeUpdate();
-            
-            if (affectedRows > 0) {
-                // Update event to add seats back
-                String updateEventQuery = "UPDATE events SET available_seats = available_seats + ? WHERE event_id = ?";
-                try (PreparedStatement eventPstmt = conn.prepareStatement(updateEventQuery)) {
-                    eventPstmt.setInt(1, ticket.getQuantity());
-                    eventPstmt.setInt(2, ticket.getEventId());
-                    eventPstmt.executeUpdate();
-                }
-                return true;
+        return cancelTicket(ticket);
+    }
+    
+    /**
+     * Cancel an already loaded ticket and return its seats to the event.
+     * Only a pending or paid ticket is cancelled; one that is already
+     * cancelled, expired or refunded is left alone, so its seats are never
+     * returned twice.
+     * 
+     * @param ticket The ticket to cancel
+     * @return true if cancellation successful, false otherwise
+     */
+    public boolean cancelTicket(Ticket ticket) {
+        try (Connection conn = DatabaseUtil.getConnection("TicketDAO.cancelTicket")) {
+            conn.setAutoCommit(false);
+            try {
+                boolean cancelled = releaseSeats(conn, ticket, SalesAggregateDAO.CANCELLED, CANCELLABLE_STATUSES);
+                conn.commit();
+                return cancelled;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
-            return false;
         } catch (SQLException e) {
             System.err.println("Error cancelling ticket: " + e.getMessage());
             return false;
         }
     }
     
+    /**
+     * Mark a paid ticket refunded and return its seats to the event, inside
+     * the caller's transaction. A ticket that is no longer paid (cancelled in
+     * the meantime) is left alone.
+     * 
+     * @param conn Connection holding the transaction
+     * @param ticket The ticket to refund
+     * @return true if the ticket was refunded and its seats returned
+     * @throws SQLException if a database error occurs
+     */
+    public boolean refundTicket(Connection conn, Ticket ticket) throws SQLException {
+        return releaseSeats(conn, ticket, SalesAggregateDAO.REFUNDED, REFUNDABLE_STATUSES);
+    }
+    
+    private boolean releaseSeats(Connection conn, Ticket ticket, String status,
+                                 Collection<String> allowedStatuses) throws SQLException {
+        if (!changeStatus(conn, ticket.getTicketId(), status, allowedStatuses)) {
+            return false;
+        }
+        
+        // Update event to add seats back
+        String updateEventQuery = "UPDATE events SET available_seats = available_seats + ? WHERE event_id = ?";
+        try (PreparedStatement eventPstmt = conn.prepareStatement(updateEventQuery)) {
+            eventPstmt.setInt(1, ticket.getQuantity());
+            eventPstmt.setInt(2, ticket.getEventId());
+            eventPstmt.executeUpdate();
+        }
+        return true;
+    }
+    
     /**
      * Helper method to map ResultSet to Ticket object
      * 
@@ -248,26 +647,216 @@ public class TicketDAO {
      * @throws SQLException if a database access error occurs
      */
     private Ticket mapResultSetToTicket(ResultSet rs) throws SQLException {
-        Ticket ticket = new Ticket();
-        ticket.setTicketId(rs.getInt("ticket_id"));
-        ticket.setEventId(rs.getInt("event_id"));
-        ticket.setUserId(rs.getInt("user_id"));
-        ticket.setQuantity(rs.getInt("quantity"));
-        ticket.setTotalPrice(rs.getDouble("total_price"));
-        ticket.setBookingDate(rs.getTimestamp("booking_date"));
-        ticket.setPaymentStatus(rs.getString("payment_status"));
-        return ticket;
+        return TICKET_MAPPER.map(rs);
     }
 
     public boolean updatePaymentStatus(int ticketId, String status) throws SQLException {
-        String sql = "UPDATE tickets SET payment_status = ? WHERE ticket_id = ?";
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
+        return updatePaymentStatus(ticketId, status, null);
+    }
+
+    /**
+     * Update the payment status only if the ticket is still in the expected status
+     * 
+     * @param ticketId The ticket ID
+     * @param status The new payment status
+     * @param expectedStatus The status the ticket must currently have, or null for any
+     * @return true if the ticket was updated, false if it was missing or in another status
+     * @throws SQLException if a database error occurs
+     */
+    public boolean updatePaymentStatus(int ticketId, String status, String expectedStatus) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection("TicketDAO.updatePaymentStatus")) {
+            conn.setAutoCommit(false);
+            try {
+                boolean updated = updatePaymentStatus(conn, ticketId, status, expectedStatus);
+                conn.commit();
+                return updated;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+    
+    /**
+     * Update the payment status inside the caller's transaction, only if the
+     * ticket is still in the expected status
+     * 
+     * @param conn Connection holding the transaction
+     * @param ticketId The ticket ID
+     * @param status The new payment status
+     * @param expectedStatus The status the ticket must currently have, or null for any
+     * @return true if the ticket was updated, false if it was missing or in another status
+     * @throws SQLException if a database error occurs
+     */
+    public boolean updatePaymentStatus(Connection conn, int ticketId, String status, String expectedStatus)
+            throws SQLException {
+        return changeStatus(conn, ticketId, status,
+                expectedStatus != null ? Collections.singletonList(expectedStatus) : null);
+    }
+    
+    /**
+     * Change a ticket's payment status inside the caller's transaction and
+     * add the change to the sales aggregates. With aggregates switched off
+     * this is a single conditional UPDATE.
+     * 
+     * @param conn Connection holding the transaction
+     * @param ticketId The ticket ID
+     * @param status The new payment status
+     * @param allowedStatuses Statuses the ticket may currently have, or null for any
+     * @return true if the ticket was updated
+     * @throws SQLException if a database error occurs
+     */
+    private boolean changeStatus(Connection conn, int ticketId, String status,
+                                 Collection<String> allowedStatuses) throws SQLException {
+        if (salesAggregates == null) {
+            String sql = "UPDATE tickets SET payment_status = ? WHERE ticket_id = ?" +
+                        (allowedStatuses != null ? " AND payment_status IN (" + placeholders(allowedStatuses.size()) + ")" : "");
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int index = 1;
+                stmt.setString(index++, status);
+                stmt.setInt(index++, ticketId);
+                if (allowedStatuses != null) {
+                    for (String allowed : allowedStatuses) {
+                        stmt.setString(index++, allowed);
+                    }
+                }
+                return stmt.executeUpdate() > 0;
+            }
+        }
+        
+        // Lock the row so the delta is computed from the status actually being replaced
+        Ticket current = null;
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM tickets WHERE ticket_id = ? FOR UPDATE")) {
+            stmt.setInt(1, ticketId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    current = mapResultSetToTicket(rs);
+                }
+            }
+        }
+        if (current == null
+                || (allowedStatuses != null && !allowedStatuses.contains(current.getPaymentStatus()))) {
+            return false;
+        }
+        
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE tickets SET payment_status = ? WHERE ticket_id = ?")) {
             stmt.setString(1, status);
             stmt.setInt(2, ticketId);
+            stmt.executeUpdate();
+        }
+        salesAggregates.recordTransition(conn, current, status);
+        return true;
+    }
+
+    /**
+     * Get all tickets that are still awaiting payment
+     * 
+     * @return List of pending tickets
+     * @throws SQLException if a database error occurs
+     */
+    public List<Ticket> getPendingTickets() throws SQLException {
+        List<Ticket> tickets = new ArrayList<>();
+        String query = "SELECT * FROM tickets WHERE payment_status = 'PENDING'";
+        
+        try (Connection conn = DatabaseUtil.getConnection("TicketDAO.getPendingTickets");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
             
-            return stmt.executeUpdate() > 0;
+            while (rs.next()) {
+                tickets.add(mapResultSetToTicket(rs));
+            }
+        }
+        return tickets;
+    }
+
+    /**
+     * Expire pending tickets whose seat hold ran out and return their seats to
+     * the events, all in one transaction. Tickets that were paid or cancelled
+     * in the meantime are left alone.
+     * 
+     * @param ticketIds IDs of the tickets whose holds expired
+     * @return The tickets that were actually expired
+     * @throws SQLException if a database error occurs (nothing is changed)
+     */
+    public List<Ticket> expirePendingTickets(List<Integer> ticketIds) throws SQLException {
+        List<Ticket> expired = new ArrayList<>();
+        if (ticketIds.isEmpty()) {
+            return expired;
+        }
+        
+        String selectQuery = "SELECT ticket_id, event_id, quantity FROM tickets WHERE payment_status = 'PENDING' " +
+                            "AND ticket_id IN (" + placeholders(ticketIds.size()) + ") FOR UPDATE";
+        String eventQuery = "UPDATE events SET available_seats = available_seats + ? WHERE event_id = ?";
+        
+        try (Connection conn = DatabaseUtil.getConnection("TicketDAO.expirePendingTickets")) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement pstmt = conn.prepareStatement(selectQuery)) {
+                    for (int i = 0; i < ticketIds.size(); i++) {
+                        pstmt.setInt(i + 1, ticketIds.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Ticket ticket = new Ticket();
+                            ticket.setTicketId(rs.getInt("ticket_id"));
+                            ticket.setEventId(rs.getInt("event_id"));
+                            ticket.setQuantity(rs.getInt("quantity"));
+                            ticket.setPaymentStatus("EXPIRED");
+                            expired.add(ticket);
+                        }
+                    }
+                }
+                
+                if (!expired.isEmpty()) {
+                    String updateQuery = "UPDATE tickets SET payment_status = 'EXPIRED' WHERE ticket_id IN (" +
+                                        placeholders(expired.size()) + ")";
+                    Map<Integer, Integer> seatsByEvent = new HashMap<>();
+                    try (PreparedStatement pstmt = conn.prepareStatement(updateQuery)) {
+                        for (int i = 0; i < expired.size(); i++) {
+                            Ticket ticket = expired.get(i);
+                            pstmt.setInt(i + 1, ticket.getTicketId());
+                            seatsByEvent.merge(ticket.getEventId(), ticket.getQuantity(), Integer::sum);
+                        }
+                        pstmt.executeUpdate();
+                    }
+                    
+                    try (PreparedStatement pstmt = conn.prepareStatement(eventQuery)) {
+                        for (Map.Entry<Integer, Integer> entry : seatsByEvent.entrySet()) {
+                            pstmt.setInt(1, entry.getValue());
+                            pstmt.setInt(2, entry.getKey());
+                            pstmt.addBatch();
+                        }
+                        pstmt.executeBatch();
+                    }
+                }
+                
+                conn.commit();
+                return expired;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static String rowPlaceholders(int rows, int columns) {
+        StringBuilder sb = new StringBuilder();
+        String row = "(" + placeholders(columns) + ")";
+        for (int i = 0; i < rows; i++) {
+            sb.append(i == 0 ? row : ", " + row);
+        }
+        return sb.toString();
+    }
+    
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
         }
+        return sb.toString();
     }
 } 
\ No newline at end of file
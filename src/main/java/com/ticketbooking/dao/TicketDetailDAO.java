@@ -3,12 +3,20 @@ package com.ticketbooking.dao;
 import com.ticketbooking.model.TicketDetail;
 import com.ticketbooking.model.Ticket;
 import com.ticketbooking.util.DatabaseUtil;
+import com.ticketbooking.util.RowMapper;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class TicketDetailDAO {
+    private static final RowMapper<TicketDetail> DETAIL_MAPPER = RowMapper.builder(TicketDetail::new)
+            .intColumn("detail_id", TicketDetail::setDetailId)
+            .intColumn("ticket_id", TicketDetail::setTicketId)
+            .stringColumn("seat_number", TicketDetail::setSeatNumber)
+            .stringColumn("attendee_name", TicketDetail::setAttendeeName)
+            .build();
     
     private TicketDAO ticketDAO = new TicketDAO();
     
@@ -21,7 +29,7 @@ public class TicketDetailDAO {
         List<TicketDetail> ticketDetails = new ArrayList<>();
         String query = "SELECT * FROM ticket_details";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("TicketDetailDAO.getAllTicketDetails");
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
@@ -36,6 +44,57 @@ public class TicketDetailDAO {
         return ticketDetails;
     }
     
+    /**
+     * Get one page of ticket details in detail ID order, continuing after a given
+     * detail ID (keyset pagination: each page is an index range scan, however
+     * deep into the table it is)
+     * 
+     * @param afterDetailId Last detail ID of the previous page (0 for the first page)
+     * @param pageSize Maximum number of ticket details to return
+     * @return The page; fewer than pageSize ticket details means it is the last
+     * @throws SQLException if a database error occurs
+     */
+    public List<TicketDetail> getTicketDetailsPage(int afterDetailId, int pageSize) throws SQLException {
+        List<TicketDetail> page = new ArrayList<>();
+        String query = "SELECT * FROM ticket_details WHERE detail_id > ? ORDER BY detail_id LIMIT ?";
+        
+        try (Connection conn = DatabaseUtil.getConnection("TicketDetailDAO.getTicketDetailsPage");
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            
+            pstmt.setInt(1, afterDetailId);
+            pstmt.setInt(2, pageSize);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    page.add(mapResultSetToTicketDetail(rs));
+                }
+            }
+        }
+        
+        return page;
+    }
+    
+    /**
+     * Pass every ticket detail to a consumer as it is read, without holding them
+     * all in memory. The consumer runs while the query is open, so it should
+     * not take long per row.
+     * 
+     * @param consumer Receives each ticket detail in detail ID order
+     * @throws SQLException if a database error occurs
+     */
+    public void forEachTicketDetail(Consumer<TicketDetail> consumer) throws SQLException {
+        String query = "SELECT * FROM ticket_details ORDER BY detail_id";
+        
+        try (Connection conn = DatabaseUtil.getConnection("TicketDetailDAO.forEachTicketDetail");
+             PreparedStatement pstmt = DatabaseUtil.prepareStreamingStatement(conn, query);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                consumer.accept(mapResultSetToTicketDetail(rs));
+            }
+        }
+    }
+    
     /**
      * Get ticket detail by ID
      * 
@@ -44,28 +103,29 @@ public class TicketDetailDAO {
      */
     public TicketDetail getTicketDetailById(int detailId) {
         String query = "SELECT * FROM ticket_details WHERE detail_id = ?";
+        TicketDetail detail = null;
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("TicketDetailDAO.getTicketDetailById");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setInt(1, detailId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    TicketDetail detail = mapResultSetToTicketDetail(rs);
-                    
-                    // Load associated ticket
-                    Ticket ticket = ticketDAO.getTicketById(detail.getTicketId());
-                    detail.setTicket(ticket);
-                    
-                    return detail;
+                    detail = mapResultSetToTicketDetail(rs);
                 }
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving ticket detail by ID: " + e.getMessage());
         }
         
-        return null;
+        if (detail != null) {
+            // Load associated ticket after releasing the connection
+            Ticket ticket = ticketDAO.getTicketById(detail.getTicketId());
+            detail.setTicket(ticket);
+        }
+        
+        return detail;
     }
     
     /**
@@ -78,7 +138,7 @@ public class TicketDetailDAO {
         List<TicketDetail> ticketDetails = new ArrayList<>();
         String query = "SELECT * FROM ticket_details WHERE ticket_id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("TicketDetailDAO.getTicketDetailsByTicketId");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setInt(1, ticketId);
@@ -96,6 +156,36 @@ public class TicketDetailDAO {
         return ticketDetails;
     }
     
+    /**
+     * Get the seat numbers held by an event's tickets. Only pending and paid
+     * tickets hold seats; cancelled, expired and refunded ones have given
+     * theirs back.
+     * 
+     * @param eventId The event ID
+     * @return List of booked seat numbers
+     * @throws SQLException if a database error occurs
+     */
+    public List<String> getBookedSeatNumbers(int eventId) throws SQLException {
+        List<String> seatNumbers = new ArrayList<>();
+        String query = "SELECT td.seat_number FROM ticket_details td " +
+                      "JOIN tickets t ON td.ticket_id = t.ticket_id " +
+                      "WHERE t.event_id = ? AND t.payment_status NOT IN ('CANCELLED', 'EXPIRED', 'REFUNDED')";
+        
+        try (Connection conn = DatabaseUtil.getConnection("TicketDetailDAO.getBookedSeatNumbers");
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            
+            pstmt.setInt(1, eventId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    seatNumbers.add(rs.getString("seat_number"));
+                }
+            }
+        }
+        
+        return seatNumbers;
+    }
+    
     /**
      * Create a new ticket detail in the database
      * 
@@ -105,7 +195,7 @@ public class TicketDetailDAO {
     public TicketDetail createTicketDetail(TicketDetail ticketDetail) {
         String query = "INSERT INTO ticket_details (ticket_id, seat_number, attendee_name) VALUES (?, ?, ?)";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("TicketDetailDAO.createTicketDetail");
              PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             
             pstmt.setInt(1, ticketDetail.getTicketId());
@@ -139,7 +229,7 @@ public class TicketDetailDAO {
         String query = "INSERT INTO ticket_details (ticket_id, seat_number, attendee_name) VALUES (?, ?, ?)";
         int count = 0;
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("TicketDetailDAO.createTicketDetailsBatch");
              PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             
             for (TicketDetail detail : ticketDetails) {
@@ -172,7 +262,7 @@ public class TicketDetailDAO {
     public boolean updateTicketDetail(TicketDetail ticketDetail) {
         String query = "UPDATE ticket_details SET seat_number = ?, attendee_name = ? WHERE detail_id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("TicketDetailDAO.updateTicketDetail");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setString(1, ticketDetail.getSeatNumber());
@@ -196,7 +286,7 @@ public class TicketDetailDAO {
     public boolean deleteTicketDetail(int detailId) {
         String query = "DELETE FROM ticket_details WHERE detail_id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("TicketDetailDAO.deleteTicketDetail");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setInt(1, detailId);
@@ -218,7 +308,7 @@ public class TicketDetailDAO {
     public boolean deleteTicketDetailsByTicketId(int ticketId) {
         String query = "DELETE FROM ticket_details WHERE ticket_id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("TicketDetailDAO.deleteTicketDetailsByTicketId");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setInt(1, ticketId);
@@ -239,11 +329,6 @@ public class TicketDetailDAO {
      * @throws SQLException if a database access error occurs
      */
     private TicketDetail mapResultSetToTicketDetail(ResultSet rs) throws SQLException {
-        TicketDetail detail = new TicketDetail();
-        detail.setDetailId(rs.getInt("detail_id"));
-        detail.setTicketId(rs.getInt("ticket_id"));
-        detail.setSeatNumber(rs.getString("seat_number"));
-        detail.setAttendeeName(rs.getString("attendee_name"));
-        return detail;
+        return DETAIL_MAPPER.map(rs);
     }
 } 
\ No newline at end of file
@@ -2,12 +2,27 @@ package com.ticketbooking.dao;
 
 import com.ticketbooking.model.TicketType;
 import com.ticketbooking.util.DatabaseUtil;
+import com.ticketbooking.util.RowMapper;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class TicketTypeDAO {
+    private static final RowMapper<TicketType> TICKET_TYPE_MAPPER = RowMapper.builder(TicketType::new)
+            .intColumn("ticket_type_id", TicketType::setTicketTypeId)
+            .intColumn("event_id", TicketType::setEventId)
+            .stringColumn("category", TicketType::setCategory)
+            .doubleColumn("price", TicketType::setPrice)
+            .intColumn("available_quantity", TicketType::setAvailableQuantity)
+            .booleanColumn("is_active", TicketType::setActive)
+            .build();
+    
+    private static final int MAX_IDS_PER_QUERY = 500;
+    
     public TicketTypeDAO() {
         // No need to get a connection in constructor
     }
@@ -15,7 +30,7 @@ public class TicketTypeDAO {
     public boolean addTicketType(TicketType ticketType) throws SQLException {
         String sql = "INSERT INTO ticket_types (event_id, category, price, available_quantity, is_active) VALUES (?, ?, ?, ?, ?)";
         
-        try (Connection connection = DatabaseUtil.getConnection();
+        try (Connection connection = DatabaseUtil.getConnection("TicketTypeDAO.addTicketType");
              PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setInt(1, ticketType.getEventId());
@@ -40,7 +55,7 @@ public class TicketTypeDAO {
     public boolean updateTicketType(TicketType ticketType) throws SQLException {
         String sql = "UPDATE ticket_types SET category = ?, price = ?, available_quantity = ?, is_active = ? WHERE ticket_type_id = ?";
         
-        try (Connection connection = DatabaseUtil.getConnection();
+        try (Connection connection = DatabaseUtil.getConnection("TicketTypeDAO.updateTicketType");
              PreparedStatement stmt = connection.prepareStatement(sql)) {
             
             stmt.setString(1, ticketType.getCategory());
@@ -57,21 +72,79 @@ public class TicketTypeDAO {
         List<TicketType> ticketTypes = new ArrayList<>();
         String sql = "SELECT * FROM ticket_types WHERE event_id = ?";
         
-        try (Connection connection = DatabaseUtil.getConnection();
+        try (Connection connection = DatabaseUtil.getConnection("TicketTypeDAO.getTicketTypesByEventId");
              PreparedStatement stmt = connection.prepareStatement(sql)) {
             
             stmt.setInt(1, eventId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    TicketType ticketType = new TicketType(
-                        rs.getInt("ticket_type_id"),
-                        rs.getInt("event_id"),
-                        rs.getString("category"),
-                        rs.getDouble("price"),
-                        rs.getInt("available_quantity"),
-                        rs.getBoolean("is_active")
-                    );
-                    ticketTypes.add(ticketType);
+                    ticketTypes.add(mapResultSetToTicketType(rs));
+                }
+            }
+        }
+        return ticketTypes;
+    }
+
+    /**
+     * Get every ticket type together with the name of its event, in one query
+     * 
+     * @return Ticket types ordered by event, with the event name filled in
+     * @throws SQLException if a database error occurs
+     */
+    public List<TicketType> getAllTicketTypesWithEventNames() throws SQLException {
+        List<TicketType> ticketTypes = new ArrayList<>();
+        String sql = "SELECT tt.*, e.event_name FROM ticket_types tt " +
+                     "JOIN events e ON e.event_id = tt.event_id " +
+                     "ORDER BY tt.event_id, tt.ticket_type_id";
+        
+        try (Connection connection = DatabaseUtil.getConnection("TicketTypeDAO.getAllTicketTypesWithEventNames");
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            while (rs.next()) {
+                TicketType ticketType = mapResultSetToTicketType(rs);
+                ticketType.setEventName(rs.getString("event_name"));
+                ticketTypes.add(ticketType);
+            }
+        }
+        return ticketTypes;
+    }
+
+    /**
+     * Get the ticket types of several events, querying up to
+     * MAX_IDS_PER_QUERY events at a time
+     * 
+     * @param eventIds Event IDs
+     * @return Event ID to its ticket types, in the order the IDs were given
+     *         (events without ticket types map to an empty list)
+     * @throws SQLException if a database error occurs
+     */
+    public Map<Integer, List<TicketType>> getTicketTypesByEventIds(Collection<Integer> eventIds) throws SQLException {
+        Map<Integer, List<TicketType>> ticketTypes = new LinkedHashMap<>();
+        for (Integer eventId : eventIds) {
+            ticketTypes.put(eventId, new ArrayList<TicketType>());
+        }
+        if (ticketTypes.isEmpty()) {
+            return ticketTypes;
+        }
+        
+        List<Integer> ids = new ArrayList<>(ticketTypes.keySet());
+        try (Connection connection = DatabaseUtil.getConnection("TicketTypeDAO.getTicketTypesByEventIds")) {
+            for (int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+                List<Integer> chunk = ids.subList(start, Math.min(start + MAX_IDS_PER_QUERY, ids.size()));
+                String sql = "SELECT * FROM ticket_types WHERE event_id IN (" + placeholders(chunk.size()) + ") " +
+                             "ORDER BY event_id, ticket_type_id";
+                
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            TicketType ticketType = mapResultSetToTicketType(rs);
+                            ticketTypes.get(ticketType.getEventId()).add(ticketType);
+                        }
+                    }
                 }
             }
         }
@@ -81,7 +154,7 @@ public class TicketTypeDAO {
     public boolean deleteTicketType(int ticketTypeId) throws SQLException {
         String sql = "DELETE FROM ticket_types WHERE ticket_type_id = ?";
         
-        try (Connection connection = DatabaseUtil.getConnection();
+        try (Connection connection = DatabaseUtil.getConnection("TicketTypeDAO.deleteTicketType");
              PreparedStatement stmt = connection.prepareStatement(sql)) {
             
             stmt.setInt(1, ticketTypeId);
@@ -92,7 +165,7 @@ public class TicketTypeDAO {
     public boolean updateAvailableQuantity(int ticketTypeId, int quantity) throws SQLException {
         String sql = "UPDATE ticket_types SET available_quantity = ? WHERE ticket_type_id = ?";
         
-        try (Connection connection = DatabaseUtil.getConnection();
+        try (Connection connection = DatabaseUtil.getConnection("TicketTypeDAO.updateAvailableQuantity");
              PreparedStatement stmt = connection.prepareStatement(sql)) {
             
             stmt.setInt(1, quantity);
@@ -100,4 +173,16 @@ public class TicketTypeDAO {
             return stmt.executeUpdate() > 0;
         }
     }
-} 
\ No newline at end of file
+
+    private TicketType mapResultSetToTicketType(ResultSet rs) throws SQLException {
+        return TICKET_TYPE_MAPPER.map(rs);
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+}
@@ -2,12 +2,23 @@ package com.ticketbooking.dao;
 
 import com.ticketbooking.model.User;
 import com.ticketbooking.util.DatabaseUtil;
+import com.ticketbooking.util.RowMapper;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
 public class UserDAO {
+    private static final RowMapper<User> USER_MAPPER = RowMapper.builder(User::new)
+            .intColumn("user_id", User::setUserId)
+            .stringColumn("username", User::setUsername)
+            .stringColumn("password", User::setPassword)
+            .stringColumn("full_name", User::setFullName)
+            .stringColumn("email", User::setEmail)
+            .stringColumn("phone", User::setPhone)
+            .stringColumn("role", User::setRole)
+            .timestampColumn("created_at", User::setCreatedAt)
+            .build();
     
     /**
      * Get all users from the database
@@ -18,7 +29,7 @@ public class UserDAO {
         List<User> users = new ArrayList<>();
         String query = "SELECT * FROM users";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("UserDAO.getAllUsers");
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
@@ -42,7 +53,7 @@ public class UserDAO {
     public User getUserById(int userId) {
         String query = "SELECT * FROM users WHERE user_id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("UserDAO.getUserById");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setInt(1, userId);
@@ -68,7 +79,7 @@ public class UserDAO {
     public User getUserByUsername(String username) {
         String query = "SELECT * FROM users WHERE username = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("UserDAO.getUserByUsername");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setString(1, username);
@@ -94,7 +105,7 @@ public class UserDAO {
     public User createUser(User user) {
         String query = "INSERT INTO users (username, password, full_name, email, phone, role) VALUES (?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("UserDAO.createUser");
              PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             
             pstmt.setString(1, user.getUsername());
@@ -130,7 +141,7 @@ public class UserDAO {
     public boolean updateUser(User user) {
         String query = "UPDATE users SET username = ?, password = ?, full_name = ?, email = ?, phone = ?, role = ? WHERE user_id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("UserDAO.updateUser");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setString(1, user.getUsername());
@@ -158,7 +169,7 @@ public class UserDAO {
     public boolean deleteUser(int userId) {
         String query = "DELETE FROM users WHERE user_id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("UserDAO.deleteUser");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setInt(1, userId);
@@ -181,7 +192,7 @@ public class UserDAO {
     public User authenticateUser(String username, String password) {
         String query = "SELECT * FROM users WHERE username = ? AND password = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("UserDAO.authenticateUser");
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setString(1, username);
@@ -207,21 +218,12 @@ public class UserDAO {
      * @throws SQLException if a database access error occurs
      */
     private User mapResultSetToUser(ResultSet rs) throws SQLException {
-        User user = new User();
-        user.setUserId(rs.getInt("user_id"));
-        user.setUsername(rs.getString("username"));
-        user.setPassword(rs.getString("password"));
-        user.setFullName(rs.getString("full_name"));
-        user.setEmail(rs.getString("email"));
-        user.setPhone(rs.getString("phone"));
-        user.setRole(rs.getString("role"));
-        user.setCreatedAt(rs.getTimestamp("created_at"));
-        return user;
+        return USER_MAPPER.map(rs);
     }
 
     public User getUserByCredentials(String username, String password) throws SQLException {
         String sql = "SELECT * FROM users WHERE username = ? AND password = ?";
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("UserDAO.getUserByCredentials");
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, username);
@@ -229,13 +231,9 @@ public class UserDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    User user = new User();
-                    user.setUserId(rs.getInt("user_id"));
-                    user.setUsername(rs.getString("username"));
-                    user.setFullName(rs.getString("full_name"));
-                    user.setEmail(rs.getString("email"));
-                    user.setPhone(rs.getString("phone"));
-                    user.setRole(rs.getString("role"));
+                    User user = mapResultSetToUser(rs);
+                    // The caller already has the password; do not keep it on the returned user
+                    user.setPassword(null);
                     return user;
                 }
             }
@@ -56,6 +56,22 @@ public class Event {
         this.createdBy = createdBy;
     }
 
+    // Copy constructor; the date and time values are copied too, as they are mutable
+    public Event(Event other) {
+        this.eventId = other.eventId;
+        this.eventName = other.eventName;
+        this.description = other.description;
+        this.venue = other.venue;
+        this.eventDate = other.eventDate == null ? null : new Date(other.eventDate.getTime());
+        this.eventTime = other.eventTime == null ? null : new Time(other.eventTime.getTime());
+        this.totalSeats = other.totalSeats;
+        this.availableSeats = other.availableSeats;
+        this.ticketPrice = other.ticketPrice;
+        this.eventStatus = other.eventStatus;
+        this.createdBy = other.createdBy;
+        this.createdAt = other.createdAt == null ? null : new Timestamp(other.createdAt.getTime());
+    }
+
     // Getters and Setters
     public int getEventId() {
         return eventId;
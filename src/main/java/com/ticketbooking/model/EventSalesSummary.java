@@ -0,0 +1,81 @@
+package com.ticketbooking.model;
+
+/**
+ * Report row: tickets offered, tickets sold and revenue for one event
+ */
+public class EventSalesSummary {
+    private int eventId;
+    private String eventName;
+    private int totalTickets;
+    private int bookedTickets;
+    private double revenue;
+
+    // Default constructor
+    public EventSalesSummary() {
+    }
+
+    // Constructor with all fields
+    public EventSalesSummary(int eventId, String eventName, int totalTickets, int bookedTickets, double revenue) {
+        this.eventId = eventId;
+        this.eventName = eventName;
+        this.totalTickets = totalTickets;
+        this.bookedTickets = bookedTickets;
+        this.revenue = revenue;
+    }
+
+    // Getters and Setters
+    public int getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(int eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public void setEventName(String eventName) {
+        this.eventName = eventName;
+    }
+
+    public int getTotalTickets() {
+        return totalTickets;
+    }
+
+    public void setTotalTickets(int totalTickets) {
+        this.totalTickets = totalTickets;
+    }
+
+    public int getBookedTickets() {
+        return bookedTickets;
+    }
+
+    public void setBookedTickets(int bookedTickets) {
+        this.bookedTickets = bookedTickets;
+    }
+
+    public int getAvailableTickets() {
+        return totalTickets - bookedTickets;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(double revenue) {
+        this.revenue = revenue;
+    }
+
+    @Override
+    public String toString() {
+        return "EventSalesSummary{" +
+                "eventId=" + eventId +
+                ", eventName='" + eventName + '\'' +
+                ", totalTickets=" + totalTickets +
+                ", bookedTickets=" + bookedTickets +
+                ", revenue=" + revenue +
+                '}';
+    }
+}
@@ -1,6 +1,7 @@
 package com.ticketbooking.model;
 
 import java.sql.Timestamp;
+import java.util.function.Supplier;
 
 public class Payment {
     private int paymentId;
@@ -10,9 +11,11 @@ public class Payment {
     private String paymentMethod;
     private String transactionId;
     private String status;
+    private String requestId;
     
-    // Associated ticket for relationship navigation
+    // Associated ticket for relationship navigation, loaded on first access when a loader is set
     private Ticket ticket;
+    private Supplier<Ticket> ticketLoader;
 
     // Default constructor
     public Payment() {
@@ -96,12 +99,39 @@ public class Payment {
         this.status = status;
     }
 
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
     public Ticket getTicket() {
+        if (ticket == null && ticketLoader != null) {
+            Supplier<Ticket> loader = ticketLoader;
+            ticketLoader = null;
+            ticket = loader.get();
+        }
         return ticket;
     }
 
     public void setTicket(Ticket ticket) {
         this.ticket = ticket;
+        this.ticketLoader = null;
+    }
+
+    /**
+     * Load the associated ticket only when {@link #getTicket()} is first called
+     *
+     * @param ticketLoader Supplies the ticket (may set tickets on other payments too)
+     */
+    public void setTicketLoader(Supplier<Ticket> ticketLoader) {
+        this.ticketLoader = ticketLoader;
+    }
+
+    public boolean isTicketLoaded() {
+        return ticketLoader == null;
     }
 
     @Override
@@ -10,6 +10,7 @@ public class Ticket {
     private double totalPrice;
     private Timestamp bookingDate;
     private String paymentStatus;
+    private String requestId;
     
     // Associated objects for relationship navigation
     private Event event;
@@ -97,6 +98,14 @@ public class Ticket {
         this.paymentStatus = paymentStatus;
     }
 
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
     public Event getEvent() {
         return event;
     }
@@ -0,0 +1,111 @@
+package com.ticketbooking.model;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+
+/**
+ * Read-only row for a user's ticket list: a ticket joined with the event it is for
+ */
+public class TicketSummary {
+    private int ticketId;
+    private int eventId;
+    private String eventName;
+    private Date eventDate;
+    private int quantity;
+    private double totalPrice;
+    private Timestamp bookingDate;
+    private String paymentStatus;
+
+    // Default constructor
+    public TicketSummary() {
+    }
+
+    // Constructor with all fields
+    public TicketSummary(int ticketId, int eventId, String eventName, Date eventDate, int quantity,
+                         double totalPrice, Timestamp bookingDate, String paymentStatus) {
+        this.ticketId = ticketId;
+        this.eventId = eventId;
+        this.eventName = eventName;
+        this.eventDate = eventDate;
+        this.quantity = quantity;
+        this.totalPrice = totalPrice;
+        this.bookingDate = bookingDate;
+        this.paymentStatus = paymentStatus;
+    }
+
+    // Getters and Setters
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    public void setTicketId(int ticketId) {
+        this.ticketId = ticketId;
+    }
+
+    public int getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(int eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public void setEventName(String eventName) {
+        this.eventName = eventName;
+    }
+
+    public Date getEventDate() {
+        return eventDate;
+    }
+
+    public void setEventDate(Date eventDate) {
+        this.eventDate = eventDate;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public double getTotalPrice() {
+        return totalPrice;
+    }
+
+    public void setTotalPrice(double totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+
+    public Timestamp getBookingDate() {
+        return bookingDate;
+    }
+
+    public void setBookingDate(Timestamp bookingDate) {
+        this.bookingDate = bookingDate;
+    }
+
+    public String getPaymentStatus() {
+        return paymentStatus;
+    }
+
+    public void setPaymentStatus(String paymentStatus) {
+        this.paymentStatus = paymentStatus;
+    }
+
+    @Override
+    public String toString() {
+        return "TicketSummary{" +
+                "ticketId=" + ticketId +
+                ", eventName='" + eventName + '\'' +
+                ", quantity=" + quantity +
+                ", totalPrice=" + totalPrice +
+                ", paymentStatus='" + paymentStatus + '\'' +
+                '}';
+    }
+}
@@ -7,6 +7,7 @@ public class TicketType {
     private double price;
     private int availableQuantity;
     private boolean isActive;
+    private String eventName; // Only filled in when loaded together with the event
 
     public TicketType() {}
 
@@ -38,6 +39,9 @@ public class TicketType {
     public boolean isActive() { return isActive; }
     public void setActive(boolean active) { isActive = active; }
 
+    public String getEventName() { return eventName; }
+    public void setEventName(String eventName) { this.eventName = eventName; }
+
     @Override
     public String toString() {
         return "TicketType{" +
@@ -0,0 +1,100 @@
+package com.ticketbooking.model;
+
+/**
+ * Report row: tickets sold and revenue for one ticket type of an event.
+ * An event without ticket types is reported as a single row with a
+ * ticket type ID of 0.
+ */
+public class TicketTypeSales {
+    private int eventId;
+    private String eventName;
+    private int ticketTypeId;
+    private String category;
+    private double price;
+    private int sold;
+    private double revenue;
+
+    // Default constructor
+    public TicketTypeSales() {
+    }
+
+    // Constructor with all fields
+    public TicketTypeSales(int eventId, String eventName, int ticketTypeId, String category, double price,
+                           int sold, double revenue) {
+        this.eventId = eventId;
+        this.eventName = eventName;
+        this.ticketTypeId = ticketTypeId;
+        this.category = category;
+        this.price = price;
+        this.sold = sold;
+        this.revenue = revenue;
+    }
+
+    // Getters and Setters
+    public int getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(int eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public void setEventName(String eventName) {
+        this.eventName = eventName;
+    }
+
+    public int getTicketTypeId() {
+        return ticketTypeId;
+    }
+
+    public void setTicketTypeId(int ticketTypeId) {
+        this.ticketTypeId = ticketTypeId;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void setPrice(double price) {
+        this.price = price;
+    }
+
+    public int getSold() {
+        return sold;
+    }
+
+    public void setSold(int sold) {
+        this.sold = sold;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(double revenue) {
+        this.revenue = revenue;
+    }
+
+    @Override
+    public String toString() {
+        return "TicketTypeSales{" +
+                "eventId=" + eventId +
+                ", ticketTypeId=" + ticketTypeId +
+                ", category='" + category + '\'' +
+                ", sold=" + sold +
+                ", revenue=" + revenue +
+                '}';
+    }
+}
@@ -0,0 +1,299 @@
+package com.ticketbooking.service;
+
+import com.ticketbooking.util.AppConfig;
+import com.ticketbooking.util.DatabaseUtil;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Virtual waiting room in front of the booking path.
+ *
+ * Bookers queue in FIFO order and at most {@code limit} of them are inside
+ * the booking path at once. Callers can read their queue position and an
+ * estimated wait while they are queued. Requests for events the inventory
+ * reports as sold out are turned away on arrival and dropped from the queue,
+ * and a full queue rejects new arrivals.
+ *
+ * The limit adapts to observed booking latency: while latency stays near the
+ * best seen recently it grows, and when latency climbs (the database is
+ * queueing internally) it shrinks, so the database is kept near its peak
+ * throughput instead of thrashing.
+ */
+public class AdmissionQueue {
+    private static volatile AdmissionQueue instance;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueLength;
+    private final long maxWaitMs;
+    private final SeatInventory inventory;
+    private final ArrayDeque<Entry> waiting = new ArrayDeque<>();
+
+    private int inFlight;
+    private double limit;
+    private long nextSequence;
+    private long headSequence;
+
+    // Latency tracking for the adaptive limit (nanoseconds)
+    private double shortLatency;
+    private double noLoadLatency;
+    private long samples;
+
+    AdmissionQueue(int initialLimit, int minLimit, int maxLimit, int maxQueueLength, long maxWaitMs) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+        this.maxQueueLength = maxQueueLength;
+        this.maxWaitMs = maxWaitMs;
+        this.inventory = SeatInventory.isEnabled() ? SeatInventory.getInstance() : null;
+    }
+
+    /**
+     * Check whether the waiting room is switched on in app.properties
+     *
+     * @return true if bookings should queue for admission
+     */
+    public static boolean isEnabled() {
+        return AppConfig.getBoolean("booking.admission.enabled", true);
+    }
+
+    /**
+     * Get the shared admission queue
+     *
+     * @return The admission queue
+     */
+    public static AdmissionQueue getInstance() {
+        AdmissionQueue current = instance;
+        if (current == null) {
+            synchronized (AdmissionQueue.class) {
+                current = instance;
+                if (current == null) {
+                    // Never let more bookers in than there are connections to serve them
+                    int poolSize = DatabaseUtil.getPool().getMaxSize();
+                    int maxLimit = AppConfig.getInt("booking.admission.maxConcurrency", 0);
+                    current = new AdmissionQueue(
+                            AppConfig.getInt("booking.admission.initialConcurrency", Math.max(1, poolSize / 2)),
+                            AppConfig.getInt("booking.admission.minConcurrency", 1),
+                            maxLimit > 0 ? maxLimit : poolSize,
+                            AppConfig.getInt("booking.admission.maxQueueLength", 10000),
+                            AppConfig.getLong("booking.admission.maxWaitMs", 30000));
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Join the queue for an event
+     *
+     * @param eventId Event ID
+     * @return Queue entry, or null if the event is sold out or the queue is full
+     */
+    public synchronized Entry enter(int eventId) {
+        if (isSoldOut(eventId) || waiting.size() >= maxQueueLength) {
+            return null;
+        }
+        Entry entry = new Entry(eventId, nextSequence++);
+        waiting.addLast(entry);
+        admitWaiting();
+        return entry;
+    }
+
+    private boolean isSoldOut(int eventId) {
+        return inventory != null && inventory.getAvailableSeats(eventId) == 0;
+    }
+
+    private void admitWaiting() {
+        while (inFlight < (int) limit && !waiting.isEmpty()) {
+            Entry entry = waiting.pollFirst();
+            if (isSoldOut(entry.eventId)) {
+                entry.finish(Entry.REJECTED);
+                continue;
+            }
+            inFlight++;
+            entry.admittedAt = System.nanoTime();
+            entry.finish(Entry.ADMITTED);
+        }
+        headSequence = waiting.isEmpty() ? nextSequence : waiting.peekFirst().sequence;
+    }
+
+    /**
+     * Drop queued entries for an event that has just sold out
+     *
+     * @param eventId Event ID
+     */
+    public synchronized void shed(int eventId) {
+        Iterator<Entry> it = waiting.iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.eventId == eventId) {
+                it.remove();
+                entry.finish(Entry.REJECTED);
+            }
+        }
+        headSequence = waiting.isEmpty() ? nextSequence : waiting.peekFirst().sequence;
+    }
+
+    private synchronized void cancel(Entry entry) {
+        if (waiting.remove(entry)) {
+            headSequence = waiting.isEmpty() ? nextSequence : waiting.peekFirst().sequence;
+        }
+    }
+
+    private synchronized void leave(Entry entry) {
+        inFlight--;
+        recordLatency(System.nanoTime() - entry.admittedAt);
+        admitWaiting();
+    }
+
+    private void recordLatency(long latencyNanos) {
+        samples++;
+        shortLatency = shortLatency == 0 ? latencyNanos : shortLatency * 0.9 + latencyNanos * 0.1;
+        if (noLoadLatency == 0 || latencyNanos < noLoadLatency) {
+            noLoadLatency = latencyNanos;
+        }
+        // Periodically forget the best latency so the baseline follows real changes
+        if (samples % 1000 == 0) {
+            noLoadLatency = shortLatency;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, noLoadLatency / shortLatency));
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * 0.8 + target * 0.2));
+    }
+
+    /**
+     * Get the current number of bookers allowed in at once
+     *
+     * @return Concurrency limit
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueueLength() {
+        return waiting.size();
+    }
+
+    private synchronized long positionOf(Entry entry) {
+        return Math.max(0, entry.sequence - headSequence) + 1;
+    }
+
+    private synchronized long estimatedWaitMillis(long position) {
+        if (shortLatency == 0) {
+            return 0;
+        }
+        // Each admitted booker frees its slot after about shortLatency
+        double perSlotMillis = shortLatency / 1_000_000.0 / Math.max(1, (int) limit);
+        return (long) (position * perSlotMillis);
+    }
+
+    /**
+     * A caller's place in the queue
+     */
+    public class Entry {
+        static final int WAITING = 0;
+        static final int ADMITTED = 1;
+        static final int REJECTED = 2;
+
+        private final int eventId;
+        private final long sequence;
+        private final CountDownLatch decided = new CountDownLatch(1);
+        private volatile int state = WAITING;
+        private long admittedAt;
+        private boolean left;
+
+        private Entry(int eventId, long sequence) {
+            this.eventId = eventId;
+            this.sequence = sequence;
+        }
+
+        private void finish(int newState) {
+            state = newState;
+            decided.countDown();
+        }
+
+        public int getEventId() {
+            return eventId;
+        }
+
+        /**
+         * Get the number of callers ahead in the queue plus one (0 once admitted or rejected)
+         *
+         * @return Queue position
+         */
+        public long getPosition() {
+            return state == WAITING ? positionOf(this) : 0;
+        }
+
+        /**
+         * Estimate how long until this caller is admitted
+         *
+         * @return Estimated wait in milliseconds
+         */
+        public long getEstimatedWaitMillis() {
+            return state == WAITING ? estimatedWaitMillis(positionOf(this)) : 0;
+        }
+
+        public boolean isAdmitted() {
+            return state == ADMITTED;
+        }
+
+        /**
+         * Wait to be let into the booking path, up to the configured maximum wait
+         *
+         * @return true if admitted; false if the event sold out or the wait timed out
+         * @throws InterruptedException if the waiting thread is interrupted
+         */
+        public boolean awaitAdmission() throws InterruptedException {
+            return awaitAdmission(maxWaitMs);
+        }
+
+        /**
+         * Wait to be let into the booking path
+         *
+         * @param timeoutMs Maximum time to wait
+         * @return true if admitted; false if the event sold out or the wait timed out
+         * @throws InterruptedException if the waiting thread is interrupted
+         */
+        public boolean awaitAdmission(long timeoutMs) throws InterruptedException {
+            boolean done;
+            try {
+                done = decided.await(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                cancel(this);
+                throw e;
+            }
+            if (!done) {
+                cancel(this);
+            }
+            return state == ADMITTED;
+        }
+
+        /**
+         * Leave the booking path (or the queue) and let the next caller in.
+         * Safe to call more than once and in every outcome.
+         */
+        public void leave() {
+            synchronized (AdmissionQueue.this) {
+                if (left) {
+                    return;
+                }
+                left = true;
+                if (state == ADMITTED) {
+                    AdmissionQueue.this.leave(this);
+                } else {
+                    cancel(this);
+                }
+            }
+        }
+    }
+}
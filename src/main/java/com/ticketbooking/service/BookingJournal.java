@@ -0,0 +1,529 @@
+package com.ticketbooking.service;
+
+import com.ticketbooking.dao.TicketDAO;
+import com.ticketbooking.model.Ticket;
+import com.ticketbooking.util.AppConfig;
+import com.ticketbooking.util.MappedJournal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Event-sourced journal of bookings, cancellations, expiries and payment
+ * status changes, written to a {@link MappedJournal}.
+ *
+ * Alongside the log, the journal folds every record into the seat inventory
+ * it implies: seats left per event and seat reductions not yet written to the
+ * events table. Whenever a new segment starts, and otherwise every
+ * snapshot interval, that state is written as a snapshot and the segments it
+ * covers are deleted, so the log never holds much more than one segment of
+ * history and replay stays short on a quiet system. On startup the state is rebuilt
+ * from the snapshot plus the records after it, which lets the
+ * {@link SeatInventory} start without reading the events table and still
+ * write out reductions that had not reached the database when the process
+ * stopped. The journal is only kept while the inventory is enabled.
+ *
+ * A booking's seats are journaled before its ticket is written, under the
+ * ticket's request ID, and the booking is then closed by a committed record
+ * or given back with a compensating record if the write fails. A crash in
+ * between leaves the booking in doubt; on startup each one is looked up by
+ * its request ID, and the seats of those whose ticket never committed are
+ * given back.
+ */
+public class BookingJournal {
+    static final byte TRACKED = 1;
+    static final byte REMOVED = 2;
+    static final byte BOOKED = 3;
+    static final byte RELEASED = 4;
+    static final byte STATUS = 5;
+    static final byte PAYMENT = 6;
+    static final byte FLUSHED = 7;
+    static final byte UNBOOKED = 8;
+    static final byte RESIZED = 9;
+    static final byte COMMITTED = 10;
+
+    private static final String SNAPSHOT_FILE = "inventory.snapshot";
+
+    private static volatile BookingJournal instance;
+
+    private final MappedJournal journal;
+    private final File directory;
+    private final Map<Integer, EventState> state = new HashMap<>();
+    private final Map<String, Booking> inDoubt = new LinkedHashMap<>();
+    private final ScheduledExecutorService background;
+    private int segment;
+    private long snapshotPosition;
+    private long writtenPosition;
+
+    BookingJournal(File directory, int segmentSize, long forceIntervalMs,
+                   long snapshotIntervalMs) throws IOException {
+        this.directory = directory;
+        this.journal = new MappedJournal(directory, segmentSize);
+        this.background = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "booking-journal");
+            t.setDaemon(true);
+            return t;
+        });
+        recover();
+        this.segment = MappedJournal.segmentOf(journal.position());
+        settleInDoubt(new TicketDAO());
+
+        if (forceIntervalMs > 0) {
+            background.scheduleWithFixedDelay(journal::force, forceIntervalMs, forceIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        if (snapshotIntervalMs > 0) {
+            background.scheduleWithFixedDelay(this::snapshot, snapshotIntervalMs, snapshotIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "booking-journal-shutdown"));
+    }
+
+    /**
+     * Check whether the booking journal is switched on in app.properties
+     *
+     * @return true if bookings should be journaled
+     */
+    public static boolean isEnabled() {
+        // The journal mirrors the in-memory inventory and is only replayed into it
+        return AppConfig.getBoolean("booking.journal.enabled", true) && SeatInventory.isEnabled();
+    }
+
+    /**
+     * Get the shared journal, recovering its state on first use
+     *
+     * @return The booking journal, or null if it cannot be opened
+     */
+    public static BookingJournal getInstance() {
+        BookingJournal current = instance;
+        if (current == null) {
+            synchronized (BookingJournal.class) {
+                current = instance;
+                if (current == null) {
+                    try {
+                        current = new BookingJournal(
+                                new File(AppConfig.getString("booking.journal.directory", "data/journal")),
+                                AppConfig.getInt("booking.journal.segmentSizeMb", 64) * 1024 * 1024,
+                                AppConfig.getLong("booking.journal.forceIntervalMs", 1000),
+                                AppConfig.getLong("booking.journal.snapshotIntervalMs", 60000));
+                        instance = current;
+                    } catch (IOException e) {
+                        System.err.println("Error opening booking journal: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Get the journal when it is enabled and could be opened
+     *
+     * @return The booking journal, or null
+     */
+    static BookingJournal getIfEnabled() {
+        return isEnabled() ? getInstance() : null;
+    }
+
+    /**
+     * Record that the inventory started tracking an event, or replaced its count
+     *
+     * @param eventId Event ID
+     * @param availableSeats Seats available (as written in the events table)
+     */
+    public void recordTracked(int eventId, int availableSeats) {
+        append(TRACKED, 0, eventId, availableSeats, 0, null);
+    }
+
+    /**
+     * Record that the inventory stopped tracking an event
+     *
+     * @param eventId Event ID
+     */
+    public void recordRemoved(int eventId) {
+        append(REMOVED, 0, eventId, 0, 0, null);
+    }
+
+    /**
+     * Record seats reserved for a booking that is about to be written; the
+     * seat reduction is still to be written to the events table
+     *
+     * @param eventId Event ID
+     * @param quantity Seats reserved
+     * @param userId User booking the seats
+     * @param requestId Request ID the ticket will be written with
+     */
+    public void recordBooked(int eventId, int quantity, int userId, String requestId) {
+        append(BOOKED, 0, eventId, quantity, userId, requestId);
+    }
+
+    /**
+     * Record that a journaled booking's ticket was written, with its
+     * initial PENDING status
+     *
+     * @param ticket Ticket that was written
+     */
+    public void recordCommitted(Ticket ticket) {
+        append(COMMITTED, ticket.getTicketId(), ticket.getEventId(), ticket.getQuantity(), 0, ticket.getRequestId());
+    }
+
+    /**
+     * Record that a journaled booking was not written after all, undoing
+     * its {@link #recordBooked} record
+     *
+     * @param eventId Event ID
+     * @param quantity Seats reserved
+     * @param requestId Request ID the booking was journaled with
+     */
+    public void recordUnbooked(int eventId, int quantity, String requestId) {
+        append(UNBOOKED, 0, eventId, quantity, 0, requestId);
+    }
+
+    /**
+     * Record an event's remaining seats moving with a change in its total seats
+     *
+     * @param eventId Event ID
+     * @param seatChange New total seats minus the old total
+     */
+    public void recordResized(int eventId, int seatChange) {
+        append(RESIZED, 0, eventId, seatChange, 0, null);
+    }
+
+    /**
+     * Record a ticket whose seats went back to the event
+     *
+     * @param ticket Ticket that was cancelled, expired or refunded
+     * @param status New status (CANCELLED, EXPIRED or REFUNDED)
+     */
+    public void recordReleased(Ticket ticket, String status) {
+        append(RELEASED, ticket.getTicketId(), ticket.getEventId(), ticket.getQuantity(), 0, status);
+    }
+
+    /**
+     * Record a ticket payment status change
+     *
+     * @param ticketId Ticket ID
+     * @param status New payment status
+     */
+    public void recordStatus(int ticketId, String status) {
+        append(STATUS, ticketId, 0, 0, 0, status);
+    }
+
+    /**
+     * Record a payment being created or changing status
+     *
+     * @param ticketId Ticket ID
+     * @param paymentId Payment ID
+     * @param status Payment status
+     */
+    public void recordPayment(int ticketId, int paymentId, String status) {
+        append(PAYMENT, ticketId, 0, 0, paymentId, status);
+    }
+
+    /**
+     * Record seat reductions that were written to the events table
+     *
+     * @param eventId Event ID
+     * @param quantity Seats written
+     */
+    public void recordFlushed(int eventId, int quantity) {
+        append(FLUSHED, 0, eventId, quantity, 0, null);
+    }
+
+    /**
+     * Get the seats left per event as rebuilt from the journal
+     *
+     * @return Event ID to available seats
+     */
+    public synchronized Map<Integer, Integer> getAvailableSeats() {
+        Map<Integer, Integer> seats = new HashMap<>();
+        for (Map.Entry<Integer, EventState> entry : state.entrySet()) {
+            seats.put(entry.getKey(), entry.getValue().available);
+        }
+        return seats;
+    }
+
+    /**
+     * Get the seat reductions the journal has seen booked but not yet flushed
+     *
+     * @return Event ID to seats still to subtract from events.available_seats
+     */
+    public synchronized Map<Integer, Integer> getUnflushedReductions() {
+        Map<Integer, Integer> reductions = new HashMap<>();
+        for (Map.Entry<Integer, EventState> entry : state.entrySet()) {
+            if (entry.getValue().unflushed > 0) {
+                reductions.put(entry.getKey(), entry.getValue().unflushed);
+            }
+        }
+        return reductions;
+    }
+
+    private void append(byte type, int ticketId, int eventId, int quantity, int ref, String status) {
+        byte[] statusBytes = status == null ? new byte[0] : status.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(26 + statusBytes.length);
+        body.put(type).putLong(System.currentTimeMillis())
+                .putInt(ticketId).putInt(eventId).putInt(quantity).putInt(ref)
+                .put((byte) statusBytes.length).put(statusBytes);
+
+        synchronized (this) {
+            long position;
+            try {
+                position = journal.append(body.array());
+            } catch (IOException e) {
+                System.err.println("Error writing booking journal: " + e.getMessage());
+                return;
+            }
+            apply(type, eventId, quantity, status);
+
+            // A new segment began: snapshot the state as of this record and drop older segments
+            if (MappedJournal.segmentOf(position) != segment) {
+                segment = MappedJournal.segmentOf(position);
+                Map<Integer, EventState> copy = copyState();
+                List<Booking> bookings = new ArrayList<>(inDoubt.values());
+                snapshotPosition = position;
+                background.execute(() -> writeSnapshot(copy, bookings, position));
+            }
+        }
+    }
+
+    /**
+     * Snapshot the state if anything was appended since the last snapshot;
+     * runs on the background thread
+     */
+    private void snapshot() {
+        Map<Integer, EventState> copy;
+        List<Booking> bookings;
+        long position;
+        synchronized (this) {
+            position = journal.position();
+            if (position == snapshotPosition) {
+                return;
+            }
+            snapshotPosition = position;
+            copy = copyState();
+            bookings = new ArrayList<>(inDoubt.values());
+        }
+        writeSnapshot(copy, bookings, position);
+    }
+
+    private void apply(byte type, int eventId, int quantity, String requestId) {
+        switch (type) {
+            case BOOKED:
+                if (requestId != null) {
+                    inDoubt.put(requestId, new Booking(requestId, eventId, quantity));
+                }
+                break;
+            case COMMITTED:
+            case UNBOOKED:
+                if (requestId != null) {
+                    inDoubt.remove(requestId);
+                }
+                break;
+            default:
+                break;
+        }
+
+        EventState event = state.get(eventId);
+        switch (type) {
+            case TRACKED:
+                state.put(eventId, new EventState(quantity, 0));
+                break;
+            case REMOVED:
+                state.remove(eventId);
+                break;
+            case BOOKED:
+                if (event != null) {
+                    event.available -= quantity;
+                    event.unflushed += quantity;
+                }
+                break;
+            case RELEASED:
+            case RESIZED:
+                if (event != null) {
+                    event.available += quantity;
+                }
+                break;
+            case UNBOOKED:
+                if (event != null) {
+                    event.available += quantity;
+                    event.unflushed = Math.max(0, event.unflushed - quantity);
+                }
+                break;
+            case FLUSHED:
+                if (event != null) {
+                    event.unflushed = Math.max(0, event.unflushed - quantity);
+                }
+                break;
+            default:
+                // Status and payment records do not move seats
+                break;
+        }
+    }
+
+    private Map<Integer, EventState> copyState() {
+        Map<Integer, EventState> copy = new HashMap<>();
+        for (Map.Entry<Integer, EventState> entry : state.entrySet()) {
+            copy.put(entry.getKey(), new EventState(entry.getValue().available, entry.getValue().unflushed));
+        }
+        return copy;
+    }
+
+    private void recover() throws IOException {
+        long from = readSnapshot();
+        journal.replay(from, body -> {
+            byte type = body.get();
+            body.getLong();
+            body.getInt();
+            int eventId = body.getInt();
+            int quantity = body.getInt();
+            body.getInt();
+            byte[] status = new byte[body.get() & 0xFF];
+            body.get(status);
+            apply(type, eventId, quantity, status.length == 0 ? null : new String(status, StandardCharsets.UTF_8));
+        });
+        snapshotPosition = from;
+        writtenPosition = from;
+    }
+
+    /**
+     * Close the bookings a crash left between their booked record and their
+     * committed or compensating one: a booking whose ticket is not in the
+     * database never committed, so its seats are given back
+     *
+     * @param ticketDAO DAO to look the tickets up by request ID
+     */
+    void settleInDoubt(TicketDAO ticketDAO) {
+        List<Booking> bookings;
+        synchronized (this) {
+            bookings = new ArrayList<>(inDoubt.values());
+        }
+        for (Booking booking : bookings) {
+            try {
+                Ticket ticket = ticketDAO.getTicketByRequestId(booking.requestId);
+                if (ticket != null) {
+                    recordCommitted(ticket);
+                } else {
+                    recordUnbooked(booking.eventId, booking.quantity, booking.requestId);
+                }
+            } catch (SQLException e) {
+                // Keep holding the seats and try again on the next start
+                System.err.println("Error checking journaled booking " + booking.requestId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private long readSnapshot() {
+        File snapshotFile = new File(directory, SNAPSHOT_FILE);
+        if (!snapshotFile.isFile()) {
+            return 0;
+        }
+        try (FileInputStream file = new FileInputStream(snapshotFile)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(file), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            long position = in.readLong();
+            int count = in.readInt();
+            Map<Integer, EventState> snapshot = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                snapshot.put(in.readInt(), new EventState(in.readInt(), in.readInt()));
+            }
+            int bookingCount = in.readInt();
+            Map<String, Booking> bookings = new LinkedHashMap<>();
+            for (int i = 0; i < bookingCount; i++) {
+                Booking booking = new Booking(in.readUTF(), in.readInt(), in.readInt());
+                bookings.put(booking.requestId, booking);
+            }
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("checksum mismatch");
+            }
+            state.putAll(snapshot);
+            inDoubt.putAll(bookings);
+            return position;
+        } catch (EOFException e) {
+            System.err.println("Error reading inventory snapshot, replaying the whole journal: truncated");
+        } catch (IOException e) {
+            System.err.println("Error reading inventory snapshot, replaying the whole journal: " + e.getMessage());
+        }
+        return 0;
+    }
+
+    private void writeSnapshot(Map<Integer, EventState> snapshot, List<Booking> bookings, long position) {
+        // Only the background thread writes; never replace a newer snapshot with an older one
+        if (position <= writtenPosition) {
+            return;
+        }
+        File temp = new File(directory, SNAPSHOT_FILE + ".tmp");
+        try {
+            try (FileOutputStream file = new FileOutputStream(temp)) {
+                CheckedOutputStream checked = new CheckedOutputStream(file, new CRC32());
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked));
+                out.writeLong(position);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<Integer, EventState> entry : snapshot.entrySet()) {
+                    out.writeInt(entry.getKey());
+                    out.writeInt(entry.getValue().available);
+                    out.writeInt(entry.getValue().unflushed);
+                }
+                out.writeInt(bookings.size());
+                for (Booking booking : bookings) {
+                    out.writeUTF(booking.requestId);
+                    out.writeInt(booking.eventId);
+                    out.writeInt(booking.quantity);
+                }
+                out.flush();
+                out.writeLong(checked.getChecksum().getValue());
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(temp.toPath(), new File(directory, SNAPSHOT_FILE).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            writtenPosition = position;
+            journal.deleteBefore(position);
+        } catch (IOException e) {
+            System.err.println("Error writing inventory snapshot: " + e.getMessage());
+        }
+    }
+
+    private static final class EventState {
+        int available;
+        int unflushed;
+
+        EventState(int available, int unflushed) {
+            this.available = available;
+            this.unflushed = unflushed;
+        }
+    }
+
+    private static final class Booking {
+        final String requestId;
+        final int eventId;
+        final int quantity;
+
+        Booking(String requestId, int eventId, int quantity) {
+            this.requestId = requestId;
+            this.eventId = eventId;
+            this.quantity = quantity;
+        }
+    }
+}
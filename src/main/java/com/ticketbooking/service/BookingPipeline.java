@@ -0,0 +1,191 @@
+package com.ticketbooking.service;
+
+import com.ticketbooking.dao.TicketDAO;
+import com.ticketbooking.model.Ticket;
+import com.ticketbooking.model.TicketDetail;
+import com.ticketbooking.util.AppConfig;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group-commit stage in front of the booking transaction.
+ *
+ * Bookings that arrive while a batch is being gathered (up to a maximum batch
+ * size, or for at most a short window after the first one) are written together
+ * by {@link TicketDAO#createTicketsWithDetails}: one transaction with one seat
+ * decrement per event and multi-row inserts, so the whole group costs one
+ * commit and one log flush instead of one per booking. Each caller gets a
+ * future for its own ticket. If a batch fails as a whole, its bookings are
+ * retried one by one so a single bad row does not fail the rest.
+ */
+public class BookingPipeline {
+    private static volatile BookingPipeline instance;
+
+    private final TicketDAO ticketDAO;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final LinkedBlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+
+    private BookingPipeline(TicketDAO ticketDAO, int maxBatchSize, long windowMs, int writers) {
+        this.ticketDAO = ticketDAO;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMs));
+        for (int i = 0; i < Math.max(1, writers); i++) {
+            Thread writer = new Thread(this::runWriter, "booking-group-commit-" + i);
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    /**
+     * Check whether group commit is switched on in app.properties
+     *
+     * @return true if bookings should be written in batches
+     */
+    public static boolean isEnabled() {
+        return AppConfig.getBoolean("booking.groupCommit.enabled", true);
+    }
+
+    /**
+     * Get the shared booking pipeline
+     *
+     * @return The booking pipeline
+     */
+    public static BookingPipeline getInstance() {
+        BookingPipeline current = instance;
+        if (current == null) {
+            synchronized (BookingPipeline.class) {
+                current = instance;
+                if (current == null) {
+                    current = new BookingPipeline(new TicketDAO(),
+                            AppConfig.getInt("booking.groupCommit.maxBatchSize", 100),
+                            AppConfig.getLong("booking.groupCommit.windowMs", 2),
+                            AppConfig.getInt("booking.groupCommit.writers", 2));
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Queue a booking for the next batch
+     *
+     * @param ticket Ticket to create
+     * @param details Ticket details (seats and attendees)
+     * @param reserveSeats Whether to decrement events.available_seats
+     * @return Future completed with the created ticket (its ID set), with null if
+     *         the event had too few seats, or exceptionally on a database error
+     */
+    public CompletableFuture<Ticket> submit(Ticket ticket, List<TicketDetail> details, boolean reserveSeats) {
+        Request request = new Request(ticket, details, reserveSeats);
+        queue.add(request);
+        return request.future;
+    }
+
+    /**
+     * Get the number of bookings waiting for a batch
+     *
+     * @return Queued booking count
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    private void runWriter() {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    // Take whatever is already queued, then wait out the rest of the window
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                for (Request request : batch) {
+                    request.future.completeExceptionally(new SQLException("Booking pipeline stopped"));
+                }
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Request> batch) {
+        List<Request> reserving = new ArrayList<>();
+        List<Request> reserved = new ArrayList<>();
+        for (Request request : batch) {
+            (request.reserveSeats ? reserving : reserved).add(request);
+        }
+        commit(reserving, true);
+        commit(reserved, false);
+    }
+
+    private void commit(List<Request> batch, boolean reserveSeats) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() == 1) {
+            commitOne(batch.get(0));
+            return;
+        }
+
+        List<Ticket> tickets = new ArrayList<>(batch.size());
+        List<List<TicketDetail>> details = new ArrayList<>(batch.size());
+        for (Request request : batch) {
+            tickets.add(request.ticket);
+            details.add(request.details);
+        }
+
+        try {
+            ticketDAO.createTicketsWithDetails(tickets, details, reserveSeats);
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Error committing booking batch, retrying individually: " + e.getMessage());
+            for (Request request : batch) {
+                commitOne(request);
+            }
+            return;
+        }
+
+        for (Request request : batch) {
+            request.future.complete(request.ticket.getTicketId() > 0 ? request.ticket : null);
+        }
+    }
+
+    private void commitOne(Request request) {
+        try {
+            request.future.complete(ticketDAO.createTicketWithDetails(request.ticket, request.details, request.reserveSeats));
+        } catch (SQLException | RuntimeException e) {
+            request.future.completeExceptionally(e);
+        }
+    }
+
+    private static final class Request {
+        final Ticket ticket;
+        final List<TicketDetail> details;
+        final boolean reserveSeats;
+        final CompletableFuture<Ticket> future = new CompletableFuture<>();
+
+        Request(Ticket ticket, List<TicketDetail> details, boolean reserveSeats) {
+            this.ticket = ticket;
+            this.details = details;
+            this.reserveSeats = reserveSeats;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.ticketbooking.service;
+
+import com.ticketbooking.dao.EventDAO;
+import com.ticketbooking.dao.TicketDAO;
+import com.ticketbooking.dao.TicketDetailDAO;
+import com.ticketbooking.model.Event;
+import com.ticketbooking.model.Ticket;
+import com.ticketbooking.model.TicketDetail;
+import com.ticketbooking.util.Metrics;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Booking engine: reserves seats and writes the ticket and its details
+ * in one transaction on one connection.
+ *
+ * When the in-memory {@link SeatInventory} is enabled, seats are reserved
+ * against its counters first, so sold-out requests are rejected without a
+ * database round trip and the events row is updated in the background.
+ * Concrete seats come from the {@link SeatAllocator}, which seats a group
+ * together in one row when it can, and are held by the {@link SeatHoldManager}
+ * until the ticket is paid. Under load, the {@link BookingPipeline} commits
+ * concurrent bookings together in one transaction.
+ */
+public class BookingService {
+    private EventDAO eventDAO;
+    private TicketDAO ticketDAO;
+    private TicketDetailDAO ticketDetailDAO;
+    private SeatAllocator seatAllocator;
+    private SeatInventory inventory;
+    private SeatHoldManager holdManager;
+    private BookingPipeline pipeline;
+    private BookingJournal journal;
+    private EventCache eventCache;
+
+    public BookingService() {
+        this.eventDAO = new EventDAO();
+        this.ticketDAO = new TicketDAO();
+        this.ticketDetailDAO = new TicketDetailDAO();
+        this.seatAllocator = SeatAllocator.getInstance();
+        this.inventory = SeatInventory.isEnabled() ? SeatInventory.getInstance() : null;
+        this.holdManager = SeatHoldManager.isEnabled() ? SeatHoldManager.getInstance() : null;
+        this.pipeline = BookingPipeline.isEnabled() ? BookingPipeline.getInstance() : null;
+        this.journal = BookingJournal.getIfEnabled();
+        this.eventCache = EventCache.isEnabled() ? EventCache.getInstance() : null;
+    }
+
+    /**
+     * Book tickets for an event
+     *
+     * @param eventId Event ID
+     * @param userId User ID
+     * @param quantity Number of tickets
+     * @param attendeeNames Attendee names; missing entries are booked as "Guest"
+     * @return Created ticket, or null if the event does not exist or is sold out
+     * @throws SQLException if a database error occurs (nothing is written)
+     */
+    public Ticket book(int eventId, int userId, int quantity, List<String> attendeeNames) throws SQLException {
+        return book(eventId, userId, quantity, attendeeNames, null);
+    }
+
+    /**
+     * Book tickets for an event, tagging the ticket with the client's request ID
+     *
+     * @param eventId Event ID
+     * @param userId User ID
+     * @param quantity Number of tickets
+     * @param attendeeNames Attendee names; missing entries are booked as "Guest"
+     * @param requestId Idempotency key stored in the ticket's unique request_id column (may be null)
+     * @return Created ticket, or null if the event does not exist or is sold out
+     * @throws SQLException if a database error occurs (nothing is written), including
+     *         a duplicate key if a ticket was already booked with this request ID
+     */
+    public Ticket book(int eventId, int userId, int quantity, List<String> attendeeNames, String requestId) throws SQLException {
+        List<String> names = attendeeNames != null ? attendeeNames : Collections.<String>emptyList();
+        return Metrics.time("BookingService.book", () -> {
+            if (quantity <= 0) {
+                return null;
+            }
+            if (inventory != null) {
+                return bookFromInventory(eventId, userId, quantity, names, requestId);
+            }
+
+            Event event = loadEvent(eventId);
+            if (event == null || event.getAvailableSeats() < quantity) {
+                return null;
+            }
+
+            // The conditional seat decrement inside the transaction is authoritative;
+            // the availability check above only avoids a round trip for obvious sell-outs
+            Ticket created = persist(event, userId, quantity, names, requestId, true);
+            if (created != null && eventCache != null) {
+                eventCache.seatsChanged(eventId);
+            }
+            return created;
+        });
+    }
+
+    private Event loadEvent(int eventId) throws SQLException {
+        return eventCache != null ? eventCache.get(eventId) : eventDAO.getEventById(eventId);
+    }
+
+    private Ticket bookFromInventory(int eventId, int userId, int quantity, List<String> attendeeNames,
+                                     String requestId) throws SQLException {
+        if (!inventory.isTracked(eventId)) {
+            Event event = loadEvent(eventId);
+            if (event == null) {
+                return null;
+            }
+            inventory.track(event);
+        }
+
+        if (!inventory.tryReserve(eventId, quantity)) {
+            return null;
+        }
+
+        // Journal the seats before the ticket commits, so a crash in between
+        // cannot leave a committed ticket whose seats the journal gives back.
+        // The request ID lets recovery find out whether the ticket committed.
+        String bookingId = requestId;
+        if (journal != null) {
+            if (bookingId == null) {
+                bookingId = "journal-" + UUID.randomUUID();
+            }
+            journal.recordBooked(eventId, quantity, userId, bookingId);
+        }
+        Ticket created = null;
+        try {
+            Event event = loadEvent(eventId);
+            if (event == null) {
+                return null;
+            }
+            created = persist(event, userId, quantity, attendeeNames, bookingId, false);
+            return created;
+        } finally {
+            if (created != null) {
+                if (journal != null) {
+                    journal.recordCommitted(created);
+                }
+                inventory.recordReduction(eventId, quantity);
+            } else {
+                if (journal != null) {
+                    journal.recordUnbooked(eventId, quantity, bookingId);
+                }
+                inventory.release(eventId, quantity);
+            }
+        }
+    }
+
+    private Ticket persist(Event event, int userId, int quantity, List<String> attendeeNames,
+                           String requestId, boolean reserveSeats) throws SQLException {
+        List<String> seatNumbers = seatAllocator.allocate(event, quantity);
+        if (seatNumbers == null) {
+            return null;
+        }
+
+        Ticket created = null;
+        try {
+            Ticket ticket = new Ticket(event.getEventId(), userId, quantity, event.getTicketPrice() * quantity, "PENDING");
+            ticket.setRequestId(requestId);
+            List<TicketDetail> details = buildDetails(seatNumbers, attendeeNames);
+            created = pipeline != null
+                    ? await(pipeline.submit(ticket, details, reserveSeats))
+                    : ticketDAO.createTicketWithDetails(ticket, details, reserveSeats);
+            if (created != null && holdManager != null) {
+                holdManager.hold(created, seatNumbers);
+            }
+            return created;
+        } finally {
+            if (created == null) {
+                seatAllocator.release(event.getEventId(), seatNumbers);
+            }
+        }
+    }
+
+    private static Ticket await(CompletableFuture<Ticket> future) throws SQLException {
+        // The batch commits whether or not we are interrupted, so wait for the
+        // outcome rather than lose track of a ticket that holds seats
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof SQLException) {
+                        throw (SQLException) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new SQLException("Booking failed", cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Cancel a ticket and return its seats
+     *
+     * @param ticketId Ticket ID
+     * @return true if cancellation successful, false otherwise
+     */
+    public boolean cancel(int ticketId) {
+        return Metrics.time("BookingService.cancel", () -> {
+            Ticket ticket = ticketDAO.getTicketById(ticketId);
+            if (ticket == null || !ticketDAO.cancelTicket(ticket)) {
+                return false;
+            }
+            seatsReturned(ticket, "CANCELLED");
+            return true;
+        });
+    }
+
+    /**
+     * Give a ticket's seats back to the inventory, holds and seat map after
+     * the database returned them (cancellation or refund)
+     *
+     * @param ticket Ticket whose seats were returned
+     * @param status The ticket's new status
+     */
+    void seatsReturned(Ticket ticket, String status) {
+        if (holdManager != null) {
+            holdManager.release(ticket.getTicketId());
+        }
+        if (inventory != null) {
+            inventory.release(ticket.getEventId(), ticket.getQuantity());
+        }
+        if (journal != null) {
+            journal.recordReleased(ticket, status);
+        }
+        if (eventCache != null) {
+            eventCache.seatsChanged(ticket.getEventId());
+        }
+
+        List<String> seatNumbers = new ArrayList<>();
+        for (TicketDetail detail : ticketDetailDAO.getTicketDetailsByTicketId(ticket.getTicketId())) {
+            seatNumbers.add(detail.getSeatNumber());
+        }
+        seatAllocator.release(ticket.getEventId(), seatNumbers);
+    }
+
+    /**
+     * Mark a held ticket as paid. Fails if the hold already expired.
+     *
+     * @param ticketId Ticket ID
+     * @param status New payment status
+     * @return true if the ticket was still pending and is now updated
+     * @throws SQLException if a database error occurs
+     */
+    public boolean confirm(int ticketId, String status) throws SQLException {
+        return Metrics.time("BookingService.confirm", () -> {
+            if (!ticketDAO.updatePaymentStatus(ticketId, status, "PENDING")) {
+                return false;
+            }
+            if (holdManager != null) {
+                holdManager.release(ticketId);
+            }
+            if (journal != null) {
+                journal.recordStatus(ticketId, status);
+            }
+            return true;
+        });
+    }
+
+    private List<TicketDetail> buildDetails(List<String> seatNumbers, List<String> attendeeNames) {
+        List<TicketDetail> details = new ArrayList<>();
+        for (int i = 0; i < seatNumbers.size(); i++) {
+            String attendeeName = (i < attendeeNames.size()) ? attendeeNames.get(i) : "Guest";
+            details.add(new TicketDetail(0, seatNumbers.get(i), attendeeName));
+        }
+        return details;
+    }
+}
@@ -0,0 +1,199 @@
+package com.ticketbooking.service;
+
+import com.ticketbooking.dao.EventDAO;
+import com.ticketbooking.model.Event;
+import com.ticketbooking.util.AppConfig;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache of events by ID.
+ *
+ * Entries expire after a TTL and are invalidated explicitly when an event is
+ * created, updated, deleted or cancelled, or when its seats change outside
+ * the in-memory inventory. While the {@link SeatInventory} tracks an event,
+ * its live seat count is laid over the cached copy instead, so bookings do
+ * not have to invalidate the hottest entries. Callers always get their own
+ * copy of the event, so changing it cannot corrupt what is cached.
+ */
+public class EventCache {
+    private static volatile EventCache instance;
+
+    private final EventDAO eventDAO;
+    private final int maxEntries;
+    private final long ttlMs;
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private EventCache(EventDAO eventDAO, int maxEntries, long ttlMs) {
+        this.eventDAO = eventDAO;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Check whether the event cache is switched on in app.properties
+     *
+     * @return true if event lookups should be cached
+     */
+    public static boolean isEnabled() {
+        return AppConfig.getBoolean("event.cache.enabled", true);
+    }
+
+    /**
+     * Get the shared event cache
+     *
+     * @return The event cache
+     */
+    public static EventCache getInstance() {
+        EventCache current = instance;
+        if (current == null) {
+            synchronized (EventCache.class) {
+                current = instance;
+                if (current == null) {
+                    current = new EventCache(new EventDAO(),
+                            AppConfig.getInt("event.cache.maxEntries", 10000),
+                            AppConfig.getLong("event.cache.ttlSeconds", 30) * 1000);
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Get an event, loading it from the database on a miss
+     *
+     * @param eventId Event ID
+     * @return Copy of the event, or null if it does not exist
+     * @throws SQLException if a database error occurs
+     */
+    public Event get(int eventId) throws SQLException {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(eventId);
+        if (entry != null && now - entry.loadedAt < ttlMs) {
+            hits.increment();
+            return snapshot(entry.event);
+        }
+
+        misses.increment();
+        long version = invalidations.get();
+        Event event = eventDAO.getEventById(eventId);
+        if (event == null) {
+            return null;
+        }
+        // A write that invalidated while we were loading may have made our copy stale
+        if (invalidations.get() == version) {
+            if (entry != null && entries.replace(eventId, entry, new Entry(event, now))) {
+                evictions.increment();
+            } else {
+                entries.putIfAbsent(eventId, new Entry(event, now));
+            }
+            if (entries.size() > maxEntries) {
+                evictOldest();
+            }
+        }
+        return snapshot(event);
+    }
+
+    /**
+     * Drop an event so the next lookup reads it from the database
+     *
+     * @param eventId Event ID
+     */
+    public void invalidate(int eventId) {
+        invalidations.incrementAndGet();
+        entries.remove(eventId);
+    }
+
+    /**
+     * Note that an event's available seats changed in the database. Only
+     * invalidates when the inventory does not supply the live count.
+     *
+     * @param eventId Event ID
+     */
+    public void seatsChanged(int eventId) {
+        if (!SeatInventory.isEnabled() || !SeatInventory.getInstance().isTracked(eventId)) {
+            invalidate(eventId);
+        }
+    }
+
+    private Event snapshot(Event cached) {
+        Event copy = new Event(cached);
+        if (SeatInventory.isEnabled()) {
+            int available = SeatInventory.getInstance().getAvailableSeats(copy.getEventId());
+            if (available >= 0) {
+                copy.setAvailableSeats(available);
+            }
+        }
+        return copy;
+    }
+
+    private void evictOldest() {
+        // Expired entries go first; otherwise the least recently loaded one
+        long expiredBefore = System.currentTimeMillis() - ttlMs;
+        Map.Entry<Integer, Entry> oldest = null;
+        for (Map.Entry<Integer, Entry> candidate : entries.entrySet()) {
+            if (candidate.getValue().loadedAt < expiredBefore) {
+                if (entries.remove(candidate.getKey(), candidate.getValue())) {
+                    evictions.increment();
+                }
+            } else if (oldest == null || candidate.getValue().loadedAt < oldest.getValue().loadedAt) {
+                oldest = candidate;
+            }
+        }
+        if (entries.size() > maxEntries && oldest != null
+                && entries.remove(oldest.getKey(), oldest.getValue())) {
+            evictions.increment();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of entries dropped for age or space (not counting invalidations)
+     *
+     * @return Eviction count
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the fraction of lookups served from the cache
+     *
+     * @return Hit rate between 0 and 1
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        final Event event;
+        final long loadedAt;
+
+        Entry(Event event, long loadedAt) {
+            this.event = event;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -2,20 +2,29 @@ package com.ticketbooking.service;
 
 import com.ticketbooking.dao.EventDAO;
 import com.ticketbooking.model.Event;
+import com.ticketbooking.util.DatabaseExecutor;
+import com.ticketbooking.util.Metrics;
 
 import java.sql.Date;
 import java.sql.Time;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Service class for handling event-related business logic
  */
 public class EventService {
+    // Edits are serialized so each one's seat change is computed from the total it replaces
+    private static final Object EDIT_LOCK = new Object();
+    
     private EventDAO eventDAO;
+    private EventCache eventCache;
     
     public EventService() {
         eventDAO = new EventDAO();
+        eventCache = EventCache.isEnabled() ? EventCache.getInstance() : null;
     }
     
     /**
@@ -25,7 +34,38 @@ public class EventService {
      * @throws SQLException if a database error occurs
      */
     public List<Event> getAllEvents() throws SQLException {
-        return eventDAO.getAllEvents();
+        return Metrics.time("EventService.getAllEvents", () -> eventDAO.getAllEvents());
+    }
+    
+    /**
+     * Get all events without blocking the caller
+     * 
+     * @return Future of all events
+     */
+    public CompletableFuture<List<Event>> getAllEventsAsync() {
+        return DatabaseExecutor.getInstance().submit(this::getAllEvents);
+    }
+    
+    /**
+     * Get one page of events in event ID order
+     * 
+     * @param afterEventId Last event ID of the previous page (0 for the first page)
+     * @param pageSize Maximum number of events to return
+     * @return The page of events
+     * @throws SQLException if a database error occurs
+     */
+    public List<Event> getEventsPage(int afterEventId, int pageSize) throws SQLException {
+        return Metrics.time("EventService.getEventsPage", () -> eventDAO.getEventsPage(afterEventId, pageSize));
+    }
+    
+    /**
+     * Stream every event to a consumer without loading them all at once
+     * 
+     * @param consumer Receives each event in event ID order
+     * @throws SQLException if a database error occurs
+     */
+    public void forEachEvent(Consumer<Event> consumer) throws SQLException {
+        Metrics.run("EventService.forEachEvent", () -> eventDAO.forEachEvent(consumer));
     }
     
     /**
@@ -34,7 +74,16 @@ public class EventService {
      * @return List of upcoming events
      */
     public List<Event> getUpcomingEvents() {
-        return eventDAO.getEventsByStatus("UPCOMING");
+        return Metrics.time("EventService.getUpcomingEvents", () -> eventDAO.getEventsByStatus("UPCOMING"));
+    }
+    
+    /**
+     * Get upcoming events without blocking the caller
+     * 
+     * @return Future of the upcoming events
+     */
+    public CompletableFuture<List<Event>> getUpcomingEventsAsync() {
+        return DatabaseExecutor.getInstance().submit(this::getUpcomingEvents);
     }
     
     /**
@@ -43,7 +92,7 @@ public class EventService {
      * @return List of ongoing events
      */
     public List<Event> getOngoingEvents() {
-        return eventDAO.getEventsByStatus("ONGOING");
+        return Metrics.time("EventService.getOngoingEvents", () -> eventDAO.getEventsByStatus("ONGOING"));
     }
     
     /**
@@ -52,7 +101,7 @@ public class EventService {
      * @return List of completed events
      */
     public List<Event> getCompletedEvents() {
-        return eventDAO.getEventsByStatus("COMPLETED");
+        return Metrics.time("EventService.getCompletedEvents", () -> eventDAO.getEventsByStatus("COMPLETED"));
     }
     
     /**
@@ -61,7 +110,7 @@ public class EventService {
      * @return List of cancelled events
      */
     public List<Event> getCancelledEvents() {
-        return eventDAO.getEventsByStatus("CANCELLED");
+        return Metrics.time("EventService.getCancelledEvents", () -> eventDAO.getEventsByStatus("CANCELLED"));
     }
     
     /**
@@ -71,7 +120,17 @@ public class EventService {
      * @return Event object if found, null otherwise
      */
     public Event getEventById(int eventId) throws SQLException {
-        return eventDAO.getEventById(eventId);
+        return Metrics.time("EventService.getEventById", () -> eventCache != null ? eventCache.get(eventId) : eventDAO.getEventById(eventId));
+    }
+    
+    /**
+     * Get event by ID without blocking the caller
+     * 
+     * @param eventId Event ID
+     * @return Future of the event, or of null if not found
+     */
+    public CompletableFuture<Event> getEventByIdAsync(int eventId) {
+        return DatabaseExecutor.getInstance().submit(() -> getEventById(eventId));
     }
     
     /**
@@ -90,19 +149,70 @@ public class EventService {
     public Event createEvent(String eventName, String description, String venue, 
                            Date eventDate, Time eventTime, int totalSeats, 
                            double ticketPrice, int createdBy) {
-        Event event = new Event(eventName, description, venue, eventDate, eventTime, 
-                              totalSeats, totalSeats, ticketPrice, "UPCOMING", createdBy);
-        return eventDAO.createEvent(event);
+        return Metrics.time("EventService.createEvent", () -> {
+            Event event = new Event(eventName, description, venue, eventDate, eventTime, 
+                                  totalSeats, totalSeats, ticketPrice, "UPCOMING", createdBy);
+            Event created = eventDAO.createEvent(event);
+            if (created != null && SeatInventory.isEnabled()) {
+                SeatInventory.getInstance().track(created);
+            }
+            if (created != null && eventCache != null) {
+                eventCache.invalidate(created.getEventId());
+            }
+            return created;
+        });
     }
     
     /**
-     * Update an event
+     * Update an event. Its available seats move by the change in total seats;
+     * the event's own available seats value is ignored, so bookings made
+     * while it was being edited are kept and do not have to be paused.
      * 
      * @param event Event object with updated information
-     * @return true if update successful, false otherwise
+     * @return true if update successful, false otherwise (also when the total
+     *         is reduced by more than the seats left)
      */
     public boolean updateEvent(Event event) {
-        return eventDAO.updateEvent(event);
+        return Metrics.time("EventService.updateEvent", () -> {
+            synchronized (EDIT_LOCK) {
+                Event current;
+                try {
+                    current = eventDAO.getEventById(event.getEventId());
+                } catch (SQLException e) {
+                    System.err.println("Error updating event: " + e.getMessage());
+                    return false;
+                }
+                if (current == null) {
+                    return false;
+                }
+                int seatChange = event.getTotalSeats() - current.getTotalSeats();
+                SeatInventory inventory = SeatInventory.isEnabled() ? SeatInventory.getInstance() : null;
+                
+                // Removed seats leave the counter before the table, so no booking can take them meanwhile
+                if (inventory != null && seatChange < 0 && !inventory.resize(event.getEventId(), seatChange)) {
+                    System.err.println("Error updating event: fewer seats left than the reduction");
+                    return false;
+                }
+                boolean updated = eventDAO.updateEvent(event);
+                if (inventory != null) {
+                    if (!updated && seatChange < 0) {
+                        inventory.resize(event.getEventId(), -seatChange);
+                    } else if (updated && seatChange > 0) {
+                        inventory.resize(event.getEventId(), seatChange);
+                    }
+                }
+                
+                if (updated) {
+                    if (seatChange != 0) {
+                        SeatAllocator.getInstance().invalidate(event.getEventId());
+                    }
+                    if (eventCache != null) {
+                        eventCache.invalidate(event.getEventId());
+                    }
+                }
+                return updated;
+            }
+        });
     }
     
     /**
@@ -113,7 +223,19 @@ public class EventService {
      * @throws SQLException if a database error occurs
      */
     public boolean deleteEvent(int eventId) throws SQLException {
-        return eventDAO.deleteEvent(eventId);
+        return Metrics.time("EventService.deleteEvent", () -> {
+            boolean deleted = eventDAO.deleteEvent(eventId);
+            if (deleted) {
+                if (SeatInventory.isEnabled()) {
+                    SeatInventory.getInstance().remove(eventId);
+                }
+                SeatAllocator.getInstance().invalidate(eventId);
+                if (eventCache != null) {
+                    eventCache.invalidate(eventId);
+                }
+            }
+            return deleted;
+        });
     }
     
     /**
@@ -124,13 +246,15 @@ public class EventService {
      * @throws SQLException if a database error occurs
      */
     public boolean cancelEvent(int eventId) throws SQLException {
-        Event event = eventDAO.getEventById(eventId);
-        if (event == null) {
-            return false;
-        }
+        return Metrics.time("EventService.cancelEvent", () -> {
+            Event event = eventDAO.getEventById(eventId);
+            if (event == null) {
+                return false;
+            }
         
-        event.setEventStatus("CANCELLED");
-        return eventDAO.updateEvent(event);
+            event.setEventStatus("CANCELLED");
+            return updateEvent(event);
+        });
     }
     
     /**
@@ -140,7 +264,17 @@ public class EventService {
      * @return List of matching events
      */
     public List<Event> searchEvents(String searchTerm) {
-        return eventDAO.searchEvents(searchTerm);
+        return Metrics.time("EventService.searchEvents", () -> eventDAO.searchEvents(searchTerm));
+    }
+    
+    /**
+     * Search events by name or venue without blocking the caller
+     * 
+     * @param searchTerm Search term
+     * @return Future of the matching events
+     */
+    public CompletableFuture<List<Event>> searchEventsAsync(String searchTerm) {
+        return DatabaseExecutor.getInstance().submit(() -> searchEvents(searchTerm));
     }
     
     /**
@@ -152,7 +286,9 @@ public class EventService {
      * @throws SQLException if a database error occurs
      */
     public boolean hasEnoughSeats(int eventId, int requestedSeats) throws SQLException {
-        Event event = eventDAO.getEventById(eventId);
-        return event != null && event.getAvailableSeats() >= requestedSeats;
+        return Metrics.time("EventService.hasEnoughSeats", () -> {
+            Event event = getEventById(eventId);
+            return event != null && event.getAvailableSeats() >= requestedSeats;
+        });
     }
 } 
\ No newline at end of file
@@ -3,21 +3,33 @@ package com.ticketbooking.service;
 import com.ticketbooking.dao.PaymentDAO;
 import com.ticketbooking.model.Payment;
 import com.ticketbooking.model.Ticket;
+import com.ticketbooking.util.AppConfig;
+import com.ticketbooking.util.DatabaseExecutor;
+import com.ticketbooking.util.FlightEvents;
+import com.ticketbooking.util.IdempotencyCache;
+import com.ticketbooking.util.Metrics;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.UUID;
 
 /**
  * Service class for handling payment-related business logic
  */
 public class PaymentService {
+    private static final IdempotencyCache<Payment> PAYMENT_REQUESTS = new IdempotencyCache<>(
+            AppConfig.getInt("booking.idempotency.maxEntries", 100000),
+            AppConfig.getLong("booking.idempotency.ttlSeconds", 600) * 1000);
+    
     private PaymentDAO paymentDAO;
     private TicketService ticketService;
+    private BookingService bookingService;
     
     public PaymentService() throws SQLException {
         paymentDAO = new PaymentDAO();
         ticketService = new TicketService();
+        bookingService = new BookingService();
     }
     
     /**
@@ -29,12 +41,70 @@ public class PaymentService {
      * @return Created payment or null if payment failed
      */
     public Payment processPayment(int ticketId, double amount, String paymentMethod) {
+        return Metrics.time("PaymentService.processPayment", () -> pay(ticketId, amount, paymentMethod, null));
+    }
+    
+    /**
+     * Process a payment at most once per client request. Repeating a request ID
+     * returns the payment made the first time instead of charging again.
+     * 
+     * @param ticketId Ticket ID
+     * @param amount Amount to pay
+     * @param paymentMethod Payment method
+     * @param requestId Idempotency key chosen by the client (null pays unconditionally)
+     * @return Created or previously made payment, or null if payment failed
+     */
+    public Payment processPayment(int ticketId, double amount, String paymentMethod, String requestId) {
+        return Metrics.time("PaymentService.processPayment", () -> {
+            if (requestId == null) {
+                return pay(ticketId, amount, paymentMethod, null);
+            }
+            try {
+                return PAYMENT_REQUESTS.execute(requestId, () -> {
+                    Payment created = pay(ticketId, amount, paymentMethod, requestId);
+                    // A repeat whose cache entry was evicted is stopped by the unique request_id column
+                    return created != null ? created : paymentDAO.getPaymentByRequestId(requestId);
+                });
+            } catch (SQLException e) {
+                System.err.println("Error processing payment: " + e.getMessage());
+                return null;
+            }
+        });
+    }
+    
+    /**
+     * Process a payment at most once per client request, without blocking the caller
+     * 
+     * @param ticketId Ticket ID
+     * @param amount Amount to pay
+     * @param paymentMethod Payment method
+     * @param requestId Idempotency key chosen by the client (null pays unconditionally)
+     * @return Future of the created or previously made payment, or of null if payment failed
+     */
+    public CompletableFuture<Payment> processPaymentAsync(int ticketId, double amount, String paymentMethod,
+                                                          String requestId) {
+        return DatabaseExecutor.getInstance().submit(
+                () -> processPayment(ticketId, amount, paymentMethod, requestId));
+    }
+    
+    private Payment pay(int ticketId, double amount, String paymentMethod, String requestId) {
+        return FlightEvents.payment(ticketId, amount, paymentMethod,
+                () -> charge(ticketId, amount, paymentMethod, requestId));
+    }
+    
+    private Payment charge(int ticketId, double amount, String paymentMethod, String requestId) {
         // Get the ticket
         Ticket ticket = ticketService.getTicketById(ticketId);
         if (ticket == null) {
             return null;
         }
         
+        // Only a pending ticket can be paid; expired holds have already given their seats back.
+        // createPayment checks this again in its transaction, in case the ticket changes meanwhile.
+        if (!"PENDING".equals(ticket.getPaymentStatus())) {
+            return null;
+        }
+        
         // Check if the amount matches the ticket price
         if (Math.abs(amount - ticket.getTotalPrice()) > 0.01) {
             return null;
@@ -45,7 +115,18 @@ public class PaymentService {
         
         // Create the payment
         Payment payment = new Payment(ticketId, amount, paymentMethod, transactionId, "SUCCESS");
-        return paymentDAO.createPayment(payment);
+        payment.setRequestId(requestId);
+        Payment created = paymentDAO.createPayment(payment);
+        if (created != null && SeatHoldManager.isEnabled()) {
+            SeatHoldManager.getInstance().release(ticketId);
+        }
+        if (created != null) {
+            BookingJournal journal = BookingJournal.getIfEnabled();
+            if (journal != null) {
+                journal.recordPayment(ticketId, created.getPaymentId(), created.getStatus());
+            }
+        }
+        return created;
     }
     
     /**
@@ -55,7 +136,7 @@ public class PaymentService {
      * @return Payment object if found, null otherwise
      */
     public Payment getPaymentById(int paymentId) {
-        return paymentDAO.getPaymentById(paymentId);
+        return Metrics.time("PaymentService.getPaymentById", () -> paymentDAO.getPaymentById(paymentId));
     }
     
     /**
@@ -65,17 +146,51 @@ public class PaymentService {
      * @return List of payments for the ticket
      */
     public List<Payment> getPaymentsByTicketId(int ticketId) {
-        return paymentDAO.getPaymentsByTicketId(ticketId);
+        return Metrics.time("PaymentService.getPaymentsByTicketId", () -> paymentDAO.getPaymentsByTicketId(ticketId));
     }
     
     /**
-     * Process a refund for a payment
+     * Get payments by ticket ID without blocking the caller
+     * 
+     * @param ticketId Ticket ID
+     * @return Future of the ticket's payments
+     */
+    public CompletableFuture<List<Payment>> getPaymentsByTicketIdAsync(int ticketId) {
+        return DatabaseExecutor.getInstance().submit(() -> getPaymentsByTicketId(ticketId));
+    }
+    
+    /**
+     * Process a refund for a payment. The ticket's seats go back on sale
+     * unless it was already cancelled.
      * 
      * @param paymentId Payment ID
      * @return true if refund successful, false otherwise
      */
     public boolean refundPayment(int paymentId) {
-        return paymentDAO.refundPayment(paymentId);
+        return Metrics.time("PaymentService.refundPayment", () -> {
+            Ticket ticket = paymentDAO.refundPayment(paymentId);
+            if (ticket == null) {
+                return false;
+            }
+            if ("REFUNDED".equals(ticket.getPaymentStatus())) {
+                bookingService.seatsReturned(ticket, "REFUNDED");
+            }
+            BookingJournal journal = BookingJournal.getIfEnabled();
+            if (journal != null) {
+                journal.recordPayment(ticket.getTicketId(), paymentId, "REFUNDED");
+            }
+            return true;
+        });
+    }
+    
+    /**
+     * Refund a payment without blocking the caller
+     * 
+     * @param paymentId Payment ID
+     * @return Future of whether the payment was refunded
+     */
+    public CompletableFuture<Boolean> refundPaymentAsync(int paymentId) {
+        return DatabaseExecutor.getInstance().submit(() -> refundPayment(paymentId));
     }
     
     /**
@@ -0,0 +1,79 @@
+package com.ticketbooking.service;
+
+import com.ticketbooking.dao.ReportDAO;
+import com.ticketbooking.dao.SalesAggregateDAO;
+import com.ticketbooking.model.EventSalesSummary;
+import com.ticketbooking.model.TicketTypeSales;
+import com.ticketbooking.util.Metrics;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Service class for the admin booking and revenue reports. When sales
+ * aggregates are enabled the reports are read from the running totals in
+ * sales_summary; otherwise they are grouped from the tickets table.
+ */
+public class ReportService {
+    private ReportDAO reportDAO;
+    private SalesAggregateDAO salesAggregates;
+    
+    public ReportService() {
+        this.reportDAO = new ReportDAO();
+        this.salesAggregates = SalesAggregateDAO.isEnabled() ? new SalesAggregateDAO() : null;
+    }
+    
+    /**
+     * Get the booking summary: tickets offered, sold and revenue per event
+     * 
+     * @return One row per event
+     * @throws SQLException if a database error occurs
+     */
+    public List<EventSalesSummary> getBookingSummary() throws SQLException {
+        return Metrics.time("ReportService.getBookingSummary", () -> {
+            if (salesAggregates != null) {
+                return salesAggregates.getEventSalesSummaries();
+            }
+            return reportDAO.getEventSalesSummaries();
+        });
+    }
+    
+    /**
+     * Get the revenue report: tickets sold and revenue per event and ticket type
+     * 
+     * @return One row per ticket type, grouped by event
+     * @throws SQLException if a database error occurs
+     */
+    public List<TicketTypeSales> getRevenueByTicketType() throws SQLException {
+        return Metrics.time("ReportService.getRevenueByTicketType", () -> {
+            if (salesAggregates != null) {
+                return salesAggregates.getTicketTypeSales();
+            }
+            return reportDAO.getTicketTypeSales();
+        });
+    }
+    
+    /**
+     * Check whether the reports are served from the running sales totals
+     * 
+     * @return true if sales aggregates are enabled
+     */
+    public boolean usesSalesTotals() {
+        return salesAggregates != null;
+    }
+    
+    /**
+     * Recompute the running sales totals from the tickets table
+     * 
+     * @return Number of summary rows written
+     * @throws SQLException if a database error occurs or sales aggregates are disabled
+     */
+    public int rebuildSalesTotals() throws SQLException {
+        return Metrics.time("ReportService.rebuildSalesTotals", () -> {
+            if (salesAggregates == null) {
+                throw new SQLException("Sales aggregates are disabled");
+            }
+            return salesAggregates.rebuild();
+        });
+    }
+}
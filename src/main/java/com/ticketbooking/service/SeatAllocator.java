@@ -0,0 +1,116 @@
+package com.ticketbooking.service;
+
+import com.ticketbooking.dao.TicketDetailDAO;
+import com.ticketbooking.model.Event;
+import com.ticketbooking.util.AppConfig;
+import com.ticketbooking.util.FlightEvents;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns concrete seats to bookings using one {@link SeatMap} per event.
+ *
+ * A map is built the first time an event is booked, from its total seats and
+ * the seat numbers already stored in ticket_details, so assignments survive
+ * restarts. Group bookings are seated together in one row whenever a row has
+ * a free block large enough.
+ */
+public class SeatAllocator {
+    private static volatile SeatAllocator instance;
+
+    private final TicketDetailDAO ticketDetailDAO;
+    private final int rowWidth;
+    private final ConcurrentHashMap<Integer, SeatMap> maps = new ConcurrentHashMap<>();
+
+    private SeatAllocator(TicketDetailDAO ticketDetailDAO, int rowWidth) {
+        this.ticketDetailDAO = ticketDetailDAO;
+        this.rowWidth = Math.max(1, Math.min(SeatMap.MAX_ROW_WIDTH, rowWidth));
+    }
+
+    /**
+     * Get the shared seat allocator
+     *
+     * @return The seat allocator
+     */
+    public static SeatAllocator getInstance() {
+        SeatAllocator current = instance;
+        if (current == null) {
+            synchronized (SeatAllocator.class) {
+                current = instance;
+                if (current == null) {
+                    current = new SeatAllocator(new TicketDetailDAO(),
+                            AppConfig.getInt("booking.seatmap.rowWidth", 10));
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Assign seats for a booking
+     *
+     * @param event Event being booked
+     * @param quantity Number of seats
+     * @return Seat numbers, or null if the seat map has no room
+     * @throws SQLException if the event's existing assignments cannot be loaded
+     */
+    public List<String> allocate(Event event, int quantity) throws SQLException {
+        return FlightEvents.seatAllocation(event.getEventId(), quantity, () -> {
+            SeatMap map = getMap(event);
+            int[] seats = map.claim(quantity);
+            if (seats == null) {
+                return null;
+            }
+
+            List<String> seatNumbers = new ArrayList<>(seats.length);
+            for (int seat : seats) {
+                seatNumbers.add(map.label(seat));
+            }
+            return seatNumbers;
+        });
+    }
+
+    /**
+     * Free seats from a cancelled or failed booking
+     *
+     * @param eventId Event ID
+     * @param seatNumbers Seat numbers to free
+     */
+    public void release(int eventId, List<String> seatNumbers) {
+        SeatMap map = maps.get(eventId);
+        if (map == null) {
+            return;
+        }
+        for (String seatNumber : seatNumbers) {
+            map.release(map.indexOf(seatNumber));
+        }
+    }
+
+    /**
+     * Drop an event's map so it is rebuilt from the database on next use
+     * (after its total seats change or it is deleted)
+     *
+     * @param eventId Event ID
+     */
+    public void invalidate(int eventId) {
+        maps.remove(eventId);
+    }
+
+    private SeatMap getMap(Event event) throws SQLException {
+        SeatMap map = maps.get(event.getEventId());
+        if (map != null) {
+            return map;
+        }
+
+        SeatMap loaded = new SeatMap(event.getTotalSeats(), rowWidth);
+        for (String seatNumber : ticketDetailDAO.getBookedSeatNumbers(event.getEventId())) {
+            loaded.markTaken(loaded.indexOf(seatNumber));
+        }
+        map = maps.putIfAbsent(event.getEventId(), loaded);
+        return map != null ? map : loaded;
+    }
+}
@@ -0,0 +1,210 @@
+package com.ticketbooking.service;
+
+import com.ticketbooking.dao.TicketDAO;
+import com.ticketbooking.dao.TicketDetailDAO;
+import com.ticketbooking.model.Ticket;
+import com.ticketbooking.model.TicketDetail;
+import com.ticketbooking.util.AppConfig;
+import com.ticketbooking.util.TimingWheel;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timed seat holds for PENDING tickets.
+ *
+ * Every booking holds its seats for a configurable TTL. Holds live in a
+ * {@link TimingWheel}, so adding and removing one is O(1) regardless of how
+ * many are outstanding. Each tick, the holds that ran out are expired in
+ * batched UPDATEs (tickets marked EXPIRED and their seats returned to the
+ * events in one transaction per batch), and the seats go back to the
+ * in-memory inventory and seat map. Paying for or cancelling a ticket
+ * releases its hold.
+ */
+public class SeatHoldManager {
+    private static final int EXPIRY_BATCH_SIZE = 500;
+    private static final long RETRY_DELAY_MS = 5000;
+
+    private static volatile SeatHoldManager instance;
+
+    private final TicketDAO ticketDAO;
+    private final TicketDetailDAO ticketDetailDAO;
+    private final long ttlMs;
+    private final TimingWheel<Hold> wheel;
+    private final ConcurrentHashMap<Integer, TimingWheel.Timeout<Hold>> holds = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService ticker;
+
+    private SeatHoldManager(long ttlMs, long tickMs, int wheelSize) {
+        this.ticketDAO = new TicketDAO();
+        this.ticketDetailDAO = new TicketDetailDAO();
+        this.ttlMs = ttlMs;
+        this.wheel = new TimingWheel<>(tickMs, wheelSize);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "seat-hold-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Check whether seat holds are switched on in app.properties
+     *
+     * @return true if pending tickets should expire
+     */
+    public static boolean isEnabled() {
+        return AppConfig.getBoolean("booking.hold.enabled", true);
+    }
+
+    /**
+     * Get the shared hold manager, picking up tickets left pending by a previous run
+     *
+     * @return The seat hold manager
+     */
+    public static SeatHoldManager getInstance() {
+        SeatHoldManager current = instance;
+        if (current == null) {
+            synchronized (SeatHoldManager.class) {
+                current = instance;
+                if (current == null) {
+                    current = new SeatHoldManager(
+                            AppConfig.getLong("booking.hold.ttlSeconds", 600) * 1000,
+                            AppConfig.getLong("booking.hold.tickMs", 1000),
+                            AppConfig.getInt("booking.hold.wheelSize", 512));
+                    current.loadPendingHolds();
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private void loadPendingHolds() {
+        try {
+            long now = System.currentTimeMillis();
+            for (Ticket ticket : ticketDAO.getPendingTickets()) {
+                long heldFor = ticket.getBookingDate() == null ? 0 : now - ticket.getBookingDate().getTime();
+                schedule(new Hold(ticket.getTicketId(), null), Math.max(0, ttlMs - heldFor));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading pending tickets for seat holds: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hold a new booking's seats until it is paid or the TTL runs out
+     *
+     * @param ticket Newly created PENDING ticket
+     * @param seatNumbers Seats assigned to the ticket
+     */
+    public void hold(Ticket ticket, List<String> seatNumbers) {
+        schedule(new Hold(ticket.getTicketId(), seatNumbers), ttlMs);
+    }
+
+    private void schedule(Hold hold, long delayMs) {
+        holds.put(hold.ticketId, wheel.schedule(hold, delayMs));
+    }
+
+    /**
+     * Release a ticket's hold because it was paid or cancelled
+     *
+     * @param ticketId Ticket ID
+     */
+    public void release(int ticketId) {
+        TimingWheel.Timeout<Hold> timeout = holds.remove(ticketId);
+        if (timeout != null) {
+            wheel.cancel(timeout);
+        }
+    }
+
+    /**
+     * Get the number of outstanding holds
+     *
+     * @return Hold count
+     */
+    public int getHoldCount() {
+        return wheel.size();
+    }
+
+    private void tick() {
+        try {
+            List<Hold> expired = wheel.advance();
+            for (int from = 0; from < expired.size(); from += EXPIRY_BATCH_SIZE) {
+                expire(expired.subList(from, Math.min(expired.size(), from + EXPIRY_BATCH_SIZE)));
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error expiring seat holds: " + e.getMessage());
+        }
+    }
+
+    private void expire(List<Hold> batch) {
+        List<Integer> ticketIds = new ArrayList<>(batch.size());
+        for (Hold hold : batch) {
+            ticketIds.add(hold.ticketId);
+        }
+
+        List<Ticket> expired;
+        try {
+            expired = ticketDAO.expirePendingTickets(ticketIds);
+        } catch (SQLException e) {
+            System.err.println("Error expiring seat holds, will retry: " + e.getMessage());
+            for (Hold hold : batch) {
+                schedule(hold, RETRY_DELAY_MS);
+            }
+            return;
+        }
+
+        Map<Integer, Hold> byTicket = new HashMap<>();
+        for (Hold hold : batch) {
+            byTicket.put(hold.ticketId, hold);
+            holds.remove(hold.ticketId);
+        }
+
+        SeatInventory inventory = SeatInventory.isEnabled() ? SeatInventory.getInstance() : null;
+        BookingJournal journal = BookingJournal.getIfEnabled();
+        EventCache eventCache = EventCache.isEnabled() ? EventCache.getInstance() : null;
+        SeatAllocator allocator = SeatAllocator.getInstance();
+        for (Ticket ticket : expired) {
+            Hold hold = byTicket.get(ticket.getTicketId());
+            if (inventory != null) {
+                inventory.release(ticket.getEventId(), ticket.getQuantity());
+            }
+            if (journal != null) {
+                journal.recordReleased(ticket, "EXPIRED");
+            }
+            if (eventCache != null) {
+                eventCache.seatsChanged(ticket.getEventId());
+            }
+            allocator.release(ticket.getEventId(), seatNumbersOf(hold));
+        }
+    }
+
+    private List<String> seatNumbersOf(Hold hold) {
+        if (hold.seatNumbers != null) {
+            return hold.seatNumbers;
+        }
+        // Holds restored at startup do not carry their seats
+        List<String> seatNumbers = new ArrayList<>();
+        for (TicketDetail detail : ticketDetailDAO.getTicketDetailsByTicketId(hold.ticketId)) {
+            seatNumbers.add(detail.getSeatNumber());
+        }
+        return seatNumbers;
+    }
+
+    private static final class Hold {
+        final int ticketId;
+        final List<String> seatNumbers;
+
+        Hold(int ticketId, List<String> seatNumbers) {
+            this.ticketId = ticketId;
+            this.seatNumbers = seatNumbers;
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.ticketbooking.service;
+
+import com.ticketbooking.dao.EventDAO;
+import com.ticketbooking.model.Event;
+import com.ticketbooking.util.AppConfig;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process seat inventory for flash sales.
+ *
+ * Remaining capacity per event is held in lock-free counters, so bookings are
+ * admitted or rejected without touching the events row; sold-out requests never
+ * reach the database. Admitted decrements are accumulated per event and written
+ * to events.available_seats by a background flusher, one UPDATE per event per
+ * interval, with a final flush on JVM shutdown. Failed flushes are retried.
+ *
+ * The counters assume this process is the only one booking these events.
+ * With the {@link BookingJournal} enabled, changes are journaled and the
+ * counters (and any reductions not yet flushed) are restored from the journal
+ * on startup instead of from the events table.
+ */
+public class SeatInventory {
+    private static volatile SeatInventory instance;
+
+    private final EventDAO eventDAO;
+    private final int stripeThreshold;
+    private final ConcurrentHashMap<Integer, SeatCounter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, AtomicInteger> pendingReductions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final BookingJournal journal;
+
+    SeatInventory(EventDAO eventDAO, BookingJournal journal, int stripeThreshold, long flushIntervalMs) {
+        this.eventDAO = eventDAO;
+        this.journal = journal;
+        this.stripeThreshold = stripeThreshold;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "seat-inventory-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flushQuietly, "seat-inventory-shutdown-flush"));
+    }
+
+    /**
+     * Check whether the in-memory inventory is switched on in app.properties
+     *
+     * @return true if bookings should go through the inventory
+     */
+    public static boolean isEnabled() {
+        return AppConfig.getBoolean("booking.inventory.enabled", true);
+    }
+
+    /**
+     * Get the shared inventory, seeding it from the events table on first use
+     *
+     * @return The seat inventory
+     */
+    public static SeatInventory getInstance() {
+        SeatInventory current = instance;
+        if (current == null) {
+            synchronized (SeatInventory.class) {
+                current = instance;
+                if (current == null) {
+                    current = new SeatInventory(new EventDAO(), BookingJournal.getIfEnabled(),
+                            AppConfig.getInt("booking.inventory.stripeThreshold", 5000),
+                            AppConfig.getLong("booking.inventory.flushIntervalMs", 100));
+                    if (!current.restore()) {
+                        current.seed();
+                    }
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private boolean restore() {
+        if (journal == null) {
+            return false;
+        }
+        Map<Integer, Integer> seats = journal.getAvailableSeats();
+        if (seats.isEmpty()) {
+            return false;
+        }
+        for (Map.Entry<Integer, Integer> entry : seats.entrySet()) {
+            counters.put(entry.getKey(), newCounter(entry.getValue(), entry.getValue()));
+        }
+        // Bookings the events table has not seen yet go out with the next flush
+        for (Map.Entry<Integer, Integer> entry : journal.getUnflushedReductions().entrySet()) {
+            pendingReductions.put(entry.getKey(), new AtomicInteger(entry.getValue()));
+        }
+        return true;
+    }
+
+    private void seed() {
+        try {
+            eventDAO.forEachEvent(this::track);
+        } catch (SQLException e) {
+            // Events are tracked lazily on first booking instead
+            System.err.println("Error seeding seat inventory: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Start tracking an event if it is not tracked yet
+     *
+     * @param event Event with its current available seats
+     */
+    public void track(Event event) {
+        counters.computeIfAbsent(event.getEventId(), id -> {
+            if (journal != null) {
+                journal.recordTracked(id, event.getAvailableSeats());
+            }
+            return newCounter(event);
+        });
+    }
+
+    /**
+     * Check whether an event is tracked
+     *
+     * @param eventId Event ID
+     * @return true if the inventory holds a counter for the event
+     */
+    public boolean isTracked(int eventId) {
+        return counters.containsKey(eventId);
+    }
+
+    /**
+     * Reserve seats in memory
+     *
+     * @param eventId Event ID
+     * @param quantity Number of seats
+     * @return true if the seats were reserved, false if the event is sold out or not tracked
+     */
+    public boolean tryReserve(int eventId, int quantity) {
+        SeatCounter counter = counters.get(eventId);
+        return counter != null && counter.tryAcquire(quantity);
+    }
+
+    /**
+     * Return seats reserved by a booking that was not persisted
+     *
+     * @param eventId Event ID
+     * @param quantity Number of seats
+     */
+    public void release(int eventId, int quantity) {
+        SeatCounter counter = counters.get(eventId);
+        if (counter != null) {
+            counter.release(quantity);
+        }
+    }
+
+    /**
+     * Queue a persisted booking's seat reduction for the background flusher
+     *
+     * @param eventId Event ID
+     * @param quantity Number of seats to subtract from events.available_seats
+     */
+    public void recordReduction(int eventId, int quantity) {
+        pendingReductions.computeIfAbsent(eventId, id -> new AtomicInteger()).addAndGet(quantity);
+    }
+
+    /**
+     * Get the remaining seats for an event
+     *
+     * @param eventId Event ID
+     * @return Remaining seats, or -1 if the event is not tracked
+     */
+    public int getAvailableSeats(int eventId) {
+        SeatCounter counter = counters.get(eventId);
+        return counter == null ? -1 : counter.available();
+    }
+
+    /**
+     * Move an event's remaining seats by a change in its total seats. The
+     * counter is adjusted in place, so reservations made meanwhile and
+     * reductions waiting to be flushed are kept.
+     *
+     * @param eventId Event ID
+     * @param seatChange New total seats minus the old total
+     * @return false if a reduction is larger than the seats left (nothing is changed)
+     */
+    public boolean resize(int eventId, int seatChange) {
+        SeatCounter counter = counters.get(eventId);
+        if (counter == null || seatChange == 0) {
+            return true;
+        }
+        if (seatChange < 0) {
+            if (!counter.tryAcquire(-seatChange)) {
+                return false;
+            }
+        } else {
+            counter.release(seatChange);
+        }
+        if (journal != null) {
+            journal.recordResized(eventId, seatChange);
+        }
+        return true;
+    }
+
+    /**
+     * Stop tracking an event
+     *
+     * @param eventId Event ID
+     */
+    public void remove(int eventId) {
+        counters.remove(eventId);
+        pendingReductions.remove(eventId);
+        if (journal != null) {
+            journal.recordRemoved(eventId);
+        }
+    }
+
+    /**
+     * Write all pending seat reductions to the database now
+     *
+     * @throws SQLException if the update fails (the reductions are kept for the next attempt)
+     */
+    public synchronized void flush() throws SQLException {
+        Map<Integer, Integer> batch = new HashMap<>();
+        for (Map.Entry<Integer, AtomicInteger> entry : pendingReductions.entrySet()) {
+            int seats = entry.getValue().getAndSet(0);
+            if (seats > 0) {
+                batch.put(entry.getKey(), seats);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            eventDAO.applySeatReductions(batch);
+        } catch (SQLException e) {
+            for (Map.Entry<Integer, Integer> entry : batch.entrySet()) {
+                recordReduction(entry.getKey(), entry.getValue());
+            }
+            throw e;
+        }
+        if (journal != null) {
+            for (Map.Entry<Integer, Integer> entry : batch.entrySet()) {
+                journal.recordFlushed(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Flush pending reductions, logging instead of throwing on failure
+     */
+    public void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException e) {
+            System.err.println("Error flushing seat inventory, will retry: " + e.getMessage());
+        }
+    }
+
+    private SeatCounter newCounter(Event event) {
+        return newCounter(event.getAvailableSeats(), event.getTotalSeats());
+    }
+
+    private SeatCounter newCounter(int availableSeats, int totalSeats) {
+        int available = Math.max(0, availableSeats);
+        return totalSeats >= stripeThreshold
+                ? new StripedSeatCounter(available)
+                : new AtomicSeatCounter(available);
+    }
+
+    /**
+     * Remaining-capacity counter for one event
+     */
+    interface SeatCounter {
+        boolean tryAcquire(int quantity);
+
+        void release(int quantity);
+
+        int available();
+    }
+
+    /**
+     * Single CAS counter; fine for all but the hottest events
+     */
+    static class AtomicSeatCounter implements SeatCounter {
+        private final AtomicInteger remaining;
+
+        AtomicSeatCounter(int available) {
+            this.remaining = new AtomicInteger(available);
+        }
+
+        @Override
+        public boolean tryAcquire(int quantity) {
+            while (true) {
+                int current = remaining.get();
+                if (current < quantity) {
+                    return false;
+                }
+                if (remaining.compareAndSet(current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public void release(int quantity) {
+            remaining.addAndGet(quantity);
+        }
+
+        @Override
+        public int available() {
+            return remaining.get();
+        }
+    }
+
+    /**
+     * Capacity split across padded stripes so concurrent bookers CAS on different
+     * cache lines. A booking takes from its home stripe when it can and gathers
+     * from the others when that stripe runs low.
+     */
+    static class StripedSeatCounter implements SeatCounter {
+        // 16 ints = 64 bytes, one cache line per stripe
+        private static final int PAD = 16;
+        private static final int RETRIES = 3;
+
+        private final AtomicIntegerArray cells;
+        private final int stripes;
+
+        StripedSeatCounter(int available) {
+            int n = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+            this.stripes = Math.max(2, n);
+            this.cells = new AtomicIntegerArray(stripes * PAD);
+            for (int i = 0; i < stripes; i++) {
+                cells.set(i * PAD, available / stripes + (i < available % stripes ? 1 : 0));
+            }
+        }
+
+        private int home() {
+            long id = Thread.currentThread().getId();
+            return (int) ((id ^ (id >>> 16)) & (stripes - 1));
+        }
+
+        @Override
+        public boolean tryAcquire(int quantity) {
+            for (int attempt = 0; attempt < RETRIES; attempt++) {
+                if (tryAcquireOnce(quantity)) {
+                    return true;
+                }
+                // Another booker may have been gathering across stripes; only a real
+                // shortfall is reported as sold out
+                if (available() < quantity) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        private boolean tryAcquireOnce(int quantity) {
+            int home = home();
+            for (int i = 0; i < stripes; i++) {
+                int index = ((home + i) & (stripes - 1)) * PAD;
+                int current = cells.get(index);
+                while (current >= quantity) {
+                    if (cells.compareAndSet(index, current, current - quantity)) {
+                        return true;
+                    }
+                    current = cells.get(index);
+                }
+            }
+
+            // No single stripe has enough: gather across stripes
+            int taken = 0;
+            for (int i = 0; i < stripes && taken < quantity; i++) {
+                int index = ((home + i) & (stripes - 1)) * PAD;
+                int current = cells.get(index);
+                while (current > 0) {
+                    int take = Math.min(current, quantity - taken);
+                    if (cells.compareAndSet(index, current, current - take)) {
+                        taken += take;
+                        break;
+                    }
+                    current = cells.get(index);
+                }
+            }
+            if (taken == quantity) {
+                return true;
+            }
+            if (taken > 0) {
+                release(taken);
+            }
+            return false;
+        }
+
+        @Override
+        public void release(int quantity) {
+            cells.addAndGet(home() * PAD, quantity);
+        }
+
+        @Override
+        public int available() {
+            int sum = 0;
+            for (int i = 0; i < stripes; i++) {
+                sum += cells.get(i * PAD);
+            }
+            return sum;
+        }
+    }
+}
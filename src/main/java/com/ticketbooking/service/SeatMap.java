@@ -0,0 +1,254 @@
+package com.ticketbooking.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Seat-level allocation map for one event.
+ *
+ * Each row is one 64-bit word (a set bit is a taken seat), so row widths are
+ * limited to 64 seats. Claims and releases are single-word CAS operations,
+ * and the search for N adjacent free seats is a handful of shift-and-AND
+ * steps per row, so allocation costs O(rows) rather than O(seats).
+ *
+ * Seats are labelled like "A-1": row letters (A..Z, AA, AB, ...), a dash and
+ * the 1-based seat number within the row.
+ */
+public class SeatMap {
+    public static final int MAX_ROW_WIDTH = 64;
+
+    private final int totalSeats;
+    private final int rowWidth;
+    private final long rowMask;
+    private final AtomicLongArray rows;
+
+    /**
+     * Create an empty seat map
+     *
+     * @param totalSeats Number of seats in the venue
+     * @param rowWidth Seats per row (1 to 64)
+     */
+    public SeatMap(int totalSeats, int rowWidth) {
+        if (rowWidth < 1 || rowWidth > MAX_ROW_WIDTH) {
+            throw new IllegalArgumentException("Row width must be between 1 and " + MAX_ROW_WIDTH + ": " + rowWidth);
+        }
+        this.totalSeats = Math.max(0, totalSeats);
+        this.rowWidth = rowWidth;
+        this.rowMask = rowWidth == 64 ? -1L : (1L << rowWidth) - 1;
+
+        int rowCount = (this.totalSeats + rowWidth - 1) / rowWidth;
+        this.rows = new AtomicLongArray(rowCount);
+
+        // Seats past the venue capacity in the last row are never free
+        int lastRowSeats = this.totalSeats - (rowCount - 1) * rowWidth;
+        if (rowCount > 0 && lastRowSeats < rowWidth) {
+            rows.set(rowCount - 1, rowMask & ~((1L << lastRowSeats) - 1));
+        }
+    }
+
+    /**
+     * Claim seats, preferring a contiguous block in one row
+     *
+     * @param quantity Number of seats
+     * @return Claimed seat indexes, or null if not enough seats are free
+     */
+    public int[] claim(int quantity) {
+        if (quantity <= 0) {
+            return null;
+        }
+        if (quantity <= rowWidth) {
+            int[] block = claimContiguous(quantity);
+            if (block != null) {
+                return block;
+            }
+        }
+        return claimScattered(quantity);
+    }
+
+    /**
+     * Claim N adjacent seats in a single row
+     *
+     * @param quantity Number of seats (at most the row width)
+     * @return Claimed seat indexes, or null if no row has a free block that long
+     */
+    public int[] claimContiguous(int quantity) {
+        if (quantity <= 0 || quantity > rowWidth) {
+            return null;
+        }
+        long blockMask = quantity == 64 ? -1L : (1L << quantity) - 1;
+
+        for (int row = 0; row < rows.length(); row++) {
+            while (true) {
+                long taken = rows.get(row);
+                long starts = runStarts(~taken & rowMask, quantity);
+                if (starts == 0) {
+                    break;
+                }
+                int start = Long.numberOfTrailingZeros(starts);
+                if (rows.compareAndSet(row, taken, taken | (blockMask << start))) {
+                    int[] seats = new int[quantity];
+                    for (int i = 0; i < quantity; i++) {
+                        seats[i] = row * rowWidth + start + i;
+                    }
+                    return seats;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Bits set where a run of at least {@code length} free seats begins.
+     * Doubles the run length each step: O(log length) shifts.
+     */
+    private static long runStarts(long free, int length) {
+        long starts = free;
+        int covered = 1;
+        while (covered < length && starts != 0) {
+            int shift = Math.min(covered, length - covered);
+            starts &= starts >>> shift;
+            covered += shift;
+        }
+        return starts;
+    }
+
+    private int[] claimScattered(int quantity) {
+        int[] seats = new int[quantity];
+        int claimed = 0;
+
+        for (int row = 0; row < rows.length() && claimed < quantity; row++) {
+            while (claimed < quantity) {
+                long taken = rows.get(row);
+                long free = ~taken & rowMask;
+                if (free == 0) {
+                    break;
+                }
+                long bit = Long.lowestOneBit(free);
+                if (rows.compareAndSet(row, taken, taken | bit)) {
+                    seats[claimed++] = row * rowWidth + Long.numberOfTrailingZeros(bit);
+                }
+            }
+        }
+
+        if (claimed < quantity) {
+            for (int i = 0; i < claimed; i++) {
+                release(seats[i]);
+            }
+            return null;
+        }
+        return seats;
+    }
+
+    /**
+     * Mark a seat as taken (used when loading existing bookings)
+     *
+     * @param seatIndex Seat index
+     * @return true if the seat was free
+     */
+    public boolean markTaken(int seatIndex) {
+        if (seatIndex < 0 || seatIndex >= totalSeats) {
+            return false;
+        }
+        int row = seatIndex / rowWidth;
+        long bit = 1L << (seatIndex % rowWidth);
+        while (true) {
+            long taken = rows.get(row);
+            if ((taken & bit) != 0) {
+                return false;
+            }
+            if (rows.compareAndSet(row, taken, taken | bit)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Free a seat
+     *
+     * @param seatIndex Seat index
+     */
+    public void release(int seatIndex) {
+        if (seatIndex < 0 || seatIndex >= totalSeats) {
+            return;
+        }
+        int row = seatIndex / rowWidth;
+        long bit = 1L << (seatIndex % rowWidth);
+        while (true) {
+            long taken = rows.get(row);
+            if ((taken & bit) == 0 || rows.compareAndSet(row, taken, taken & ~bit)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Count free seats
+     *
+     * @return Number of free seats
+     */
+    public int freeSeats() {
+        int free = 0;
+        for (int row = 0; row < rows.length(); row++) {
+            free += Long.bitCount(~rows.get(row) & rowMask);
+        }
+        return free;
+    }
+
+    /**
+     * Get the label for a seat index, e.g. 0 -> "A-1", 12 -> "B-3" with 10 seats per row
+     *
+     * @param seatIndex Seat index
+     * @return Seat label
+     */
+    public String label(int seatIndex) {
+        return rowLabel(seatIndex / rowWidth) + "-" + (seatIndex % rowWidth + 1);
+    }
+
+    /**
+     * Parse a seat label back to its index
+     *
+     * @param label Seat label such as "A-1"
+     * @return Seat index, or -1 if the label is not valid for this map
+     */
+    public int indexOf(String label) {
+        if (label == null) {
+            return -1;
+        }
+        int dash = label.indexOf('-');
+        if (dash <= 0 || dash == label.length() - 1) {
+            return -1;
+        }
+
+        int row = 0;
+        for (int i = 0; i < dash; i++) {
+            char c = Character.toUpperCase(label.charAt(i));
+            if (c < 'A' || c > 'Z') {
+                return -1;
+            }
+            row = row * 26 + (c - 'A' + 1);
+        }
+        row -= 1;
+
+        int seat;
+        try {
+            seat = Integer.parseInt(label.substring(dash + 1).trim()) - 1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if (seat < 0 || seat >= rowWidth) {
+            return -1;
+        }
+        int index = row * rowWidth + seat;
+        return index < totalSeats ? index : -1;
+    }
+
+    private static String rowLabel(int row) {
+        StringBuilder sb = new StringBuilder();
+        int n = row + 1;
+        while (n > 0) {
+            n--;
+            sb.append((char) ('A' + n % 26));
+            n /= 26;
+        }
+        return sb.reverse().toString();
+    }
+}
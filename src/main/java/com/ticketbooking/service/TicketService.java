@@ -2,26 +2,40 @@ package com.ticketbooking.service;
 
 import com.ticketbooking.dao.TicketDAO;
 import com.ticketbooking.dao.TicketDetailDAO;
-import com.ticketbooking.model.Event;
 import com.ticketbooking.model.Ticket;
 import com.ticketbooking.model.TicketDetail;
+import com.ticketbooking.model.TicketSummary;
+import com.ticketbooking.util.AppConfig;
+import com.ticketbooking.util.DatabaseExecutor;
+import com.ticketbooking.util.DatabaseUtil;
+import com.ticketbooking.util.FlightEvents;
+import com.ticketbooking.util.IdempotencyCache;
+import com.ticketbooking.util.Metrics;
 
 import java.sql.SQLException;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service class for handling ticket-related business logic
  */
 public class TicketService {
+    // Shared by every TicketService so a retry is recognised whichever screen sends it
+    private static final IdempotencyCache<Ticket> BOOKING_REQUESTS = new IdempotencyCache<>(
+            AppConfig.getInt("booking.idempotency.maxEntries", 100000),
+            AppConfig.getLong("booking.idempotency.ttlSeconds", 600) * 1000);
+    
     private TicketDAO ticketDAO;
     private TicketDetailDAO ticketDetailDAO;
-    private EventService eventService;
+    private BookingService bookingService;
+    private AdmissionQueue admissionQueue;
     
     public TicketService() throws SQLException {
         this.ticketDAO = new TicketDAO();
         this.ticketDetailDAO = new TicketDetailDAO();
-        this.eventService = new EventService();
+        this.bookingService = new BookingService();
+        this.admissionQueue = AdmissionQueue.isEnabled() ? AdmissionQueue.getInstance() : null;
     }
     
     /**
@@ -34,34 +48,121 @@ public class TicketService {
      * @return Created ticket or null if booking failed
      */
     public Ticket bookTickets(int eventId, int userId, int quantity, List<String> attendeeNames) throws SQLException {
-        // Check if event exists and has enough seats
-        Event event = eventService.getEventById(eventId);
-        if (event == null || event.getAvailableSeats() < quantity) {
+        return Metrics.time("TicketService.bookTickets", () -> book(eventId, userId, quantity, attendeeNames, null));
+    }
+    
+    /**
+     * Book tickets at most once per client request. Repeating a request ID
+     * (a double click or a retry after a timeout) returns the ticket booked
+     * the first time without reserving seats again.
+     * 
+     * @param eventId Event ID
+     * @param userId User ID
+     * @param quantity Number of tickets
+     * @param attendeeNames List of attendee names
+     * @param requestId Idempotency key chosen by the client (null books unconditionally)
+     * @return Created or previously booked ticket, or null if booking failed
+     */
+    public Ticket bookTickets(int eventId, int userId, int quantity, List<String> attendeeNames,
+                              String requestId) throws SQLException {
+        return Metrics.time("TicketService.bookTickets", () -> {
+            if (requestId == null) {
+                return book(eventId, userId, quantity, attendeeNames, null);
+            }
+            return BOOKING_REQUESTS.execute(requestId, () -> {
+                try {
+                    return book(eventId, userId, quantity, attendeeNames, requestId);
+                } catch (SQLException e) {
+                    if (!DatabaseUtil.isDuplicateKey(e)) {
+                        throw e;
+                    }
+                    // Booked before this process last saw the key (evicted, or booked by another instance)
+                    return ticketDAO.getTicketByRequestId(requestId);
+                }
+            });
+        });
+    }
+    
+    /**
+     * Book tickets at most once per client request, without blocking the caller
+     * 
+     * @param eventId Event ID
+     * @param userId User ID
+     * @param quantity Number of tickets
+     * @param attendeeNames List of attendee names
+     * @param requestId Idempotency key chosen by the client (null books unconditionally)
+     * @return Future of the created or previously booked ticket, or of null if booking failed
+     */
+    public CompletableFuture<Ticket> bookTicketsAsync(int eventId, int userId, int quantity,
+                                                      List<String> attendeeNames, String requestId) {
+        return DatabaseExecutor.getInstance().submit(
+                () -> bookTickets(eventId, userId, quantity, attendeeNames, requestId));
+    }
+    
+    private Ticket book(int eventId, int userId, int quantity, List<String> attendeeNames,
+                        String requestId) throws SQLException {
+        return FlightEvents.booking(eventId, quantity, () -> {
+            if (admissionQueue == null) {
+                // Seats, ticket and details are written in one transaction
+                return bookingService.book(eventId, userId, quantity, attendeeNames, requestId);
+            }
+            return bookAdmitted(queueForBooking(eventId), userId, quantity, attendeeNames, requestId);
+        });
+    }
+    
+    /**
+     * Join the booking queue for an event. The returned entry reports the
+     * caller's queue position and estimated wait until it is passed to
+     * {@link #bookTickets(AdmissionQueue.Entry, int, int, List)}.
+     * 
+     * @param eventId Event ID
+     * @return Queue entry, or null if the event is sold out or the queue is full
+     */
+    public AdmissionQueue.Entry queueForBooking(int eventId) {
+        return Metrics.time("TicketService.queueForBooking", () -> {
+            if (admissionQueue == null) {
+                throw new IllegalStateException("Booking admission queue is disabled");
+            }
+            return admissionQueue.enter(eventId);
+        });
+    }
+    
+    /**
+     * Wait for admission with a queue entry, then book
+     * 
+     * @param entry Entry from queueForBooking (null books nothing)
+     * @param userId User ID
+     * @param quantity Number of tickets
+     * @param attendeeNames List of attendee names
+     * @return Created ticket, or null if sold out, the wait timed out or booking failed
+     */
+    public Ticket bookTickets(AdmissionQueue.Entry entry, int userId, int quantity, List<String> attendeeNames) throws SQLException {
+        return Metrics.time("TicketService.bookTickets", () -> entry == null ? null
+                : FlightEvents.booking(entry.getEventId(), quantity,
+                        () -> bookAdmitted(entry, userId, quantity, attendeeNames, null)));
+    }
+    
+    private Ticket bookAdmitted(AdmissionQueue.Entry entry, int userId, int quantity, List<String> attendeeNames,
+                                String requestId) throws SQLException {
+        if (entry == null) {
             return null;
         }
-        
-        // Calculate total price
-        double totalPrice = event.getTicketPrice() * quantity;
-        
-        // Create ticket
-        Ticket ticket = new Ticket(eventId, userId, quantity, totalPrice, "PENDING");
-        ticket = ticketDAO.createTicket(ticket);
-        
-        if (ticket != null) {
-            // Create ticket details
-            List<TicketDetail> details = new ArrayList<>();
-            for (int i = 0; i < quantity; i++) {
-                String seatNumber = generateSeatNumber(event, i + 1);
-                String attendeeName = (i < attendeeNames.size()) ? attendeeNames.get(i) : "Guest";
-                
-                TicketDetail detail = new TicketDetail(ticket.getTicketId(), seatNumber, attendeeName);
-                details.add(detail);
+        try {
+            if (!entry.awaitAdmission()) {
+                return null;
+            }
+            Ticket ticket = bookingService.book(entry.getEventId(), userId, quantity, attendeeNames, requestId);
+            if (ticket == null && SeatInventory.isEnabled()
+                    && SeatInventory.getInstance().getAvailableSeats(entry.getEventId()) == 0) {
+                admissionQueue.shed(entry.getEventId());
             }
-            
-            ticketDetailDAO.createTicketDetailsBatch(details);
+            return ticket;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting in the booking queue", e);
+        } finally {
+            entry.leave();
         }
-        
-        return ticket;
     }
     
     /**
@@ -71,7 +172,7 @@ public class TicketService {
      * @return Ticket object if found, null otherwise
      */
     public Ticket getTicketById(int ticketId) {
-        return ticketDAO.getTicketById(ticketId);
+        return Metrics.time("TicketService.getTicketById", () -> ticketDAO.getTicketById(ticketId));
     }
     
     /**
@@ -81,7 +182,41 @@ public class TicketService {
      * @return List of tickets for the user
      */
     public List<Ticket> getTicketsByUserId(int userId) throws SQLException {
-        return ticketDAO.getTicketsByUserId(userId);
+        return Metrics.time("TicketService.getTicketsByUserId", () -> ticketDAO.getTicketsByUserId(userId));
+    }
+    
+    /**
+     * Get tickets by user ID without blocking the caller
+     * 
+     * @param userId User ID
+     * @return Future of the user's tickets
+     */
+    public CompletableFuture<List<Ticket>> getTicketsByUserIdAsync(int userId) {
+        return DatabaseExecutor.getInstance().submit(() -> getTicketsByUserId(userId));
+    }
+    
+    /**
+     * Get one page of a user's tickets with event names, newest first
+     * 
+     * @param userId User ID
+     * @param offset Number of tickets to skip
+     * @param limit Maximum number of tickets to return
+     * @return Ticket summaries for the page
+     */
+    public List<TicketSummary> getTicketSummaries(int userId, int offset, int limit) throws SQLException {
+        return Metrics.time("TicketService.getTicketSummaries", () -> ticketDAO.getTicketSummariesByUserId(userId, offset, limit));
+    }
+    
+    /**
+     * Get one page of a user's tickets with their event names without blocking the caller
+     * 
+     * @param userId User ID
+     * @param offset Number of tickets to skip
+     * @param limit Maximum number of tickets to return
+     * @return Future of the page of ticket summaries
+     */
+    public CompletableFuture<List<TicketSummary>> getTicketSummariesAsync(int userId, int offset, int limit) {
+        return DatabaseExecutor.getInstance().submit(() -> getTicketSummaries(userId, offset, limit));
     }
     
     /**
@@ -91,7 +226,7 @@ public class TicketService {
      * @return List of tickets for the event
      */
     public List<Ticket> getTicketsByEventId(int eventId) throws SQLException {
-        return ticketDAO.getTicketsByEventId(eventId);
+        return Metrics.time("TicketService.getTicketsByEventId", () -> ticketDAO.getTicketsByEventId(eventId));
     }
     
     /**
@@ -101,7 +236,17 @@ public class TicketService {
      * @return true if cancellation successful, false otherwise
      */
     public boolean cancelTicket(int ticketId) throws SQLException {
-        return ticketDAO.cancelTicket(ticketId);
+        return Metrics.time("TicketService.cancelTicket", () -> bookingService.cancel(ticketId));
+    }
+    
+    /**
+     * Cancel a ticket without blocking the caller
+     * 
+     * @param ticketId Ticket ID
+     * @return Future of whether the ticket was cancelled
+     */
+    public CompletableFuture<Boolean> cancelTicketAsync(int ticketId) {
+        return DatabaseExecutor.getInstance().submit(() -> cancelTicket(ticketId));
     }
     
     /**
@@ -111,55 +256,42 @@ public class TicketService {
      * @return List of ticket details
      */
     public List<TicketDetail> getTicketDetails(int ticketId) {
-        return ticketDetailDAO.getTicketDetailsByTicketId(ticketId);
+        return Metrics.time("TicketService.getTicketDetails", () -> ticketDetailDAO.getTicketDetailsByTicketId(ticketId));
     }
     
     /**
-     * Generate a seat number
+     * Book tickets for an event without attendee names (seats are booked as "Guest")
      * 
-     * @param event Event
-     * @param seatIndex Seat index
-     * @return Generated seat number
+     * @param eventId Event ID
+     * @param userId User ID
+     * @param quantity Number of tickets
+     * @return Created ticket or null if booking failed
      */
-    private String generateSeatNumber(Event event, int seatIndex) {
-        // Simple seat number generation logic
-        // For more complex venues, this would be more sophisticated
-        int row = (seatIndex - 1) / 10 + 1;
-        int seat = (seatIndex - 1) % 10 + 1;
-        
-        char rowChar = (char)('A' + row - 1);
-        return rowChar + "-" + seat;
-    }
-
     public Ticket bookTicket(int eventId, int userId, int quantity) throws SQLException {
-        // Check if event exists and has enough seats
-        Event event = eventService.getEventById(eventId);
-        if (event == null) {
-            return null;
-        }
-        
-        // Check available seats
-        if (event.getAvailableSeats() < quantity) {
-            return null;
-        }
-        
-        // Calculate total price
-        double totalPrice = event.getTicketPrice() * quantity;
-        
-        // Create ticket
-        Ticket ticket = new Ticket();
-        ticket.setEventId(eventId);
-        ticket.setUserId(userId);
-        ticket.setQuantity(quantity);
-        ticket.setTotalPrice(totalPrice);
-        ticket.setPaymentStatus("PENDING");
-        
-        // Save ticket to database
-        return ticketDAO.createTicket(ticket);
+        return Metrics.time("TicketService.bookTicket", () -> bookTickets(eventId, userId, quantity, Collections.<String>emptyList()));
+    }
+    
+    /**
+     * Book tickets without blocking the caller
+     * 
+     * @param eventId Event ID
+     * @param userId User ID
+     * @param quantity Number of tickets
+     * @return Future of the created ticket, or of null if booking failed
+     */
+    public CompletableFuture<Ticket> bookTicketAsync(int eventId, int userId, int quantity) {
+        return DatabaseExecutor.getInstance().submit(() -> bookTicket(eventId, userId, quantity));
     }
 
+    /**
+     * Record payment for a pending ticket
+     * 
+     * @param ticketId Ticket ID
+     * @param status New payment status
+     * @return true if updated, false if the ticket is no longer pending (e.g. its seat hold expired)
+     */
     public boolean updatePaymentStatus(int ticketId, String status) throws SQLException {
-        return ticketDAO.updatePaymentStatus(ticketId, status);
+        return Metrics.time("TicketService.updatePaymentStatus", () -> bookingService.confirm(ticketId, status));
     }
 
     public String generateSeatNumber(int row, int seat) throws SQLException {
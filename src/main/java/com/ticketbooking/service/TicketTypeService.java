@@ -2,9 +2,12 @@ package com.ticketbooking.service;
 
 import com.ticketbooking.dao.TicketTypeDAO;
 import com.ticketbooking.model.TicketType;
+import com.ticketbooking.util.Metrics;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public class TicketTypeService {
     private TicketTypeDAO ticketTypeDAO;
@@ -14,22 +17,30 @@ public class TicketTypeService {
     }
 
     public boolean addTicketType(TicketType ticketType) throws SQLException {
-        return ticketTypeDAO.addTicketType(ticketType);
+        return Metrics.time("TicketTypeService.addTicketType", () -> ticketTypeDAO.addTicketType(ticketType));
     }
 
     public boolean updateTicketType(TicketType ticketType) throws SQLException {
-        return ticketTypeDAO.updateTicketType(ticketType);
+        return Metrics.time("TicketTypeService.updateTicketType", () -> ticketTypeDAO.updateTicketType(ticketType));
     }
 
     public List<TicketType> getTicketTypesByEventId(int eventId) throws SQLException {
-        return ticketTypeDAO.getTicketTypesByEventId(eventId);
+        return Metrics.time("TicketTypeService.getTicketTypesByEventId", () -> ticketTypeDAO.getTicketTypesByEventId(eventId));
+    }
+
+    public List<TicketType> getAllTicketTypesWithEventNames() throws SQLException {
+        return Metrics.time("TicketTypeService.getAllTicketTypesWithEventNames", () -> ticketTypeDAO.getAllTicketTypesWithEventNames());
+    }
+
+    public Map<Integer, List<TicketType>> getTicketTypesByEventIds(Collection<Integer> eventIds) throws SQLException {
+        return Metrics.time("TicketTypeService.getTicketTypesByEventIds", () -> ticketTypeDAO.getTicketTypesByEventIds(eventIds));
     }
 
     public boolean deleteTicketType(int ticketTypeId) throws SQLException {
-        return ticketTypeDAO.deleteTicketType(ticketTypeId);
+        return Metrics.time("TicketTypeService.deleteTicketType", () -> ticketTypeDAO.deleteTicketType(ticketTypeId));
     }
 
     public boolean updateAvailableQuantity(int ticketTypeId, int quantity) throws SQLException {
-        return ticketTypeDAO.updateAvailableQuantity(ticketTypeId, quantity);
+        return Metrics.time("TicketTypeService.updateAvailableQuantity", () -> ticketTypeDAO.updateAvailableQuantity(ticketTypeId, quantity));
     }
 } 
\ No newline at end of file
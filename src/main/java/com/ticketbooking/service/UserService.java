@@ -2,6 +2,7 @@ package com.ticketbooking.service;
 
 import com.ticketbooking.dao.UserDAO;
 import com.ticketbooking.model.User;
+import com.ticketbooking.util.Metrics;
 
 import java.sql.SQLException;
 import java.util.List;
@@ -25,19 +26,21 @@ public class UserService {
      * @throws SQLException if database error occurs
      */
     public User authenticate(String username, String password) throws SQLException {
-        if (username == null || password == null || username.trim().isEmpty() || password.trim().isEmpty()) {
-            return null;
-        }
+        return Metrics.time("UserService.authenticate", () -> {
+            if (username == null || password == null || username.trim().isEmpty() || password.trim().isEmpty()) {
+                return null;
+            }
         
-        // Try to get user by credentials
-        User user = userDAO.getUserByCredentials(username, password);
+            // Try to get user by credentials
+            User user = userDAO.getUserByCredentials(username, password);
         
-        if (user != null) {
-            // Clear sensitive data before returning
-            user.setPassword(null);
-        }
+            if (user != null) {
+                // Clear sensitive data before returning
+                user.setPassword(null);
+            }
         
-        return user;
+            return user;
+        });
     }
     
     /**
@@ -51,14 +54,16 @@ public class UserService {
      * @return Created user or null if registration failed
      */
     public User register(String username, String password, String fullName, String email, String phone) {
-        // Check if username already exists
-        if (userDAO.getUserByUsername(username) != null) {
-            return null;
-        }
+        return Metrics.time("UserService.register", () -> {
+            // Check if username already exists
+            if (userDAO.getUserByUsername(username) != null) {
+                return null;
+            }
         
-        // Create new user with USER role
-        User user = new User(username, password, fullName, email, phone, "USER");
-        return userDAO.createUser(user);
+            // Create new user with USER role
+            User user = new User(username, password, fullName, email, phone, "USER");
+            return userDAO.createUser(user);
+        });
     }
     
     /**
@@ -68,7 +73,7 @@ public class UserService {
      * @return User object if found, null otherwise
      */
     public User getUserById(int userId) {
-        return userDAO.getUserById(userId);
+        return Metrics.time("UserService.getUserById", () -> userDAO.getUserById(userId));
     }
     
     /**
@@ -77,7 +82,7 @@ public class UserService {
      * @return List of all users
      */
     public List<User> getAllUsers() {
-        return userDAO.getAllUsers();
+        return Metrics.time("UserService.getAllUsers", () -> userDAO.getAllUsers());
     }
     
     /**
@@ -87,7 +92,7 @@ public class UserService {
      * @return true if update successful, false otherwise
      */
     public boolean updateUser(User user) {
-        return userDAO.updateUser(user);
+        return Metrics.time("UserService.updateUser", () -> userDAO.updateUser(user));
     }
     
     /**
@@ -97,7 +102,7 @@ public class UserService {
      * @return true if deletion successful, false otherwise
      */
     public boolean deleteUser(int userId) {
-        return userDAO.deleteUser(userId);
+        return Metrics.time("UserService.deleteUser", () -> userDAO.deleteUser(userId));
     }
     
     /**
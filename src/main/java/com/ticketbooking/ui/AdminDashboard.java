@@ -1,11 +1,12 @@
 package com.ticketbooking.ui;
 
 import com.ticketbooking.model.Event;
+import com.ticketbooking.model.EventSalesSummary;
+import com.ticketbooking.model.TicketTypeSales;
 import com.ticketbooking.model.TicketType;
-import com.ticketbooking.model.Ticket;
 import com.ticketbooking.service.EventService;
+import com.ticketbooking.service.ReportService;
 import com.ticketbooking.service.TicketTypeService;
-import com.ticketbooking.service.TicketService;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -27,6 +28,7 @@ public class AdminDashboard extends JFrame {
     private DefaultTableModel ticketTypesTableModel;
     private EventService eventService;
     private TicketTypeService ticketTypeService;
+    private ReportService reportService;
 
     public AdminDashboard() {
         setTitle("Admin Dashboard - Event Ticket Booking System");
@@ -54,6 +56,7 @@ public class AdminDashboard extends JFrame {
             System.out.println("Initializing services...");
             eventService = new EventService();
             ticketTypeService = new TicketTypeService();
+            reportService = new ReportService();
             System.out.println("Services initialized successfully");
 
             System.out.println("Initializing components...");
@@ -230,6 +233,12 @@ public class AdminDashboard extends JFrame {
         reportButtonsPanel.add(bookingSummaryBtn);
         reportButtonsPanel.add(Box.createVerticalStrut(20));
         reportButtonsPanel.add(revenueReportBtn);
+        if (reportService.usesSalesTotals()) {
+            JButton rebuildTotalsBtn = createReportButton("Recalculate Totals", "Rebuild the report totals from all tickets");
+            rebuildTotalsBtn.addActionListener(e -> rebuildSalesTotals());
+            reportButtonsPanel.add(Box.createVerticalStrut(20));
+            reportButtonsPanel.add(rebuildTotalsBtn);
+        }
         
         reportContent.add(reportsTitle);
         reportContent.add(reportButtonsPanel);
@@ -358,20 +367,18 @@ public class AdminDashboard extends JFrame {
     private void loadTicketTypes() {
         try {
             ticketTypesTableModel.setRowCount(0);
-            List<Event> events = eventService.getAllEvents();
+            // One query returns every ticket type with its event name
+            List<TicketType> ticketTypes = ticketTypeService.getAllTicketTypesWithEventNames();
             
-            for (Event event : events) {
-                List<TicketType> ticketTypes = ticketTypeService.getTicketTypesByEventId(event.getEventId());
-                for (TicketType type : ticketTypes) {
-                    ticketTypesTableModel.addRow(new Object[]{
-                        type.getTicketTypeId(),
-                        event.getEventName(),
-                        type.getCategory(),
-                        String.format("$%.2f", type.getPrice()),
-                        type.getAvailableQuantity(),
-                        type.isActive() ? "Active" : "Inactive"
-                    });
-                }
+            for (TicketType type : ticketTypes) {
+                ticketTypesTableModel.addRow(new Object[]{
+                    type.getTicketTypeId(),
+                    type.getEventName(),
+                    type.getCategory(),
+                    String.format("$%.2f", type.getPrice()),
+                    type.getAvailableQuantity(),
+                    type.isActive() ? "Active" : "Inactive"
+                });
             }
         } catch (SQLException e) {
             JOptionPane.showMessageDialog(this, "Error loading ticket types: " + e.getMessage(),
@@ -831,49 +838,20 @@ public class AdminDashboard extends JFrame {
             JTable summaryTable = new JTable(model);
             JScrollPane scrollPane = new JScrollPane(summaryTable);
 
-            // Get all events
-            List<Event> events = eventService.getAllEvents();
+            // One grouped query covers every event
+            List<EventSalesSummary> summaries = reportService.getBookingSummary();
             double totalRevenue = 0;
-            
-            // Create TicketService instance to query ticket data
-            TicketService ticketService = new TicketService();
 
-            // Populate table with booking summary for each event
-            for (Event event : events) {
-                // Get all tickets for this event to calculate accurate booking numbers
-                List<Ticket> eventTickets = ticketService.getTicketsByEventId(event.getEventId());
-                
-                // Count only paid tickets
-                int paidTickets = 0;
-                double eventRevenue = 0;
-                
-                for (Ticket ticket : eventTickets) {
-                    if ("PAID".equals(ticket.getPaymentStatus())) {
-                        paidTickets += ticket.getQuantity();
-                        eventRevenue += ticket.getTotalPrice();
-                    }
-                }
-                
-                // Get event's total tickets from ticket types
-                List<TicketType> ticketTypes = ticketTypeService.getTicketTypesByEventId(event.getEventId());
-                int totalTickets = 0;
-                
-                for (TicketType type : ticketTypes) {
-                    totalTickets += type.getAvailableQuantity();
-                }
-                
-                // Calculate available tickets
-                int availableTickets = totalTickets - paidTickets;
-                
+            for (EventSalesSummary summary : summaries) {
                 model.addRow(new Object[]{
-                    event.getEventName(),
-                    totalTickets,
-                    paidTickets,
-                    availableTickets,
-                    String.format("$%.2f", eventRevenue)
+                    summary.getEventName(),
+                    summary.getTotalTickets(),
+                    summary.getBookedTickets(),
+                    summary.getAvailableTickets(),
+                    String.format("$%.2f", summary.getRevenue())
                 });
 
-                totalRevenue += eventRevenue;
+                totalRevenue += summary.getRevenue();
             }
 
             // Add total row
@@ -905,6 +883,29 @@ public class AdminDashboard extends JFrame {
         }
     }
 
+    private void rebuildSalesTotals() {
+        int confirm = JOptionPane.showConfirmDialog(this,
+            "Recalculate the report totals from all tickets?",
+            "Confirm Recalculation",
+            JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+        
+        try {
+            int rows = reportService.rebuildSalesTotals();
+            JOptionPane.showMessageDialog(this,
+                "Report totals recalculated (" + rows + " summary rows).",
+                "Success",
+                JOptionPane.INFORMATION_MESSAGE);
+        } catch (SQLException e) {
+            JOptionPane.showMessageDialog(this,
+                "Error recalculating report totals: " + e.getMessage(),
+                "Error",
+                JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private void showRevenueReport() {
         try {
             // Create a dialog to show revenue report
@@ -919,57 +920,37 @@ public class AdminDashboard extends JFrame {
             JTable revenueTable = new JTable(model);
             JScrollPane scrollPane = new JScrollPane(revenueTable);
 
-            // Get all events
-            List<Event> events = eventService.getAllEvents();
+            // One grouped query covers every event and ticket type
+            List<TicketTypeSales> sales = reportService.getRevenueByTicketType();
             double totalRevenue = 0;
-            
-            // Create TicketService instance to query ticket data
-            TicketService ticketService = new TicketService();
-            
-            // Populate table with revenue details for each event and ticket type
-            for (Event event : events) {
-                List<TicketType> ticketTypes = ticketTypeService.getTicketTypesByEventId(event.getEventId());
-                double eventRevenue = 0;
-                
-                // Get all tickets for this event
-                List<Ticket> eventTickets = ticketService.getTicketsByEventId(event.getEventId());
-                
-                for (TicketType type : ticketTypes) {
-                    // Calculate sold tickets from actual tickets data
-                    int soldTickets = 0;
-                    double typeRevenue = 0;
-                    
-                    // In a real implementation, we would match tickets to ticket types
-                    // For now, we'll just calculate based on the price
-                    for (Ticket ticket : eventTickets) {
-                        if ("PAID".equals(ticket.getPaymentStatus()) && 
-                            Math.abs(ticket.getTotalPrice()/ticket.getQuantity() - type.getPrice()) < 0.01) {
-                            soldTickets += ticket.getQuantity();
-                            typeRevenue += ticket.getTotalPrice();
-                        }
-                    }
+            double eventRevenue = 0;
 
+            for (int i = 0; i < sales.size(); i++) {
+                TicketTypeSales typeSales = sales.get(i);
+                if (typeSales.getTicketTypeId() != 0) {
                     model.addRow(new Object[]{
-                        event.getEventName(),
-                        type.getCategory(),
-                        String.format("$%.2f", type.getPrice()),
-                        soldTickets,
-                        String.format("$%.2f", typeRevenue)
+                        typeSales.getEventName(),
+                        typeSales.getCategory(),
+                        String.format("$%.2f", typeSales.getPrice()),
+                        typeSales.getSold(),
+                        String.format("$%.2f", typeSales.getRevenue())
                     });
-
-                    eventRevenue += typeRevenue;
+                    eventRevenue += typeSales.getRevenue();
                 }
 
-                // Add event subtotal
-                model.addRow(new Object[]{
-                    event.getEventName() + " (Subtotal)",
-                    "-",
-                    "-",
-                    "-",
-                    String.format("$%.2f", eventRevenue)
-                });
+                // Rows arrive grouped by event; close the group with its subtotal
+                if (i + 1 == sales.size() || sales.get(i + 1).getEventId() != typeSales.getEventId()) {
+                    model.addRow(new Object[]{
+                        typeSales.getEventName() + " (Subtotal)",
+                        "-",
+                        "-",
+                        "-",
+                        String.format("$%.2f", eventRevenue)
+                    });
 
-                totalRevenue += eventRevenue;
+                    totalRevenue += eventRevenue;
+                    eventRevenue = 0;
+                }
             }
 
             // Add grand total
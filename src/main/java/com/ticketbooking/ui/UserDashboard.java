@@ -2,6 +2,7 @@ package com.ticketbooking.ui;
 
 import com.ticketbooking.model.Event;
 import com.ticketbooking.model.Ticket;
+import com.ticketbooking.model.TicketSummary;
 import com.ticketbooking.model.User;
 import com.ticketbooking.service.EventService;
 import com.ticketbooking.service.TicketService;
@@ -12,12 +13,17 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
 
 /**
  * Dashboard for regular users
  */
 public class UserDashboard extends JFrame {
+    private static final int TICKETS_PAGE_SIZE = 50;
+    
     private User currentUser;
     private EventService eventService;
     private TicketService ticketService;
@@ -28,6 +34,15 @@ public class UserDashboard extends JFrame {
     private DefaultTableModel eventsTableModel;
     private DefaultTableModel myTicketsTableModel;
     private JButton btnLogout;
+    private JButton btnMoreTickets;
+    private int ticketsLoaded;
+    // Bumped by every reload so results of an older, slower load are dropped
+    private int eventsGeneration;
+    private int ticketsGeneration;
+    
+    // Request ID of a booking that failed with an error, reused if the user retries it
+    private String retryBookingKey;
+    private String retryBookingRequestId;
     
     public UserDashboard(User user) {
         this.currentUser = user;
@@ -153,6 +168,9 @@ public class UserDashboard extends JFrame {
         btnViewTicket.setForeground(Color.BLACK);
         JButton btnCancelTicket = new JButton("Cancel Ticket");
         btnCancelTicket.setForeground(Color.BLACK);
+        btnMoreTickets = new JButton("Load More");
+        btnMoreTickets.setForeground(Color.BLACK);
+        btnMoreTickets.setEnabled(false);
         
         // Add action listeners
         btnViewTicket.addActionListener(new ActionListener() {
@@ -169,6 +187,14 @@ public class UserDashboard extends JFrame {
             }
         });
         
+        btnMoreTickets.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                loadMoreTickets();
+            }
+        });
+        
+        buttonPanel.add(btnMoreTickets);
         buttonPanel.add(btnViewTicket);
         buttonPanel.add(btnCancelTicket);
         
@@ -180,51 +206,80 @@ public class UserDashboard extends JFrame {
     }
     
     private void loadEvents() {
-        // Clear table
-        eventsTableModel.setRowCount(0);
-        
-        // Get upcoming events
-        List<Event> events = eventService.getUpcomingEvents();
-        
-        // Add events to table
-        for (Event event : events) {
-            Object[] row = {
-                event.getEventId(),
-                event.getEventName(),
-                event.getVenue(),
-                event.getEventDate(),
-                event.getEventTime(),
-                event.getAvailableSeats(),
-                "$" + event.getTicketPrice()
-            };
-            eventsTableModel.addRow(row);
-        }
+        int generation = ++eventsGeneration;
+        
+        // Get upcoming events off the event dispatch thread, then fill the table on it
+        eventService.getUpcomingEventsAsync().whenCompleteAsync((events, error) -> {
+            if (generation != eventsGeneration) {
+                return;
+            }
+            if (error != null) {
+                showLoadError("events", error);
+                return;
+            }
+            
+            // Clear table
+            eventsTableModel.setRowCount(0);
+            
+            // Add events to table
+            for (Event event : events) {
+                Object[] row = {
+                    event.getEventId(),
+                    event.getEventName(),
+                    event.getVenue(),
+                    event.getEventDate(),
+                    event.getEventTime(),
+                    event.getAvailableSeats(),
+                    "$" + event.getTicketPrice()
+                };
+                eventsTableModel.addRow(row);
+            }
+        }, SwingUtilities::invokeLater);
     }
     
     private void loadTickets() {
-        try {
-            List<Ticket> tickets = ticketService.getTicketsByUserId(currentUser.getUserId());
-            myTicketsTableModel.setRowCount(0);
-            
-            for (Ticket ticket : tickets) {
-                Event event = eventService.getEventById(ticket.getEventId());
-                if (event != null) {
-                    myTicketsTableModel.addRow(new Object[]{
-                        ticket.getTicketId(),
-                        event.getEventName(),
-                        ticket.getQuantity(),
-                        String.format("$%.2f", ticket.getTotalPrice()),
-                        ticket.getBookingDate(),
-                        ticket.getPaymentStatus()
-                    });
-                }
+        myTicketsTableModel.setRowCount(0);
+        ticketsLoaded = 0;
+        ticketsGeneration++;
+        loadMoreTickets();
+    }
+    
+    private void loadMoreTickets() {
+        int generation = ticketsGeneration;
+        btnMoreTickets.setEnabled(false);
+        
+        // Tickets come joined with their event names, one page per query
+        ticketService.getTicketSummariesAsync(currentUser.getUserId(), ticketsLoaded, TICKETS_PAGE_SIZE)
+                .whenCompleteAsync((tickets, error) -> {
+            if (generation != ticketsGeneration) {
+                return;
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                "Error loading tickets: " + e.getMessage(),
-                "Error",
-                JOptionPane.ERROR_MESSAGE);
-        }
+            if (error != null) {
+                showLoadError("tickets", error);
+                return;
+            }
+            
+            for (TicketSummary ticket : tickets) {
+                myTicketsTableModel.addRow(new Object[]{
+                    ticket.getTicketId(),
+                    ticket.getEventName(),
+                    ticket.getQuantity(),
+                    String.format("$%.2f", ticket.getTotalPrice()),
+                    ticket.getBookingDate(),
+                    ticket.getPaymentStatus()
+                });
+            }
+            ticketsLoaded += tickets.size();
+            btnMoreTickets.setEnabled(tickets.size() == TICKETS_PAGE_SIZE);
+        }, SwingUtilities::invokeLater);
+    }
+    
+    private void showLoadError(String what, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        JOptionPane.showMessageDialog(this,
+            "Error loading " + what + ": " + cause.getMessage(),
+            "Error",
+            JOptionPane.ERROR_MESSAGE);
     }
     
     private void logout() {
@@ -391,9 +446,18 @@ public class UserDashboard extends JFrame {
             }
             
             int finalQuantity = quantity[0];
+            
+            // Retrying the same booking after an error reuses its request ID, so a booking
+            // that went through before the error is returned instead of made twice
+            String bookingKey = eventId + ":" + finalQuantity;
+            String requestId = bookingKey.equals(retryBookingKey) ? retryBookingRequestId : UUID.randomUUID().toString();
+            retryBookingKey = bookingKey;
+            retryBookingRequestId = requestId;
                 
             // Book the tickets
-            Ticket ticket = ticketService.bookTicket(eventId, currentUser.getUserId(), finalQuantity);
+            Ticket ticket = ticketService.bookTickets(eventId, currentUser.getUserId(), finalQuantity,
+                    Collections.<String>emptyList(), requestId);
+            retryBookingKey = null;
             
             if (ticket != null) {
                 // Show payment dialog
@@ -496,7 +560,15 @@ public class UserDashboard extends JFrame {
                 try {
                     // Use a shorter payment status value that fits within VARCHAR(20)
                     // Note: In the database schema, payment_status is VARCHAR(20)
-                    ticketService.updatePaymentStatus(ticket.getTicketId(), "PAID");
+                    if (!ticketService.updatePaymentStatus(ticket.getTicketId(), "PAID")) {
+                        paymentDialog.dispose();
+                        loadTickets();
+                        loadEvents();
+                        showErrorMessageDialog(UserDashboard.this,
+                            "Your seat hold has expired. Please book again.",
+                            "Payment Error");
+                        return;
+                    }
                     paymentDialog.dispose();
                     
                     // Refresh tickets list to display updated status
@@ -656,6 +728,24 @@ public class UserDashboard extends JFrame {
             return;
         }
         
+        // An expired booking has already released its seats
+        if ("EXPIRED".equals(status)) {
+            JOptionPane.showMessageDialog(this, 
+                "This booking expired before it was paid and its seats have been released.", 
+                "Booking Expired", 
+                JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        
+        // A refund has already returned the seats
+        if ("REFUNDED".equals(status)) {
+            JOptionPane.showMessageDialog(this, 
+                "This booking was refunded and its seats have been released.", 
+                "Booking Refunded", 
+                JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        
         // Create custom cancellation confirmation dialog with black text buttons
         JDialog cancelDialog = new JDialog(this, "Confirm Cancellation", true);
         cancelDialog.setLayout(new BorderLayout());
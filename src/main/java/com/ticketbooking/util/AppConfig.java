@@ -0,0 +1,64 @@
+package com.ticketbooking.util;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Application settings loaded from app.properties.
+ * Every lookup takes a default, so a missing file or key leaves the feature
+ * at its built-in configuration. A JVM system property with the same key
+ * (-Dkey=value) overrides the file.
+ */
+public class AppConfig {
+    private static final String PROPERTIES_FILE = "src/main/resources/app.properties";
+    private static final Properties props = new Properties();
+
+    private AppConfig() {
+        // Private constructor to prevent instantiation
+    }
+
+    static {
+        try (InputStream input = new FileInputStream(PROPERTIES_FILE)) {
+            props.load(input);
+        } catch (IOException e) {
+            System.err.println("Error loading application properties, using defaults: " + e.getMessage());
+        }
+    }
+
+    public static String getString(String key, String defaultValue) {
+        String value = lookup(key);
+        return value == null ? defaultValue : value.trim();
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = lookup(key);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ", using default: " + value);
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = lookup(key);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ", using default: " + value);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = lookup(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    private static String lookup(String key) {
+        String value = System.getProperty(key);
+        return value != null ? value : props.getProperty(key);
+    }
+}
@@ -0,0 +1,430 @@
+package com.ticketbooking.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool used behind {@link DatabaseUtil}.
+ *
+ * Callers receive a proxy whose close() hands the physical connection back
+ * to the pool, so the existing try-with-resources blocks in the DAOs keep
+ * working unchanged. Borrowers wait in a fair (FIFO) queue once the pool is
+ * exhausted, idle connections above the minimum are evicted by a background
+ * housekeeper, and connections held longer than the leak threshold are
+ * reported together with the stack that borrowed them. Each pooled
+ * connection also keeps a {@link StatementCache} so hot DAO queries are
+ * prepared once per connection rather than once per call.
+ */
+public class ConnectionPool {
+    // Connections used this recently are handed out without an isValid() round trip
+    private static final long VALIDATION_BYPASS_MS = 500;
+
+    private final String url;
+    private final int minIdle;
+    private final int maxSize;
+    private final long connectionTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long leakDetectionThresholdMs;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+    private final Properties connectionProperties = new Properties();
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> active = Collections.newSetFromMap(new ConcurrentHashMap<PooledConnection, Boolean>());
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    /**
+     * Create a pool and start its housekeeping thread
+     *
+     * @param url JDBC URL
+     * @param user Database username
+     * @param password Database password
+     * @param config Pool sizing and timeout settings
+     */
+    public ConnectionPool(String url, String user, String password, Config config) {
+        if (config.maxSize < 1 || config.minIdle < 0 || config.minIdle > config.maxSize) {
+            throw new IllegalArgumentException("Invalid pool sizing: minIdle=" + config.minIdle + ", maxSize=" + config.maxSize);
+        }
+        this.url = url;
+        this.minIdle = config.minIdle;
+        this.maxSize = config.maxSize;
+        this.connectionTimeoutMs = config.connectionTimeoutMs;
+        this.idleTimeoutMs = config.idleTimeoutMs;
+        this.leakDetectionThresholdMs = config.leakDetectionThresholdMs;
+        this.validationTimeoutSeconds = config.validationTimeoutSeconds;
+        this.statementCacheSize = config.statementCacheSize;
+        if (user != null) {
+            connectionProperties.setProperty("user", user);
+        }
+        if (password != null) {
+            connectionProperties.setProperty("password", password);
+        }
+        if (config.useServerPrepStmts) {
+            // Parse/plan once on the server; the statement cache keeps the handles alive
+            connectionProperties.setProperty("useServerPrepStmts", "true");
+        }
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, config.housekeepingIntervalMs,
+                config.housekeepingIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting up to the configured timeout if the pool is exhausted
+     *
+     * @return Connection proxy; close() returns it to the pool
+     * @throws SQLException if no connection could be obtained in time
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is shut down");
+        }
+
+        long deadline = System.currentTimeMillis() + connectionTimeoutMs;
+        try {
+            if (!permits.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + connectionTimeoutMs
+                        + "ms waiting for a connection (active=" + active.size() + ", max=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeConnection(deadline);
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowStack = leakDetectionThresholdMs > 0 ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            pooled.handle = new Handle(pooled);
+            active.add(pooled);
+            return pooled.handle.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeConnection(long deadline) throws SQLException {
+        while (true) {
+            PooledConnection pooled = idle.pollFirst();
+            if (pooled != null) {
+                if (isUsable(pooled)) {
+                    return pooled;
+                }
+                destroy(pooled);
+                continue;
+            }
+
+            if (totalConnections.incrementAndGet() <= maxSize) {
+                try {
+                    return openConnection();
+                } catch (SQLException e) {
+                    totalConnections.decrementAndGet();
+                    throw e;
+                }
+            }
+            totalConnections.decrementAndGet();
+
+            // A connection is on its way back to the idle queue; wait for it
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new SQLTimeoutException("Timed out waiting for an idle connection");
+            }
+            try {
+                pooled = idle.pollFirst(remaining, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            }
+            if (pooled != null) {
+                idle.offerFirst(pooled);
+            }
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        PooledConnection pooled = new PooledConnection(DriverManager.getConnection(url, connectionProperties));
+        if (statementCacheSize > 0) {
+            pooled.statementCache = new StatementCache(pooled.connection, statementCacheSize,
+                    statementCacheHits, statementCacheMisses);
+        }
+        return pooled;
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastReturnedAt < VALIDATION_BYPASS_MS) {
+            return true;
+        }
+        try {
+            return pooled.connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        if (!active.remove(pooled)) {
+            return;
+        }
+        try {
+            if (closed || pooled.broken || pooled.connection.isClosed()) {
+                destroy(pooled);
+                return;
+            }
+            resetState(pooled);
+            if (pooled.statementCache != null) {
+                pooled.statementCache.discardInUse();
+            }
+            pooled.lastReturnedAt = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            System.err.println("Discarding connection that failed to reset: " + e.getMessage());
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void resetState(PooledConnection pooled) throws SQLException {
+        Connection connection = pooled.connection;
+        if (!connection.getAutoCommit()) {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        }
+        if (connection.isReadOnly()) {
+            connection.setReadOnly(false);
+        }
+        connection.clearWarnings();
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            // Evict connections idle past the timeout, oldest first, down to minIdle
+            Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext() && idle.size() > minIdle) {
+                PooledConnection pooled = oldestFirst.next();
+                if (now - pooled.lastReturnedAt > idleTimeoutMs && idle.removeFirstOccurrence(pooled)) {
+                    destroy(pooled);
+                }
+            }
+
+            // Top the idle queue back up so the next burst skips the handshake
+            while (!closed && idle.size() < minIdle) {
+                if (totalConnections.incrementAndGet() > maxSize) {
+                    totalConnections.decrementAndGet();
+                    break;
+                }
+                try {
+                    PooledConnection pooled = openConnection();
+                    idle.offerLast(pooled);
+                } catch (SQLException e) {
+                    totalConnections.decrementAndGet();
+                    System.err.println("Error pre-filling connection pool: " + e.getMessage());
+                    break;
+                }
+            }
+
+            if (leakDetectionThresholdMs > 0) {
+                for (PooledConnection pooled : active) {
+                    if (!pooled.leakReported && now - pooled.borrowedAt > leakDetectionThresholdMs) {
+                        pooled.leakReported = true;
+                        System.err.println("Possible connection leak: connection held for "
+                                + (now - pooled.borrowedAt) + "ms");
+                        if (pooled.borrowStack != null) {
+                            pooled.borrowStack.printStackTrace();
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error in connection pool housekeeping: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Close all idle connections and stop handing out new ones.
+     * Connections still in use are closed as they are returned.
+     */
+    public void shutdown() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getTotalCount() {
+        return totalConnections.get();
+    }
+
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    /**
+     * Physical connection plus its bookkeeping
+     */
+    private static class PooledConnection {
+        final Connection connection;
+        volatile long lastReturnedAt;
+        volatile long borrowedAt;
+        volatile Throwable borrowStack;
+        volatile boolean leakReported;
+        volatile boolean broken;
+        volatile Handle handle;
+        StatementCache statementCache;
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.lastReturnedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * One borrow of a pooled connection. Each borrow gets a fresh handle so a
+     * caller that closes twice, or keeps using a connection after close(),
+     * cannot affect the next borrower.
+     */
+    private class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final Connection proxy;
+        private volatile boolean released;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || pooled.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.connection + "]";
+                case "prepareStatement":
+                    if (!released && pooled.statementCache != null && StatementCache.isCacheable(args)) {
+                        return invokeCached(proxy, args);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (released) {
+                throw new SQLException("Connection has been returned to the pool");
+            }
+            try {
+                return method.invoke(pooled.connection, args);
+            } catch (InvocationTargetException e) {
+                throw checkBroken(e.getCause());
+            }
+        }
+
+        private Object invokeCached(Object proxy, Object[] args) throws Throwable {
+            try {
+                return pooled.statementCache.prepare((Connection) proxy, args);
+            } catch (SQLException e) {
+                throw checkBroken(e);
+            }
+        }
+
+        private Throwable checkBroken(Throwable cause) {
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                // SQLState class 08 = connection exception; never hand this one out again
+                if (state != null && state.startsWith("08")) {
+                    pooled.broken = true;
+                }
+            }
+            return cause;
+        }
+    }
+
+    /**
+     * Pool settings, read from db.properties by {@link DatabaseUtil}
+     */
+    public static class Config {
+        public int minIdle = 2;
+        public int maxSize = 10;
+        public long connectionTimeoutMs = 30000;
+        public long idleTimeoutMs = 600000;
+        public long leakDetectionThresholdMs = 0;
+        public long housekeepingIntervalMs = 30000;
+        public int validationTimeoutSeconds = 5;
+        public int statementCacheSize = 50;
+        public boolean useServerPrepStmts = true;
+    }
+}
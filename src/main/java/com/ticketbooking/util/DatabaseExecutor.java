@@ -0,0 +1,273 @@
+package com.ticketbooking.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor for the asynchronous service methods (bookTicketAsync,
+ * getUpcomingEventsAsync, ...).
+ *
+ * There is one worker thread per pooled connection by default, so no more
+ * database calls run at once than the pool can serve and none of the
+ * workers waits for a connection behind another. Calls beyond that wait in
+ * a queue of async.queueCapacity; once it is full, new calls fail at once
+ * with a RejectedExecutionException instead of piling up.
+ *
+ * Every future completes exceptionally with a TimeoutException if the call
+ * has not finished within async.timeoutMs. A call still in the queue is then
+ * never started; one already running is left to finish, so its connection
+ * and transaction are released normally. cancel(true) also interrupts a
+ * running call, which stops it while it waits for a connection or in the
+ * booking queue. The futures' dependent stages run on the worker thread
+ * unless an executor is given (SwingUtilities::invokeLater for the UI).
+ *
+ * With async.virtualThreads=true, and when built on JDK 21 or later (the
+ * virtual-threads Maven profile), each call runs on its own virtual thread
+ * instead, and a fair semaphore with one permit per worker keeps the number
+ * of calls using the database at the pool limit. Waiting calls are then
+ * parked virtual threads rather than queue entries, so async.queueCapacity
+ * can be raised to tens of thousands of concurrent sessions. On an older JVM
+ * or build the setting falls back to platform threads with a warning.
+ */
+public class DatabaseExecutor {
+    private static volatile DatabaseExecutor instance;
+
+    private final Workers workers;
+    private final ScheduledThreadPoolExecutor timer;
+    private final long defaultTimeoutMs;
+
+    private DatabaseExecutor(Workers workers, long defaultTimeoutMs) {
+        this.workers = workers;
+        this.defaultTimeoutMs = defaultTimeoutMs;
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "db-async-timeout");
+            t.setDaemon(true);
+            return t;
+        });
+        // Timeouts of calls that finished in time are dropped instead of waiting out their delay
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Get the shared executor
+     *
+     * @return The database executor
+     */
+    public static DatabaseExecutor getInstance() {
+        DatabaseExecutor current = instance;
+        if (current == null) {
+            synchronized (DatabaseExecutor.class) {
+                current = instance;
+                if (current == null) {
+                    int threads = AppConfig.getInt("async.threads", 0);
+                    if (threads <= 0) {
+                        threads = DatabaseUtil.getPool().getMaxSize();
+                    }
+                    int queueCapacity = Math.max(1, AppConfig.getInt("async.queueCapacity", 1000));
+                    Workers workers = AppConfig.getBoolean("async.virtualThreads", false)
+                            ? createVirtualWorkers(threads, queueCapacity) : null;
+                    current = new DatabaseExecutor(workers != null ? workers : new PlatformWorkers(threads, queueCapacity),
+                            AppConfig.getLong("async.timeoutMs", 30000));
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Run a call on a worker thread with the default timeout
+     *
+     * @param call The call, usually a blocking service method
+     * @return Future of the call's result
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> call) {
+        return submit(call, defaultTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run a call on a worker thread
+     *
+     * @param call The call, usually a blocking service method
+     * @param timeout How long to wait for the result before failing the future (0 = no timeout)
+     * @param unit Unit of the timeout
+     * @return Future of the call's result; it fails with the call's exception,
+     *         a TimeoutException, or a RejectedExecutionException if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> call, long timeout, TimeUnit unit) {
+        Task<T> task = new Task<>(call);
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.completeExceptionally(new RejectedExecutionException(
+                    "Database executor queue is full (" + workers.getQueueLength() + " calls waiting)", e));
+            return task;
+        }
+        if (timeout > 0) {
+            ScheduledFuture<?> expiry = timer.schedule(() -> task.completeExceptionally(
+                    new TimeoutException("Database call did not finish within " + unit.toMillis(timeout) + " ms")),
+                    timeout, unit);
+            task.whenComplete((result, error) -> expiry.cancel(false));
+        }
+        return task;
+    }
+
+    /**
+     * Get the number of calls waiting for a worker
+     *
+     * @return Queued calls
+     */
+    public int getQueueLength() {
+        return workers.getQueueLength();
+    }
+
+    /**
+     * Get the number of calls running
+     *
+     * @return Running calls
+     */
+    public int getActiveCount() {
+        return workers.getActiveCount();
+    }
+
+    /**
+     * Get the number of worker threads
+     *
+     * @return Maximum number of calls run at once
+     */
+    public int getThreadCount() {
+        return workers.getLimit();
+    }
+
+    /**
+     * Check whether calls run on virtual threads
+     *
+     * @return true in virtual-thread mode
+     */
+    public boolean isVirtual() {
+        return workers.isVirtual();
+    }
+
+    private static Workers createVirtualWorkers(int limit, int queueCapacity) {
+        try {
+            // Compiled from src/main/java21 only when building on JDK 21 or later
+            Class<?> type = Class.forName("com.ticketbooking.util.VirtualThreadWorkers");
+            return (Workers) type.getDeclaredConstructor(int.class, int.class).newInstance(limit, queueCapacity);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.err.println("Virtual threads are not available (needs JDK 21 and a build with the "
+                    + "virtual-threads profile), using platform threads: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Threads that run the submitted calls, at most getLimit() at a time
+     */
+    interface Workers extends Executor {
+        int getQueueLength();
+
+        int getActiveCount();
+
+        int getLimit();
+
+        boolean isVirtual();
+    }
+
+    /**
+     * A fixed pool of platform threads in front of a bounded queue
+     */
+    private static class PlatformWorkers implements Workers {
+        private final ThreadPoolExecutor pool;
+
+        PlatformWorkers(int threads, int queueCapacity) {
+            AtomicInteger count = new AtomicInteger();
+            this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), r -> {
+                        Thread t = new Thread(r, "db-async-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            pool.execute(task);
+        }
+
+        @Override
+        public int getQueueLength() {
+            return pool.getQueue().size();
+        }
+
+        @Override
+        public int getActiveCount() {
+            return pool.getActiveCount();
+        }
+
+        @Override
+        public int getLimit() {
+            return pool.getMaximumPoolSize();
+        }
+
+        @Override
+        public boolean isVirtual() {
+            return false;
+        }
+    }
+
+    /**
+     * Future of one call; knows the thread running it so cancel(true) can interrupt it
+     */
+    private static class Task<T> extends CompletableFuture<T> implements Runnable {
+        private final Callable<T> call;
+        private Thread runner;
+
+        Task(Callable<T> call) {
+            this.call = call;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (isDone()) {
+                    // Cancelled or timed out while queued
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                complete(call.call());
+            } catch (Throwable e) {
+                completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    // Do not carry an interrupt that arrived too late over to the next call
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && mayInterruptIfRunning) {
+                synchronized (this) {
+                    if (runner != null) {
+                        runner.interrupt();
+                    }
+                }
+            }
+            return cancelled;
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package com.ticketbooking.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Properties;
 import java.io.InputStream;
@@ -12,7 +13,10 @@ public class DatabaseUtil {
     private static String dbUrl;
     private static String dbUser;
     private static String dbPassword;
+    private static final ConnectionPool.Config poolConfig = new ConnectionPool.Config();
+    private static volatile ConnectionPool pool;
     private static final String PROPERTIES_FILE = "src/main/resources/db.properties";
+    private static int streamFetchSize = 1000;
 
     private DatabaseUtil() {
         // Private constructor to prevent instantiation
@@ -46,22 +50,75 @@ public class DatabaseUtil {
             dbUrl = props.getProperty("db.url");
             dbUser = props.getProperty("db.user");
             dbPassword = props.getProperty("db.password");
+
+            poolConfig.minIdle = Integer.parseInt(props.getProperty("db.pool.minIdle", String.valueOf(poolConfig.minIdle)));
+            poolConfig.maxSize = Integer.parseInt(props.getProperty("db.pool.maxSize", String.valueOf(poolConfig.maxSize)));
+            poolConfig.connectionTimeoutMs = Long.parseLong(props.getProperty("db.pool.connectionTimeoutMs", String.valueOf(poolConfig.connectionTimeoutMs)));
+            poolConfig.idleTimeoutMs = Long.parseLong(props.getProperty("db.pool.idleTimeoutMs", String.valueOf(poolConfig.idleTimeoutMs)));
+            poolConfig.leakDetectionThresholdMs = Long.parseLong(props.getProperty("db.pool.leakDetectionThresholdMs", String.valueOf(poolConfig.leakDetectionThresholdMs)));
+            poolConfig.housekeepingIntervalMs = Long.parseLong(props.getProperty("db.pool.housekeepingIntervalMs", String.valueOf(poolConfig.housekeepingIntervalMs)));
+            poolConfig.validationTimeoutSeconds = Integer.parseInt(props.getProperty("db.pool.validationTimeoutSeconds", String.valueOf(poolConfig.validationTimeoutSeconds)));
+            poolConfig.statementCacheSize = Integer.parseInt(props.getProperty("db.pool.statementCacheSize", String.valueOf(poolConfig.statementCacheSize)));
+            poolConfig.useServerPrepStmts = Boolean.parseBoolean(props.getProperty("db.pool.useServerPrepStmts", String.valueOf(poolConfig.useServerPrepStmts)));
+            streamFetchSize = Integer.parseInt(props.getProperty("db.streamFetchSize", String.valueOf(streamFetchSize)));
         }
     }
 
     /**
-     * Get a database connection - creates a new connection each time
+     * Get the connection pool, creating it on first use
      * 
-     * @return Connection object
+     * @return The shared connection pool
+     */
+    public static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseUtil.class) {
+                current = pool;
+                if (current == null) {
+                    current = new ConnectionPool(dbUrl, dbUser, dbPassword, poolConfig);
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Get a database connection from the pool
+     * 
+     * @return Connection object; closing it returns it to the pool
      * @throws SQLException if connection cannot be established
      */
     public static Connection getConnection() throws SQLException {
-        // Always create a new connection
-        return DriverManager.getConnection(dbUrl, dbUser, dbPassword);
+        if (!Metrics.isEnabled()) {
+            return getPool().borrow();
+        }
+        return Metrics.time("DatabaseUtil.getConnection", () -> getPool().borrow());
+    }
+
+    /**
+     * Get a database connection from the pool for a DAO method. With metrics
+     * enabled, the time until the connection is closed, its statement errors
+     * and the rows it reads are recorded against the method.
+     * 
+     * @param caller DAO method borrowing the connection, as Class.method
+     * @return Connection object; closing it returns it to the pool
+     * @throws SQLException if connection cannot be established
+     */
+    public static Connection getConnection(String caller) throws SQLException {
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = getConnection();
+        } catch (SQLException | RuntimeException e) {
+            Metrics.recordBorrowFailure(caller, System.nanoTime() - start);
+            throw e;
+        }
+        return Metrics.meter(caller, connection);
     }
 
     /**
-     * Close a database connection safely
+     * Close a database connection safely (returns pooled connections to the pool)
      * 
      * @param connection The connection to close
      */
@@ -75,6 +132,36 @@ public class DatabaseUtil {
         }
     }
 
+    /**
+     * Prepare a forward-only, read-only statement whose results are fetched a
+     * few rows at a time instead of all at once. Such statements bypass the
+     * statement cache. With MySQL the connection cannot run other statements
+     * until the result set is closed.
+     * 
+     * @param connection The connection to prepare on
+     * @param sql The query
+     * @return The prepared statement
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public static PreparedStatement prepareStreamingStatement(Connection connection, String sql) throws SQLException {
+        PreparedStatement stmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        // Connector/J only streams row by row when given Integer.MIN_VALUE; other drivers take a real fetch size
+        boolean mysql = connection.getMetaData().getURL().startsWith("jdbc:mysql:");
+        stmt.setFetchSize(mysql ? Integer.MIN_VALUE : streamFetchSize);
+        return stmt;
+    }
+
+    /**
+     * Check whether an error is a unique key violation
+     * 
+     * @param e The exception thrown by an insert or update
+     * @return true if a row with the same unique key already exists
+     */
+    public static boolean isDuplicateKey(SQLException e) {
+        // 1062 is MySQL's ER_DUP_ENTRY; 23505 is the standard unique violation state
+        return e.getErrorCode() == 1062 || "23505".equals(e.getSQLState());
+    }
+
     /**
      * Update database credentials manually (useful for the first run or GUI configuration)
      * 
@@ -86,5 +173,18 @@ public class DatabaseUtil {
         dbUrl = url;
         dbUser = user;
         dbPassword = password;
+        shutdown();
+    }
+
+    /**
+     * Shut down the connection pool; the next getConnection() starts a new one
+     */
+    public static void shutdown() {
+        synchronized (DatabaseUtil.class) {
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
+            }
+        }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,303 @@
+package com.ticketbooking.util;
+
+import com.ticketbooking.model.Payment;
+import com.ticketbooking.model.Ticket;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.List;
+
+/**
+ * JDK Flight Recorder events for the booking path and the DAOs.
+ *
+ * Booking attempts, seat allocations, payments and SQL executions are each
+ * emitted as a duration event under the "Ticket Booking" category, so a
+ * recording shows which events and queries line up with latency spikes:
+ *
+ *   java -XX:StartFlightRecording=filename=booking.jfr ...
+ *   jfr print --categories "Ticket Booking" booking.jfr
+ *
+ * Events are only built while a recording has them enabled; otherwise each
+ * call site costs one flag check. jfr.events.enabled=false, or a JVM without
+ * Flight Recorder (Java 8 before 8u262), turns every helper into a direct call.
+ * The jdk.jfr event classes are only loaded when Flight Recorder is present.
+ */
+public final class FlightEvents {
+    private static final boolean ENABLED = AppConfig.getBoolean("jfr.events.enabled", true) && isAvailable();
+
+    private FlightEvents() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Check whether events can be emitted at all (they are only recorded while a recording is running)
+     *
+     * @return true if Flight Recorder is present and the events are switched on
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Run a booking attempt as a Booking event; a null result is recorded as REJECTED
+     *
+     * @param eventId Event being booked
+     * @param quantity Number of tickets requested
+     * @param call The booking
+     * @return The booked ticket, or null
+     * @throws E whatever the booking throws
+     */
+    public static <E extends Exception> Ticket booking(int eventId, int quantity,
+            Metrics.Call<Ticket, E> call) throws E {
+        if (!ENABLED) {
+            return call.run();
+        }
+        BookingEvent event = new BookingEvent();
+        if (!event.isEnabled()) {
+            return call.run();
+        }
+        event.eventId = eventId;
+        event.quantity = quantity;
+        event.begin();
+        String outcome = "FAILED";
+        try {
+            Ticket ticket = call.run();
+            if (ticket != null) {
+                event.ticketId = ticket.getTicketId();
+                outcome = "BOOKED";
+            } else {
+                outcome = "REJECTED";
+            }
+            return ticket;
+        } finally {
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    /**
+     * Run a seat assignment as a SeatAllocation event; a null result is recorded as NO_ROOM
+     *
+     * @param eventId Event whose seat map is used
+     * @param quantity Number of seats requested
+     * @param call The allocation
+     * @return The assigned seat numbers, or null
+     * @throws E whatever the allocation throws
+     */
+    public static <E extends Exception> List<String> seatAllocation(int eventId, int quantity,
+            Metrics.Call<List<String>, E> call) throws E {
+        if (!ENABLED) {
+            return call.run();
+        }
+        SeatAllocationEvent event = new SeatAllocationEvent();
+        if (!event.isEnabled()) {
+            return call.run();
+        }
+        event.eventId = eventId;
+        event.quantity = quantity;
+        event.begin();
+        String outcome = "FAILED";
+        try {
+            List<String> seats = call.run();
+            if (seats != null && !seats.isEmpty()) {
+                event.firstSeat = seats.get(0);
+                outcome = "ALLOCATED";
+            } else {
+                outcome = "NO_ROOM";
+            }
+            return seats;
+        } finally {
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    /**
+     * Run a payment as a Payment event; a null result is recorded as DECLINED
+     *
+     * @param ticketId Ticket being paid for
+     * @param amount Amount charged
+     * @param paymentMethod Payment method
+     * @param call The payment
+     * @return The created payment, or null
+     * @throws E whatever the payment throws
+     */
+    public static <E extends Exception> Payment payment(int ticketId, double amount,
+            String paymentMethod, Metrics.Call<Payment, E> call) throws E {
+        if (!ENABLED) {
+            return call.run();
+        }
+        PaymentEvent event = new PaymentEvent();
+        if (!event.isEnabled()) {
+            return call.run();
+        }
+        event.ticketId = ticketId;
+        event.amount = amount;
+        event.paymentMethod = paymentMethod;
+        event.begin();
+        String outcome = "FAILED";
+        try {
+            Payment payment = call.run();
+            if (payment != null) {
+                event.paymentId = payment.getPaymentId();
+                outcome = "PAID";
+            } else {
+                outcome = "DECLINED";
+            }
+            return payment;
+        } finally {
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    /**
+     * Check whether SQL events are being recorded right now
+     *
+     * @return true if a running recording has the SQL event enabled
+     */
+    static boolean isRecordingSql() {
+        return ENABLED && new SqlEvent().isEnabled();
+    }
+
+    /**
+     * Start timing a statement execution
+     *
+     * @return Token to pass to {@link #endSql}, or null if SQL events are not being recorded
+     */
+    static Object beginSql() {
+        if (!ENABLED) {
+            return null;
+        }
+        SqlEvent event = new SqlEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Finish a statement execution started with {@link #beginSql}
+     *
+     * @param token Token from beginSql (null does nothing)
+     * @param method DAO method, as Class.method
+     * @param sql SQL text
+     * @param rows Rows read or changed
+     * @param failed Whether the statement threw
+     */
+    static void endSql(Object token, String method, String sql, long rows, boolean failed) {
+        if (token == null) {
+            return;
+        }
+        SqlEvent event = (SqlEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.method = method;
+            event.sql = sql;
+            event.sqlHash = sql != null ? sql.hashCode() : 0;
+            event.rows = rows;
+            event.outcome = failed ? "FAILED" : "OK";
+            event.commit();
+        }
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            return jdk.jfr.FlightRecorder.isAvailable();
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    @Name("com.ticketbooking.Booking")
+    @Label("Booking Attempt")
+    @Category("Ticket Booking")
+    @Description("Ticket booking from queueing to the committed ticket")
+    static class BookingEvent extends Event {
+        @Label("Event ID")
+        int eventId;
+
+        @Label("Quantity")
+        int quantity;
+
+        @Label("Ticket ID")
+        int ticketId;
+
+        @Label("Outcome")
+        @Description("BOOKED, REJECTED (sold out, no seats or not admitted) or FAILED")
+        String outcome;
+    }
+
+    @Name("com.ticketbooking.SeatAllocation")
+    @Label("Seat Allocation")
+    @Category("Ticket Booking")
+    @Description("Seats assigned to a booking from the event's seat map")
+    @StackTrace(false)
+    static class SeatAllocationEvent extends Event {
+        @Label("Event ID")
+        int eventId;
+
+        @Label("Quantity")
+        int quantity;
+
+        @Label("First Seat")
+        String firstSeat;
+
+        @Label("Outcome")
+        @Description("ALLOCATED, NO_ROOM or FAILED")
+        String outcome;
+    }
+
+    @Name("com.ticketbooking.Payment")
+    @Label("Payment")
+    @Category("Ticket Booking")
+    @Description("Payment for a ticket")
+    static class PaymentEvent extends Event {
+        @Label("Ticket ID")
+        int ticketId;
+
+        @Label("Amount")
+        double amount;
+
+        @Label("Payment Method")
+        String paymentMethod;
+
+        @Label("Payment ID")
+        int paymentId;
+
+        @Label("Outcome")
+        @Description("PAID, DECLINED (unknown, released or mispriced ticket) or FAILED")
+        String outcome;
+    }
+
+    @Name("com.ticketbooking.Sql")
+    @Label("SQL Execution")
+    @Category("Ticket Booking")
+    @Description("Statement executed by a DAO method; queries last until their result set is closed")
+    @StackTrace(false)
+    static class SqlEvent extends Event {
+        @Label("Method")
+        String method;
+
+        @Label("SQL")
+        String sql;
+
+        @Label("SQL Hash")
+        @Description("Hash of the SQL text, for grouping executions of the same statement")
+        int sqlHash;
+
+        @Label("Rows")
+        @Description("Rows read from the result set, or rows changed by an update")
+        long rows;
+
+        @Label("Outcome")
+        @Description("OK or FAILED")
+        String outcome;
+    }
+}
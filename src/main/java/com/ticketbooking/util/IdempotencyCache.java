@@ -0,0 +1,142 @@
+package com.ticketbooking.util;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Bounded, time-evicting cache of results keyed by a client request ID.
+ *
+ * The first caller with a key runs the action; callers that arrive with the
+ * same key while it runs wait for it, and later callers get the stored result
+ * without running anything. Entries are dropped after a TTL or, when the cache
+ * is full, oldest first. Null results and failures are not kept, so a request
+ * that did nothing can be retried. The cache only absorbs repeats cheaply;
+ * callers back it with a unique database column for repeats that arrive after
+ * their entry was evicted.
+ *
+ * @param <V> Type of result
+ */
+public class IdempotencyCache<V> {
+    private final int maxEntries;
+    private final long ttlMs;
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>();
+
+    /**
+     * @param maxEntries Maximum number of results kept
+     * @param ttlMs How long a result is kept in milliseconds
+     */
+    public IdempotencyCache(int maxEntries, long ttlMs) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Action run at most once per key
+     *
+     * @param <V> Type of result
+     */
+    public interface Action<V> {
+        V run() throws SQLException;
+    }
+
+    /**
+     * Run an action once per key, or return the result of the run already made
+     *
+     * @param key Client request ID
+     * @param action Action to run if the key is new
+     * @return The action's result, possibly from an earlier call
+     * @throws SQLException if this call ran the action and it failed, or the
+     *         concurrent call it waited for failed
+     */
+    public V execute(String key, Action<V> action) throws SQLException {
+        Entry<V> entry;
+        boolean owner = false;
+        synchronized (this) {
+            evict();
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry<>(System.currentTimeMillis());
+                entries.put(key, entry);
+                owner = true;
+            }
+        }
+
+        if (!owner) {
+            return entry.await();
+        }
+
+        try {
+            V result = action.run();
+            entry.complete(result, null);
+            if (result == null) {
+                remove(key, entry);
+            }
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            remove(key, entry);
+            entry.complete(null, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Get the number of results held
+     *
+     * @return Entry count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void remove(String key, Entry<V> entry) {
+        entries.remove(key, entry);
+    }
+
+    private void evict() {
+        long expiredBefore = System.currentTimeMillis() - ttlMs;
+        Iterator<Map.Entry<String, Entry<V>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry<V> eldest = it.next().getValue();
+            if (entries.size() < maxEntries && eldest.createdAt > expiredBefore) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    private static final class Entry<V> {
+        final long createdAt;
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile V result;
+        volatile Exception failure;
+
+        Entry(long createdAt) {
+            this.createdAt = createdAt;
+        }
+
+        void complete(V result, Exception failure) {
+            this.result = result;
+            this.failure = failure;
+            done.countDown();
+        }
+
+        V await() throws SQLException {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a duplicate request", e);
+            }
+            if (failure instanceof SQLException) {
+                throw (SQLException) failure;
+            }
+            if (failure != null) {
+                throw (RuntimeException) failure;
+            }
+            return result;
+        }
+    }
+}
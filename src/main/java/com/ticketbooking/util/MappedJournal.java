@@ -0,0 +1,209 @@
+package com.ticketbooking.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only record log on memory-mapped segment files.
+ *
+ * Records are written straight into the mapped segment, so an append is a
+ * memory copy and survives a process crash as soon as it returns; {@link #force()}
+ * makes it survive a power loss as well. When a record does not fit in the
+ * current segment, a new segment is started. Each record is framed as
+ * {@code [int length][int crc32][body]}; a zero length marks the end of a
+ * segment, and a record whose checksum does not match (a write torn by a
+ * crash) ends the log when it is reopened.
+ *
+ * Positions are {@code segment << 32 | offset} and only ever increase.
+ */
+public class MappedJournal implements Closeable {
+    private static final int HEADER_SIZE = 8;
+    private static final String SUFFIX = ".journal";
+
+    private final File directory;
+    private final int segmentSize;
+    private int segment;
+    private MappedByteBuffer buffer;
+
+    /**
+     * Open a journal, continuing after the last intact record
+     *
+     * @param directory Directory holding the segment files (created if missing)
+     * @param segmentSize Size of each segment file in bytes
+     * @throws IOException if the segments cannot be opened
+     */
+    public MappedJournal(File directory, int segmentSize) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+
+        List<Integer> segments = segments();
+        open(segments.isEmpty() ? 0 : segments.get(segments.size() - 1));
+        buffer.position(0);
+        while (readRecord(buffer) != null) {
+            // Skip to the end of the intact records
+        }
+    }
+
+    public static int segmentOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static long position(int segment, int offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    /**
+     * Append a record
+     *
+     * @param body Record body
+     * @return Position just after the record
+     * @throws IOException if a new segment cannot be created
+     */
+    public synchronized long append(byte[] body) throws IOException {
+        int length = HEADER_SIZE + body.length;
+        if (length > segmentSize) {
+            throw new IllegalArgumentException("Record larger than a journal segment: " + body.length);
+        }
+        if (buffer.remaining() < length) {
+            open(segment + 1);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        int start = buffer.position();
+        // Length goes in last so a reader never sees a record before its body
+        buffer.putInt(start + 4, (int) crc.getValue());
+        buffer.position(start + HEADER_SIZE);
+        buffer.put(body);
+        buffer.putInt(start, body.length);
+        return position(segment, buffer.position());
+    }
+
+    /**
+     * Get the position after the last appended record
+     *
+     * @return Current end of the journal
+     */
+    public synchronized long position() {
+        return position(segment, buffer.position());
+    }
+
+    /**
+     * Flush appended records to the storage device
+     */
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    /**
+     * Read every intact record from a position to the current end
+     *
+     * @param from Position to start at (0 for the oldest segment kept)
+     * @param consumer Receives each record body
+     * @throws IOException if a segment cannot be read
+     */
+    public void replay(long from, Consumer<ByteBuffer> consumer) throws IOException {
+        long end = position();
+        for (int s : segments()) {
+            if (s < segmentOf(from) || s > segmentOf(end)) {
+                continue;
+            }
+            try (RandomAccessFile file = new RandomAccessFile(segmentFile(s), "r");
+                 FileChannel in = file.getChannel()) {
+                ByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+                data.position(s == segmentOf(from) ? (int) from : 0);
+                int limit = s == segmentOf(end) ? (int) end : data.limit();
+                ByteBuffer body;
+                while (data.position() < limit && (body = readRecord(data)) != null) {
+                    consumer.accept(body);
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete segments that lie entirely before a position
+     *
+     * @param position Position that is now covered by a snapshot
+     */
+    public void deleteBefore(long position) {
+        for (int s : segments()) {
+            if (s < segmentOf(position) && !segmentFile(s).delete()) {
+                System.err.println("Error deleting journal segment " + segmentFile(s));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        buffer.force();
+    }
+
+    private static ByteBuffer readRecord(ByteBuffer data) {
+        int start = data.position();
+        if (data.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        int length = data.getInt(start);
+        if (length <= 0 || length > data.remaining() - HEADER_SIZE) {
+            return null;
+        }
+
+        ByteBuffer body = data.duplicate();
+        body.position(start + HEADER_SIZE).limit(start + HEADER_SIZE + length);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != data.getInt(start + 4)) {
+            return null;
+        }
+        data.position(start + HEADER_SIZE + length);
+        return body.slice();
+    }
+
+    private void open(int newSegment) throws IOException {
+        if (buffer != null) {
+            buffer.force();
+        }
+        // The mapping stays valid after the file is closed
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile(newSegment), "rw");
+             FileChannel out = file.getChannel()) {
+            buffer = out.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segment = newSegment;
+    }
+
+    private File segmentFile(int s) {
+        return new File(directory, String.format("%010d%s", s, SUFFIX));
+    }
+
+    private List<Integer> segments() {
+        List<Integer> segments = new ArrayList<>();
+        String[] names = directory.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.endsWith(SUFFIX)) {
+                    try {
+                        segments.add(Integer.parseInt(name.substring(0, name.length() - SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        // Not a segment file
+                    }
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+}
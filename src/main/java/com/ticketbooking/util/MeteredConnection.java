@@ -0,0 +1,289 @@
+package com.ticketbooking.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One metered borrow of a connection on behalf of a DAO method.
+ *
+ * The connection, the statements created on it and their result sets are
+ * proxied so that any SQLException they throw marks the call as failed and
+ * every row a result set moves onto is counted. When the connection is
+ * closed, the time since it was borrowed is recorded as one call of the
+ * method. While a Flight Recorder recording is running, each statement
+ * execution is also emitted as an SQL event (see {@link FlightEvents}), and
+ * statements are timed with their bind values for the {@link SlowQueryLog}.
+ * A DAO used by one thread at a time is assumed, as for the connection itself.
+ */
+class MeteredConnection implements InvocationHandler {
+    private final Connection connection;
+    private final String name;
+    private final MethodMetrics metrics;
+    private final SlowQueryLog slowQueryLog = SlowQueryLog.isEnabled() ? SlowQueryLog.getInstance() : null;
+    private final long startedAt = System.nanoTime();
+    private boolean failed;
+    private long rows;
+    private boolean closed;
+
+    private MeteredConnection(Connection connection, String name, MethodMetrics metrics) {
+        this.connection = connection;
+        this.name = name;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Wrap a borrowed connection
+     *
+     * @param connection Connection borrowed from the pool
+     * @param name DAO method, as Class.method
+     * @param metrics Metrics to record the borrow in (null to only trace its statements)
+     * @return The metered connection
+     */
+    static Connection wrap(Connection connection, String name, MethodMetrics metrics) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new MeteredConnection(connection, name, metrics));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                try {
+                    connection.close();
+                } finally {
+                    finish();
+                }
+                return null;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                break;
+        }
+        Object result = call(connection, method, args);
+        if (result instanceof Statement && method.getReturnType().isInterface()) {
+            // prepareStatement and prepareCall take the SQL up front; createStatement passes it to execute
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+            return wrap(result, method.getReturnType(), new StatementHandler((Statement) result, sql, proxy));
+        }
+        return result;
+    }
+
+    private void finish() {
+        if (!closed && metrics != null) {
+            closed = true;
+            if (rows > 0) {
+                metrics.addRows(rows);
+            }
+            metrics.record(System.nanoTime() - startedAt, failed);
+        }
+    }
+
+    private Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                failed = true;
+            }
+            throw e.getCause();
+        }
+    }
+
+    private static Object wrap(Object target, Class<?> type, InvocationHandler handler) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    /**
+     * Statement created on the metered connection
+     */
+    private class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private final Object connectionProxy;
+        private final List<Object> params;
+
+        StatementHandler(Statement statement, String sql, Object connectionProxy) {
+            this.statement = statement;
+            this.sql = sql;
+            this.connectionProxy = connectionProxy;
+            this.params = slowQueryLog != null && statement instanceof PreparedStatement ? new ArrayList<>() : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection":
+                    return connectionProxy;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (method.getName().startsWith("execute")) {
+                return execute(proxy, method, args);
+            }
+            if (params != null) {
+                capture(method, args);
+            }
+            Object result = call(statement, method, args);
+            if (result instanceof ResultSet) {
+                return wrap(result, ResultSet.class, new ResultSetHandler((ResultSet) result, proxy, null, null, null, 0));
+            }
+            return result;
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            Object event = FlightEvents.beginSql();
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = call(statement, method, args);
+            } catch (Throwable e) {
+                FlightEvents.endSql(event, name, text, 0, true);
+                if (slowQueryLog != null) {
+                    slowQueryLog.record(name, text, params, System.nanoTime() - start, 0);
+                }
+                throw e;
+            }
+            long executeNanos = System.nanoTime() - start;
+            if (result instanceof ResultSet) {
+                // A query runs until its rows have been read
+                return wrap(result, ResultSet.class, new ResultSetHandler((ResultSet) result, proxy, event, text,
+                        params, executeNanos));
+            }
+            long count = updateCount(result);
+            FlightEvents.endSql(event, name, text, count, false);
+            if (slowQueryLog != null) {
+                slowQueryLog.record(name, text, params, executeNanos, count);
+            }
+            return result;
+        }
+
+        /**
+         * Keep the value of a setXxx(index, value, ...) call so a slow execution can be logged with it
+         */
+        private void capture(Method method, Object[] args) {
+            if (method.getName().equals("clearParameters")) {
+                params.clear();
+            } else if (method.getName().startsWith("set") && args != null && args.length >= 2
+                    && args[0] instanceof Integer) {
+                int index = (Integer) args[0] - 1;
+                if (index < 0 || index > 1000) {
+                    return;
+                }
+                while (params.size() <= index) {
+                    params.add(null);
+                }
+                params.set(index, method.getName().equals("setNull") ? null : args[1]);
+            }
+        }
+
+        private long updateCount(Object result) {
+            if (result instanceof Number) {
+                return ((Number) result).longValue();
+            }
+            long total = 0;
+            if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    total += Math.max(count, 0);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    total += Math.max(count, 0);
+                }
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Result set read through a metered statement; counts the rows it moves onto
+     */
+    private class ResultSetHandler implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final Object statementProxy;
+        private Object event;
+        private final String sql;
+        private final List<Object> params;
+        private long driverNanos;
+        private long read;
+        private boolean failed;
+        private boolean closed;
+
+        ResultSetHandler(ResultSet resultSet, Object statementProxy, Object event, String sql,
+                         List<Object> params, long executeNanos) {
+            this.resultSet = resultSet;
+            this.statementProxy = statementProxy;
+            this.event = event;
+            this.sql = sql;
+            this.params = params;
+            this.driverNanos = executeNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    long start = slowQueryLog != null ? System.nanoTime() : 0;
+                    Object moved = read(method, args);
+                    if (slowQueryLog != null) {
+                        driverNanos += System.nanoTime() - start;
+                    }
+                    if (Boolean.TRUE.equals(moved)) {
+                        rows++;
+                        read++;
+                    }
+                    return moved;
+                case "close":
+                    try {
+                        return read(method, args);
+                    } finally {
+                        finish();
+                    }
+                case "getStatement":
+                    return statementProxy;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return read(method, args);
+            }
+        }
+
+        private void finish() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            FlightEvents.endSql(event, name, sql, read, failed);
+            // Only result sets of statements run through execute carry their SQL
+            if (slowQueryLog != null && sql != null) {
+                slowQueryLog.record(name, sql, params, driverNanos, read);
+            }
+        }
+
+        private Object read(Method method, Object[] args) throws Throwable {
+            try {
+                return call(resultSet, method, args);
+            } catch (SQLException e) {
+                failed = true;
+                throw e;
+            }
+        }
+    }
+}
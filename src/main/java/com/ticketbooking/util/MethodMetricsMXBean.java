@@ -0,0 +1,29 @@
+package com.ticketbooking.util;
+
+/**
+ * JMX view of one instrumented method's {@link MethodMetrics}
+ */
+public interface MethodMetricsMXBean {
+    String getName();
+
+    long getCalls();
+
+    long getErrors();
+
+    long getRows();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+
+    /**
+     * Start counting from zero again
+     */
+    void reset();
+}
@@ -0,0 +1,231 @@
+package com.ticketbooking.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registry of per-method call metrics for the DAO and service layers.
+ *
+ * Service methods run their body through {@link #time(String, Call)}. DAO
+ * methods borrow their connection with {@link DatabaseUtil#getConnection(String)},
+ * which times the borrow until close() and counts statement failures and
+ * result set rows against the method, even though the DAOs catch and log
+ * their own exceptions. Connection acquire time is kept as
+ * {@code DatabaseUtil.getConnection}.
+ *
+ * Every metric is registered as an MXBean named
+ * {@code com.ticketbooking:type=Metrics,name=<Class.method>}, and the whole
+ * table is written to a text file at a fixed interval and on shutdown.
+ * Recording costs two nanoTime() calls and a few uncontended adds, so the
+ * metrics are on by default; metrics.enabled=false turns them into direct calls.
+ */
+public final class Metrics {
+    private static final boolean ENABLED = AppConfig.getBoolean("metrics.enabled", true);
+    private static final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+    private Metrics() {
+        // Private constructor to prevent instantiation
+    }
+
+    static {
+        if (ENABLED) {
+            long interval = AppConfig.getLong("metrics.dumpIntervalSeconds", 60);
+            File file = new File(AppConfig.getString("metrics.dumpFile", "data/metrics.txt"));
+            if (interval > 0) {
+                ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "metrics-dump");
+                    t.setDaemon(true);
+                    return t;
+                });
+                dumper.scheduleWithFixedDelay(() -> writeDump(file), interval, interval, TimeUnit.SECONDS);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> writeDump(file), "metrics-dump-shutdown"));
+            }
+        }
+    }
+
+    /**
+     * Body of an instrumented method
+     *
+     * @param <T> Type of result
+     * @param <E> Checked exception the body may throw
+     */
+    public interface Call<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * Body of an instrumented method without a result
+     *
+     * @param <E> Checked exception the body may throw
+     */
+    public interface Task<E extends Exception> {
+        void run() throws E;
+    }
+
+    /**
+     * Check whether metrics are switched on in app.properties
+     *
+     * @return true if calls are being recorded
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Get the metrics for a method, registering them on first use
+     *
+     * @param name Method name, as Class.method
+     * @return The method's metrics
+     */
+    public static MethodMetrics get(String name) {
+        MethodMetrics metrics = methods.get(name);
+        if (metrics == null) {
+            MethodMetrics created = new MethodMetrics(name);
+            metrics = methods.putIfAbsent(name, created);
+            if (metrics == null) {
+                metrics = created;
+                register(created);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Run a method body, recording its latency and whether it threw
+     *
+     * @param name Method name, as Class.method
+     * @param call The method body
+     * @return The body's result
+     * @throws E whatever the body throws
+     */
+    public static <T, E extends Exception> T time(String name, Call<T, E> call) throws E {
+        if (!ENABLED) {
+            return call.run();
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = call.run();
+            failed = false;
+            return result;
+        } finally {
+            get(name).record(System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Run a method body without a result, recording its latency and whether it threw
+     *
+     * @param name Method name, as Class.method
+     * @param task The method body
+     * @throws E whatever the body throws
+     */
+    public static <E extends Exception> void run(String name, Task<E> task) throws E {
+        time(name, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Wrap a borrowed connection so its use is recorded against a DAO method
+     *
+     * @param name Method name, as Class.method
+     * @param connection Connection just borrowed from the pool
+     * @return Connection to hand to the DAO (the same one when metrics and the
+     *         slow-query log are off and no recording wants SQL events)
+     */
+    static Connection meter(String name, Connection connection) {
+        if (ENABLED) {
+            return MeteredConnection.wrap(connection, name, get(name));
+        }
+        if (SlowQueryLog.isEnabled() || FlightEvents.isRecordingSql()) {
+            return MeteredConnection.wrap(connection, name, null);
+        }
+        return connection;
+    }
+
+    /**
+     * Record a failed connection borrow against a DAO method
+     *
+     * @param name Method name, as Class.method
+     * @param nanos How long the borrow waited
+     */
+    static void recordBorrowFailure(String name, long nanos) {
+        if (ENABLED) {
+            get(name).record(nanos, true);
+        }
+    }
+
+    /**
+     * Format all metrics as a text table, one method per line in name order
+     *
+     * @return The table
+     */
+    public static String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%-52s %10s %8s %10s %9s %9s %9s %9s %9s%n", "method", "calls", "errors",
+                "rows", "mean ms", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (MethodMetrics m : new TreeMap<>(methods).values()) {
+            if (m.getCalls() == 0) {
+                continue;
+            }
+            out.append(String.format(Locale.ROOT, "%-52s %10d %8d %10d %9.3f %9.3f %9.3f %9.3f %9.3f%n", m.getName(),
+                    m.getCalls(), m.getErrors(), m.getRows(), m.getMeanMillis(), m.getP50Millis(),
+                    m.getP99Millis(), m.getP999Millis(), m.getMaxMillis()));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Get every registered metric
+     *
+     * @return Metrics in name order
+     */
+    public static List<MethodMetrics> getAll() {
+        return new ArrayList<>(new TreeMap<>(methods).values());
+    }
+
+    private static void register(MethodMetrics metrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(metrics, new ObjectName("com.ticketbooking:type=Metrics,name="
+                    + ObjectName.quote(metrics.getName())));
+        } catch (JMException | RuntimeException e) {
+            System.err.println("Error registering metrics MBean " + metrics.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private static void writeDump(File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        File temp = new File(parent, file.getName() + ".tmp");
+        try {
+            Files.createDirectories(parent.toPath());
+            try (PrintWriter writer = new PrintWriter(temp, "UTF-8")) {
+                writer.println("# " + new Date());
+                writer.print(dump());
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Error writing metrics dump: " + e.getMessage());
+        }
+    }
+}
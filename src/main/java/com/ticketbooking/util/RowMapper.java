@@ -0,0 +1,194 @@
+package com.ticketbooking.util;
+
+import java.lang.ref.WeakReference;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Maps result set rows to objects through a fixed list of column bindings.
+ *
+ * Each binding pairs a column label with a setter given as a method
+ * reference, so mapping a row is a plain call per column. Labels are turned
+ * into column indexes once per result set: the first row of a result set
+ * looks its metadata shape up (the labels in order) and every later row
+ * reuses the indexes. Bound columns the query did not select are skipped, so
+ * one mapper serves both {@code SELECT *} and narrower projections.
+ *
+ * <pre>
+ * RowMapper&lt;User&gt; mapper = RowMapper.builder(User::new)
+ *         .intColumn("user_id", User::setUserId)
+ *         .stringColumn("username", User::setUsername)
+ *         .build();
+ * </pre>
+ *
+ * @param <T> Type of object a row is mapped to
+ */
+public final class RowMapper<T> {
+    private final Supplier<T> factory;
+    private final String[] labels;
+    private final Column<T>[] columns;
+    private final ConcurrentHashMap<String, int[]> shapes = new ConcurrentHashMap<>();
+    private volatile Binding binding;
+
+    private RowMapper(Supplier<T> factory, List<String> labels, List<Column<T>> columns) {
+        this.factory = factory;
+        this.labels = labels.toArray(new String[0]);
+        @SuppressWarnings("unchecked")
+        Column<T>[] array = (Column<T>[]) columns.toArray(new Column<?>[0]);
+        this.columns = array;
+    }
+
+    /**
+     * Start describing a mapper
+     *
+     * @param factory Creates the empty object for each row
+     * @param <T> Type of object a row is mapped to
+     * @return Builder to add column bindings to
+     */
+    public static <T> Builder<T> builder(Supplier<T> factory) {
+        return new Builder<>(factory);
+    }
+
+    /**
+     * Map the current row
+     *
+     * @param rs Result set positioned on a row
+     * @return New object filled from the row
+     * @throws SQLException if a column cannot be read
+     */
+    public T map(ResultSet rs) throws SQLException {
+        Binding current = binding;
+        if (current == null || current.resultSet.get() != rs) {
+            current = new Binding(rs, indexesFor(rs.getMetaData()));
+            binding = current;
+        }
+
+        int[] indexes = current.indexes;
+        T target = factory.get();
+        for (int i = 0; i < columns.length; i++) {
+            if (indexes[i] > 0) {
+                columns[i].read(target, rs, indexes[i]);
+            }
+        }
+        return target;
+    }
+
+    private int[] indexesFor(ResultSetMetaData metaData) throws SQLException {
+        int count = metaData.getColumnCount();
+        String[] present = new String[count];
+        StringBuilder shape = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            present[i] = metaData.getColumnLabel(i + 1).toLowerCase(Locale.ROOT);
+            shape.append(present[i]).append(',');
+        }
+
+        int[] indexes = shapes.get(shape.toString());
+        if (indexes == null) {
+            indexes = new int[labels.length];
+            for (int i = 0; i < labels.length; i++) {
+                // First match wins, as with ResultSet.findColumn
+                for (int j = 0; j < count && indexes[i] == 0; j++) {
+                    if (labels[i].equals(present[j])) {
+                        indexes[i] = j + 1;
+                    }
+                }
+            }
+            shapes.putIfAbsent(shape.toString(), indexes);
+        }
+        return indexes;
+    }
+
+    /**
+     * Reads one column into the object being mapped
+     *
+     * @param <T> Type of object a row is mapped to
+     */
+    private interface Column<T> {
+        void read(T target, ResultSet rs, int index) throws SQLException;
+    }
+
+    /**
+     * Setter for a boolean property
+     *
+     * @param <T> Type of object the property belongs to
+     */
+    public interface BooleanSetter<T> {
+        void set(T target, boolean value);
+    }
+
+    // Remembers the indexes for the result set most recently mapped
+    private static final class Binding {
+        final WeakReference<ResultSet> resultSet;
+        final int[] indexes;
+
+        Binding(ResultSet resultSet, int[] indexes) {
+            this.resultSet = new WeakReference<>(resultSet);
+            this.indexes = indexes;
+        }
+    }
+
+    /**
+     * Collects column bindings for a {@link RowMapper}
+     *
+     * @param <T> Type of object a row is mapped to
+     */
+    public static final class Builder<T> {
+        private final Supplier<T> factory;
+        private final List<String> labels = new ArrayList<>();
+        private final List<Column<T>> columns = new ArrayList<>();
+
+        private Builder(Supplier<T> factory) {
+            this.factory = factory;
+        }
+
+        public Builder<T> intColumn(String label, ObjIntConsumer<T> setter) {
+            return column(label, (target, rs, index) -> setter.accept(target, rs.getInt(index)));
+        }
+
+        public Builder<T> doubleColumn(String label, ObjDoubleConsumer<T> setter) {
+            return column(label, (target, rs, index) -> setter.accept(target, rs.getDouble(index)));
+        }
+
+        public Builder<T> booleanColumn(String label, BooleanSetter<T> setter) {
+            return column(label, (target, rs, index) -> setter.set(target, rs.getBoolean(index)));
+        }
+
+        public Builder<T> stringColumn(String label, BiConsumer<T, String> setter) {
+            return column(label, (target, rs, index) -> setter.accept(target, rs.getString(index)));
+        }
+
+        public Builder<T> dateColumn(String label, BiConsumer<T, Date> setter) {
+            return column(label, (target, rs, index) -> setter.accept(target, rs.getDate(index)));
+        }
+
+        public Builder<T> timeColumn(String label, BiConsumer<T, Time> setter) {
+            return column(label, (target, rs, index) -> setter.accept(target, rs.getTime(index)));
+        }
+
+        public Builder<T> timestampColumn(String label, BiConsumer<T, Timestamp> setter) {
+            return column(label, (target, rs, index) -> setter.accept(target, rs.getTimestamp(index)));
+        }
+
+        public RowMapper<T> build() {
+            return new RowMapper<>(factory, labels, columns);
+        }
+
+        private Builder<T> column(String label, Column<T> column) {
+            labels.add(label.toLowerCase(Locale.ROOT));
+            columns.add(column);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.ticketbooking.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Log of DAO statements that take longer than a threshold.
+ *
+ * Every statement executed on a metered connection (see
+ * {@link DatabaseUtil#getConnection(String)}) is timed from execute until its
+ * result set is closed, counting only the time spent in the driver, not in
+ * the DAO's row mapping. A statement over slowquery.thresholdMs is written
+ * to the log with its DAO method, rows and bind values. Statements are also
+ * aggregated by normalized SQL (literals replaced by ?, IN lists collapsed),
+ * and once the same statement has been slow slowquery.explainAfter times its
+ * EXPLAIN plan is captured with the last bind values, at most once per
+ * slowquery.explainIntervalSeconds. A summary of the worst statements by
+ * total time is appended every slowquery.summaryIntervalSeconds and on exit.
+ *
+ * String bind values (user names, e-mail addresses, passwords) are replaced
+ * by <redacted> before anything is queued, and the EXPLAIN binds an empty
+ * string in their place. They are only logged for the DAO methods listed in
+ * slowquery.logStringParams, and never for statements on a password column.
+ *
+ * File writes and EXPLAINs run on one background thread, so a slow statement
+ * only costs the caller a queue offer; if the queue is full the entry is
+ * dropped. The log file is rotated once it reaches slowquery.maxFileSizeMb,
+ * keeping slowquery.maxFiles old files (slow-queries.log.1 is the newest).
+ */
+public class SlowQueryLog {
+    private static final boolean ENABLED = AppConfig.getBoolean("slowquery.enabled", true);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern PASSWORD_COLUMN = Pattern.compile("\\bpassword\\b", Pattern.CASE_INSENSITIVE);
+    private static final Object REDACTED = new Object();
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final int MAX_VALUE_LENGTH = 200;
+    private static final int SUMMARY_SIZE = 20;
+    private static volatile SlowQueryLog instance;
+
+    private final long thresholdNanos;
+    private final int explainAfter;
+    private final long explainIntervalNanos;
+    private final File file;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final Set<String> stringParamMethods;
+    private final ConcurrentHashMap<String, Digest> digests = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor writer;
+
+    private SlowQueryLog(long thresholdMs, int explainAfter, long explainIntervalSeconds, File file,
+                         long maxFileSize, int maxFiles, long summaryIntervalSeconds, Set<String> stringParamMethods) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.explainAfter = explainAfter;
+        this.explainIntervalNanos = TimeUnit.SECONDS.toNanos(explainIntervalSeconds);
+        this.file = file;
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = Math.max(1, maxFiles);
+        this.stringParamMethods = stringParamMethods;
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1000), r -> {
+            Thread t = new Thread(r, "slow-query-log");
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+        if (summaryIntervalSeconds > 0) {
+            ScheduledExecutorService summaries = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "slow-query-summary");
+                t.setDaemon(true);
+                return t;
+            });
+            summaries.scheduleWithFixedDelay(() -> writer.execute(this::writeSummary),
+                    summaryIntervalSeconds, summaryIntervalSeconds, TimeUnit.SECONDS);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::writeSummary, "slow-query-summary-shutdown"));
+    }
+
+    /**
+     * Check whether the slow-query log is switched on in app.properties
+     *
+     * @return true if statements should be timed against the threshold
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Get the shared slow-query log
+     *
+     * @return The slow-query log
+     */
+    public static SlowQueryLog getInstance() {
+        SlowQueryLog current = instance;
+        if (current == null) {
+            synchronized (SlowQueryLog.class) {
+                current = instance;
+                if (current == null) {
+                    current = new SlowQueryLog(AppConfig.getLong("slowquery.thresholdMs", 100),
+                            AppConfig.getInt("slowquery.explainAfter", 3),
+                            AppConfig.getLong("slowquery.explainIntervalSeconds", 600),
+                            new File(AppConfig.getString("slowquery.file", "data/slow-queries.log")),
+                            AppConfig.getLong("slowquery.maxFileSizeMb", 10) * 1024 * 1024,
+                            AppConfig.getInt("slowquery.maxFiles", 5),
+                            AppConfig.getLong("slowquery.summaryIntervalSeconds", 300),
+                            parseMethods(AppConfig.getString("slowquery.logStringParams", "")));
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Record a finished statement; does nothing unless it took longer than the threshold
+     *
+     * @param method DAO method, as Class.method
+     * @param sql SQL text as prepared
+     * @param params Bind values by parameter index starting at 0 (null if none were captured)
+     * @param nanos Time spent executing and fetching
+     * @param rows Rows read or changed
+     */
+    public void record(String method, String sql, List<Object> params, long nanos, long rows) {
+        if (nanos < thresholdNanos || sql == null) {
+            return;
+        }
+        String normalized = normalize(sql);
+        Digest digest = digests.computeIfAbsent(normalized, Digest::new);
+        List<Object> values = params != null ? redact(method, sql, params) : Collections.emptyList();
+        long explainAt = digest.add(method, nanos, explainAfter, explainIntervalNanos);
+        String time = LocalDateTime.now().format(TIMESTAMP);
+        writer.execute(() -> {
+            append(String.format(Locale.ROOT, "%s slow %.1f ms rows=%d method=%s digest=%s%n  sql: %s%n  params: %s%n",
+                    time, nanos / 1e6, rows, method, digest.getId(), sql, format(values)));
+            if (explainAt > 0) {
+                explain(digest, explainAt, sql, values);
+            }
+        });
+    }
+
+    /**
+     * Get the slow statements seen so far, worst total time first
+     *
+     * @return One digest per normalized statement
+     */
+    public List<Digest> getDigests() {
+        // Sort on a snapshot of the totals, which keep changing while the list is sorted
+        Map<Digest, Long> totals = new HashMap<>();
+        for (Digest digest : digests.values()) {
+            totals.put(digest, digest.getTotalNanos());
+        }
+        List<Digest> list = new ArrayList<>(totals.keySet());
+        list.sort(Comparator.comparing(totals::get, Comparator.reverseOrder()));
+        return list;
+    }
+
+    /**
+     * Reduce a statement to its shape: string and number literals become ?,
+     * IN lists of placeholders become (?...), and whitespace is collapsed
+     *
+     * @param sql SQL text
+     * @return Normalized SQL
+     */
+    public static String normalize(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                // String literal, with '' as an escaped quote
+                i++;
+                while (i < sql.length()) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                out.append('?');
+                i++;
+            } else if (Character.isDigit(c) && !isWordChar(out)) {
+                while (i < sql.length() && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                out.append('?');
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        String collapsed = WHITESPACE.matcher(out.toString().trim()).replaceAll(" ");
+        return IN_LIST.matcher(collapsed).replaceAll("(?...)");
+    }
+
+    private static Set<String> parseMethods(String list) {
+        Set<String> methods = new HashSet<>();
+        for (String method : list.split(",")) {
+            if (!method.trim().isEmpty()) {
+                methods.add(method.trim());
+            }
+        }
+        return methods;
+    }
+
+    /**
+     * Copy the bind values, replacing strings unless the method is allowed to log them
+     */
+    private List<Object> redact(String method, String sql, List<Object> params) {
+        boolean keepStrings = stringParamMethods.contains(method) && !PASSWORD_COLUMN.matcher(sql).find();
+        List<Object> values = new ArrayList<>(params.size());
+        for (Object value : params) {
+            values.add(!keepStrings && (value instanceof CharSequence || value instanceof char[]) ? REDACTED : value);
+        }
+        return values;
+    }
+
+    private static boolean isWordChar(StringBuilder out) {
+        if (out.length() == 0) {
+            return false;
+        }
+        char last = out.charAt(out.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == '.' || last == '`';
+    }
+
+    private void explain(Digest digest, long slowCount, String sql, List<Object> params) {
+        String verb = sql.trim().split("\\s+", 2)[0].toUpperCase(Locale.ROOT);
+        if (!verb.equals("SELECT") && !verb.equals("UPDATE") && !verb.equals("DELETE")) {
+            return;
+        }
+        StringBuilder plan = new StringBuilder();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                Object value = params.get(i);
+                pstmt.setObject(i + 1, value == REDACTED ? "" : value);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                List<String> columns = new ArrayList<>();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    columns.add(meta.getColumnLabel(i));
+                }
+                plan.append("  ").append(String.join(" | ", columns)).append(System.lineSeparator());
+                while (rs.next()) {
+                    List<String> row = new ArrayList<>();
+                    for (int i = 1; i <= columns.size(); i++) {
+                        // Some databases return the whole plan as one multi-line value
+                        row.add(String.valueOf(rs.getObject(i)).replace("\n", "\n  "));
+                    }
+                    plan.append("  ").append(String.join(" | ", row)).append(System.lineSeparator());
+                }
+            }
+        } catch (SQLException e) {
+            plan.append("  EXPLAIN failed: ").append(e.getMessage()).append(System.lineSeparator());
+        }
+        append(String.format(Locale.ROOT, "%s explain digest=%s after %d slow executions%n  sql: %s%n%s",
+                LocalDateTime.now().format(TIMESTAMP), digest.getId(), slowCount, sql, plan));
+    }
+
+    private void writeSummary() {
+        List<Digest> worst = getDigests();
+        if (worst.isEmpty()) {
+            return;
+        }
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%s summary of %d slow statements by total time%n",
+                LocalDateTime.now().format(TIMESTAMP), worst.size()));
+        out.append(String.format(Locale.ROOT, "  %8s %11s %9s %9s  %-8s  %s%n", "count", "total ms", "mean ms",
+                "max ms", "digest", "normalized sql"));
+        for (Digest d : worst.subList(0, Math.min(SUMMARY_SIZE, worst.size()))) {
+            out.append(String.format(Locale.ROOT, "  %8d %11.1f %9.1f %9.1f  %-8s  %s%n", d.getCount(),
+                    d.getTotalNanos() / 1e6, d.getTotalNanos() / 1e6 / d.getCount(), d.getMaxNanos() / 1e6,
+                    d.getId(), d.getNormalizedSql()));
+        }
+        append(out.toString());
+    }
+
+    private synchronized void append(String text) {
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            Files.createDirectories(parent.toPath());
+            if (file.length() >= maxFileSize) {
+                rotate();
+            }
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                    new FileOutputStream(file, true), StandardCharsets.UTF_8))) {
+                out.print(text);
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing slow-query log: " + e.getMessage());
+        }
+    }
+
+    private void rotate() throws IOException {
+        for (int i = maxFiles; i >= 1; i--) {
+            File from = i == 1 ? file : new File(file.getPath() + "." + (i - 1));
+            File to = new File(file.getPath() + "." + i);
+            if (from.exists()) {
+                Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static String format(List<Object> params) {
+        List<String> values = new ArrayList<>(params.size());
+        for (Object value : params) {
+            if (value == null) {
+                values.add("NULL");
+            } else if (value == REDACTED) {
+                values.add("<redacted>");
+            } else if (value instanceof byte[]) {
+                values.add("<" + ((byte[]) value).length + " bytes>");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                values.add(value.toString());
+            } else {
+                String text = value.toString();
+                if (text.length() > MAX_VALUE_LENGTH) {
+                    text = text.substring(0, MAX_VALUE_LENGTH) + "...";
+                }
+                values.add("'" + text.replace("'", "''") + "'");
+            }
+        }
+        return "[" + String.join(", ", values) + "]";
+    }
+
+    /**
+     * Slow executions of one normalized statement
+     */
+    public static class Digest {
+        private final String normalizedSql;
+        private final String id;
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private String lastMethod;
+        private long explainedAt;
+        private boolean explained;
+
+        Digest(String normalizedSql) {
+            this.normalizedSql = normalizedSql;
+            this.id = String.format("%08x", normalizedSql.hashCode());
+        }
+
+        /**
+         * Add one slow execution
+         *
+         * @return The number of slow executions so far if the statement's plan
+         *         should be captured now, otherwise 0
+         */
+        synchronized long add(String method, long nanos, int explainAfter, long explainIntervalNanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            lastMethod = method;
+            long now = System.nanoTime();
+            if (explainAfter > 0 && count >= explainAfter
+                    && (!explained || now - explainedAt >= explainIntervalNanos)) {
+                explained = true;
+                explainedAt = now;
+                return count;
+            }
+            return 0;
+        }
+
+        public String getNormalizedSql() {
+            return normalizedSql;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public synchronized long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public synchronized String getLastMethod() {
+            return lastMethod;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.ticketbooking.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * LRU cache of prepared statements belonging to one pooled connection.
+ *
+ * Statements are keyed by SQL text and generated-keys flag. A cached
+ * statement is lent out through a proxy whose close() closes the result sets
+ * it opened, clears its parameters, resets any fetch size, row limit or
+ * query timeout the borrower set, and puts it back instead of closing it, so
+ * repeated DAO calls skip the prepare round trip. If the same SQL is already checked out (nested use on
+ * one connection) the caller gets an ordinary uncached statement.
+ *
+ * The cache is guarded by a ReentrantLock rather than synchronized because
+ * prepare and clear go to the database while holding it, and a virtual
+ * thread blocked inside a monitor would pin its carrier thread.
+ */
+class StatementCache {
+    private final Connection connection;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * @param connection Physical connection the statements are prepared on
+     * @param maxSize Maximum number of statements kept open
+     * @param hits Pool-wide hit counter
+     * @param misses Pool-wide miss counter
+     */
+    StatementCache(Connection connection, int maxSize, AtomicLong hits, AtomicLong misses) {
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * Check whether a prepareStatement call can be served from the cache
+     *
+     * @param args Arguments of the prepareStatement call
+     * @return true for prepareStatement(String) and prepareStatement(String, int)
+     */
+    static boolean isCacheable(Object[] args) {
+        return args != null && (args.length == 1 || (args.length == 2 && args[1] instanceof Integer))
+                && args[0] instanceof String;
+    }
+
+    /**
+     * Lend out a prepared statement for the given SQL
+     *
+     * @param owner Connection proxy the caller holds; returned by getConnection()
+     * @param args Arguments of the prepareStatement call
+     * @return Statement proxy; close() returns it to the cache
+     * @throws SQLException if the statement cannot be prepared
+     */
+    PreparedStatement prepare(Connection owner, Object[] args) throws SQLException {
+        String sql = (String) args[0];
+        int generatedKeys = args.length == 2 ? (Integer) args[1] : -1;
+        String key = generatedKeys + ":" + sql;
+
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.inUse) {
+                    misses.incrementAndGet();
+                    return prepareUncached(sql, generatedKeys);
+                }
+                hits.incrementAndGet();
+                entry.inUse = true;
+                return entry.lend(owner);
+            }
+
+            misses.incrementAndGet();
+            entry = new Entry(key, prepareUncached(sql, generatedKeys));
+            entry.inUse = true;
+            entries.put(key, entry);
+            evictIfNeeded();
+            return entry.lend(owner);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PreparedStatement prepareUncached(String sql, int generatedKeys) throws SQLException {
+        return generatedKeys < 0 ? connection.prepareStatement(sql) : connection.prepareStatement(sql, generatedKeys);
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Entry> leastRecent = entries.values().iterator();
+        while (entries.size() > maxSize && leastRecent.hasNext()) {
+            Entry eldest = leastRecent.next();
+            if (!eldest.inUse) {
+                leastRecent.remove();
+                closeQuietly(eldest.statement);
+            }
+        }
+    }
+
+    private void giveBack(Entry entry) {
+        lock.lock();
+        try {
+            entry.inUse = false;
+            try {
+                entry.statement.clearParameters();
+                entry.statement.clearBatch();
+                entry.statement.clearWarnings();
+                if (entry.reconfigured) {
+                    // A streaming read sets a fetch size the next borrower must not inherit
+                    entry.statement.setFetchSize(0);
+                    entry.statement.setMaxRows(0);
+                    entry.statement.setQueryTimeout(0);
+                    entry.statement.setFetchDirection(ResultSet.FETCH_FORWARD);
+                    entry.reconfigured = false;
+                }
+            } catch (SQLException e) {
+                entries.remove(entry.key);
+                closeQuietly(entry.statement);
+                return;
+            }
+            if (entries.get(entry.key) != entry) {
+                closeQuietly(entry.statement);
+            } else {
+                evictIfNeeded();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop statements a borrower never closed, so the next borrower of the
+     * connection cannot share them with a stale reference
+     */
+    void discardInUse() {
+        lock.lock();
+        try {
+            List<Entry> abandoned = new ArrayList<>();
+            for (Entry entry : entries.values()) {
+                if (entry.inUse) {
+                    abandoned.add(entry);
+                }
+            }
+            for (Entry entry : abandoned) {
+                entries.remove(entry.key);
+                closeQuietly(entry.statement);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing cached statement: " + e.getMessage());
+        }
+    }
+
+    private class Entry {
+        final String key;
+        final PreparedStatement statement;
+        boolean inUse;
+        boolean reconfigured;
+
+        Entry(String key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+
+        PreparedStatement lend(Connection owner) {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, new Loan(this, owner));
+        }
+    }
+
+    /**
+     * One checkout of a cached statement
+     */
+    private class Loan implements InvocationHandler {
+        private final Entry entry;
+        private final Connection owner;
+        private final List<ResultSet> results = new ArrayList<>(1);
+        private boolean returned;
+
+        Loan(Entry entry, Connection owner) {
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        closeResults();
+                        giveBack(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || entry.statement.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Statement is closed");
+            }
+            if (method.getName().equals("setFetchSize") || method.getName().equals("setMaxRows")
+                    || method.getName().equals("setLargeMaxRows") || method.getName().equals("setQueryTimeout")
+                    || method.getName().equals("setFetchDirection")) {
+                entry.reconfigured = true;
+            }
+            Object result;
+            try {
+                result = method.invoke(entry.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet) {
+                results.add((ResultSet) result);
+            }
+            return result;
+        }
+
+        /**
+         * Close result sets the borrower left open; on MySQL an unread
+         * streaming result would otherwise block the connection
+         */
+        private void closeResults() {
+            for (ResultSet rs : results) {
+                try {
+                    rs.close();
+                } catch (SQLException e) {
+                    System.err.println("Error closing cached statement result set: " + e.getMessage());
+                }
+            }
+            results.clear();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.ticketbooking.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timing wheel.
+ *
+ * Timeouts are hashed into a fixed ring of buckets by their deadline tick.
+ * Scheduling and cancelling are O(1) (a doubly linked list insert/unlink);
+ * advancing one tick only visits the bucket for that tick, and entries whose
+ * deadline lies further than one revolution ahead simply stay put until
+ * their round comes up.
+ *
+ * @param <T> Type of item carried by each timeout
+ */
+public class TimingWheel<T> {
+    private final long tickMs;
+    private final Bucket<T>[] buckets;
+    private final int mask;
+    private final long startMs;
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMs Duration of one tick in milliseconds
+     * @param wheelSize Number of buckets (rounded up to a power of two)
+     */
+    public TimingWheel(long tickMs, int wheelSize) {
+        if (tickMs <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMs and wheelSize must be positive");
+        }
+        int n = Integer.highestOneBit(wheelSize);
+        if (n < wheelSize) {
+            n <<= 1;
+        }
+        this.tickMs = tickMs;
+        @SuppressWarnings("unchecked")
+        Bucket<T>[] array = (Bucket<T>[]) new Bucket<?>[n];
+        for (int i = 0; i < n; i++) {
+            array[i] = new Bucket<>();
+        }
+        this.buckets = array;
+        this.mask = n - 1;
+        this.startMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Schedule an item to expire after a delay
+     *
+     * @param item Item to return when the timeout fires
+     * @param delayMs Delay in milliseconds (rounded up to whole ticks)
+     * @return Handle for cancelling the timeout
+     */
+    public synchronized Timeout<T> schedule(T item, long delayMs) {
+        long elapsedMs = System.currentTimeMillis() - startMs + Math.max(0, delayMs);
+        long deadlineTick = Math.max(currentTick + 1, (elapsedMs + tickMs - 1) / tickMs);
+        Timeout<T> timeout = new Timeout<>(item, deadlineTick);
+        buckets[(int) (timeout.deadlineTick & mask)].add(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Cancel a timeout
+     *
+     * @param timeout Handle returned by schedule()
+     * @return true if it was still pending, false if it had already fired or been cancelled
+     */
+    public synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.bucket == null) {
+            return false;
+        }
+        timeout.bucket.remove(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Advance the wheel up to the current time
+     *
+     * @return Items whose timeouts fired, oldest tick first
+     */
+    public synchronized List<T> advance() {
+        long targetTick = (System.currentTimeMillis() - startMs) / tickMs;
+        List<T> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            currentTick++;
+            Bucket<T> bucket = buckets[(int) (currentTick & mask)];
+            Timeout<T> timeout = bucket.head;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                if (timeout.deadlineTick <= currentTick) {
+                    bucket.remove(timeout);
+                    size--;
+                    expired.add(timeout.item);
+                }
+                timeout = next;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Get the number of pending timeouts
+     *
+     * @return Pending timeout count
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * A scheduled timeout
+     */
+    public static final class Timeout<T> {
+        private final T item;
+        private final long deadlineTick;
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getItem() {
+            return item;
+        }
+    }
+
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.ticketbooking.util;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Workers for {@link DatabaseExecutor} that start one virtual thread per call.
+ *
+ * A fair semaphore with one permit per pooled connection is taken before the
+ * call runs, so the database never sees more concurrent calls than the pool
+ * holds and the rest wait in arrival order as parked virtual threads, which
+ * cost a few hundred bytes each instead of a platform thread stack. At most
+ * queueCapacity calls may wait; further calls are rejected.
+ *
+ * The application's own locks on the JDBC path are java.util.concurrent
+ * locks, which unmount a waiting virtual thread. A JDBC driver that
+ * synchronizes internally still pins the carrier thread while it waits for
+ * the database (JDK 21), and there are at most as many such calls as
+ * permits, so unless jdk.virtualThreadScheduler.parallelism is set the
+ * scheduler is given one carrier per permit on top of one per CPU core.
+ * Run with -Djdk.tracePinnedThreads=short to see where pinning happens.
+ *
+ * Only compiled when building on JDK 21 or later (the virtual-threads Maven
+ * profile); DatabaseExecutor loads it by name.
+ */
+final class VirtualThreadWorkers implements DatabaseExecutor.Workers {
+    private final int limit;
+    private final int queueCapacity;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ThreadFactory factory;
+
+    VirtualThreadWorkers(int limit, int queueCapacity) {
+        this.limit = limit;
+        this.queueCapacity = queueCapacity;
+        this.permits = new Semaphore(limit, true);
+        if (System.getProperty("jdk.virtualThreadScheduler.parallelism") == null) {
+            // Read when the first virtual thread is created
+            System.setProperty("jdk.virtualThreadScheduler.parallelism",
+                    String.valueOf(Runtime.getRuntime().availableProcessors() + limit));
+        }
+        this.factory = Thread.ofVirtual().name("db-virtual-", 1).factory();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (waiting.incrementAndGet() > queueCapacity) {
+            waiting.decrementAndGet();
+            throw new RejectedExecutionException("Too many database calls waiting");
+        }
+        factory.newThread(() -> run(task)).start();
+    }
+
+    private void run(Runnable task) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            waiting.decrementAndGet();
+            return;
+        }
+        waiting.decrementAndGet();
+        try {
+            task.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public int getQueueLength() {
+        return waiting.get();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return limit - permits.availablePermits();
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public boolean isVirtual() {
+        return true;
+    }
+}
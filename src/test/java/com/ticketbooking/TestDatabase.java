@@ -0,0 +1,79 @@
+package com.ticketbooking;
+
+import com.ticketbooking.util.DatabaseUtil;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * In-memory H2 database in MySQL mode, created from sql/db_schema.sql, for
+ * tests that go through the DAOs.
+ */
+public final class TestDatabase {
+    private TestDatabase() {
+    }
+
+    /**
+     * Point the application at a fresh in-memory database with the schema
+     * and sample data
+     *
+     * @param name Database name (each name is a separate database)
+     * @throws SQLException if the schema cannot be created
+     */
+    public static void start(String name) throws SQLException {
+        DatabaseUtil.setCredentials("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        File script = schemaScript();
+        try {
+            execute("RUNSCRIPT FROM '" + script.getAbsolutePath().replace("'", "''") + "'");
+        } finally {
+            script.delete();
+        }
+    }
+
+    /**
+     * Run statements against the test database
+     *
+     * @param sql Statements to run in order
+     * @throws SQLException if a statement fails
+     */
+    public static void execute(String... sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String statement : sql) {
+                stmt.execute(statement);
+            }
+        }
+    }
+
+    // The schema file creates and selects a MySQL database first; H2 only needs the tables
+    private static File schemaScript() throws SQLException {
+        try (InputStream in = TestDatabase.class.getResourceAsStream("/db_schema.sql")) {
+            if (in == null) {
+                throw new SQLException("db_schema.sql is not on the classpath");
+            }
+            File script = File.createTempFile("test-schema", ".sql");
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                 PrintWriter writer = new PrintWriter(script, "UTF-8")) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String upper = line.trim().toUpperCase();
+                    if (!upper.startsWith("DROP DATABASE") && !upper.startsWith("CREATE DATABASE")
+                            && !upper.startsWith("USE ")) {
+                        writer.println(line);
+                    }
+                }
+            }
+            return script;
+        } catch (IOException e) {
+            throw new SQLException("Cannot prepare the schema script", e);
+        }
+    }
+}
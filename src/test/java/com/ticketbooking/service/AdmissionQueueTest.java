@@ -0,0 +1,134 @@
+package com.ticketbooking.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionQueueTest {
+
+    @BeforeAll
+    static void disableInventory() {
+        // Sold-out checks would otherwise start the shared inventory against a database
+        System.setProperty("booking.inventory.enabled", "false");
+    }
+
+    @AfterAll
+    static void restoreInventory() {
+        System.clearProperty("booking.inventory.enabled");
+    }
+
+    @Test
+    void admitsUpToTheLimitThenQueuesInOrder() throws InterruptedException {
+        AdmissionQueue queue = new AdmissionQueue(2, 1, 2, 10, 1000);
+        AdmissionQueue.Entry first = queue.enter(1);
+        AdmissionQueue.Entry second = queue.enter(1);
+        AdmissionQueue.Entry third = queue.enter(1);
+        AdmissionQueue.Entry fourth = queue.enter(1);
+
+        assertTrue(first.isAdmitted());
+        assertTrue(second.isAdmitted());
+        assertFalse(third.isAdmitted());
+        assertEquals(2, queue.getInFlight());
+        assertEquals(2, queue.getQueueLength());
+        assertEquals(0, first.getPosition());
+        assertEquals(1, third.getPosition());
+        assertEquals(2, fourth.getPosition());
+
+        first.leave();
+        assertTrue(third.awaitAdmission(1000));
+        assertEquals(1, fourth.getPosition());
+        assertFalse(fourth.isAdmitted());
+
+        second.leave();
+        assertTrue(fourth.awaitAdmission(1000));
+        assertEquals(0, queue.getQueueLength());
+    }
+
+    @Test
+    void leaveIsSafeToRepeat() {
+        AdmissionQueue queue = new AdmissionQueue(1, 1, 1, 10, 1000);
+        AdmissionQueue.Entry entry = queue.enter(1);
+        entry.leave();
+        entry.leave();
+        assertEquals(0, queue.getInFlight());
+        assertTrue(queue.enter(1).isAdmitted());
+    }
+
+    @Test
+    void timedOutCallerLeavesTheQueue() throws InterruptedException {
+        AdmissionQueue queue = new AdmissionQueue(1, 1, 1, 10, 1000);
+        AdmissionQueue.Entry inside = queue.enter(1);
+        AdmissionQueue.Entry waiting = queue.enter(1);
+        AdmissionQueue.Entry behind = queue.enter(1);
+
+        assertFalse(waiting.awaitAdmission(20));
+        waiting.leave();
+        assertEquals(1, queue.getQueueLength());
+        assertEquals(1, behind.getPosition());
+
+        inside.leave();
+        assertTrue(behind.awaitAdmission(1000));
+        assertFalse(waiting.isAdmitted());
+    }
+
+    @Test
+    void waiterIsAdmittedWhenASlotFrees() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue(1, 1, 1, 10, 1000);
+        AdmissionQueue.Entry inside = queue.enter(1);
+        AdmissionQueue.Entry waiting = queue.enter(1);
+        CompletableFuture<Boolean> admitted = CompletableFuture.supplyAsync(() -> {
+            try {
+                return waiting.awaitAdmission(5000);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+
+        inside.leave();
+        assertTrue(admitted.get(5, TimeUnit.SECONDS));
+        waiting.leave();
+        assertEquals(0, queue.getInFlight());
+    }
+
+    @Test
+    void sheddingRejectsOnlyTheSoldOutEvent() throws InterruptedException {
+        AdmissionQueue queue = new AdmissionQueue(1, 1, 1, 10, 1000);
+        AdmissionQueue.Entry inside = queue.enter(1);
+        AdmissionQueue.Entry soldOut = queue.enter(1);
+        AdmissionQueue.Entry other = queue.enter(2);
+
+        queue.shed(1);
+        assertFalse(soldOut.awaitAdmission(1000));
+        assertEquals(1, other.getPosition());
+
+        inside.leave();
+        assertTrue(other.awaitAdmission(1000));
+    }
+
+    @Test
+    void fullQueueRejectsNewArrivals() {
+        AdmissionQueue queue = new AdmissionQueue(1, 1, 1, 2, 1000);
+        assertNotNull(queue.enter(1));
+        assertNotNull(queue.enter(1));
+        assertNotNull(queue.enter(1));
+        assertNull(queue.enter(1));
+    }
+
+    @Test
+    void limitStaysWithinItsBounds() {
+        AdmissionQueue queue = new AdmissionQueue(4, 2, 8, 100, 1000);
+        for (int i = 0; i < 500; i++) {
+            queue.enter(1).leave();
+            assertTrue(queue.getLimit() >= 2 && queue.getLimit() <= 8);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.ticketbooking.service;
+
+import com.ticketbooking.TestDatabase;
+import com.ticketbooking.model.Ticket;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookingJournalTest {
+    private static final int SEGMENT_SIZE = 1024 * 1024;
+
+    @TempDir
+    File directory;
+
+    @BeforeAll
+    static void createDatabase() throws SQLException {
+        TestDatabase.start("journal");
+    }
+
+    @Test
+    void replayRestoresSeatsAndUnflushedReductions() throws IOException {
+        BookingJournal journal = open(SEGMENT_SIZE, 0);
+        journal.recordTracked(1, 100);
+        journal.recordBooked(1, 4, 2, "replay-1");
+        journal.recordCommitted(ticket(501, 1, 4, "replay-1"));
+        journal.recordBooked(1, 3, 2, "replay-2");
+        journal.recordCommitted(ticket(502, 1, 3, "replay-2"));
+        journal.recordFlushed(1, 4);
+        journal.recordReleased(ticket(501, 1, 4, "replay-1"), "CANCELLED");
+        journal.recordBooked(1, 2, 2, "replay-3");
+        journal.recordUnbooked(1, 2, "replay-3");
+        journal.recordResized(1, -10);
+
+        BookingJournal recovered = open(SEGMENT_SIZE, 0);
+        assertEquals(Collections.singletonMap(1, 87), recovered.getAvailableSeats());
+        assertEquals(Collections.singletonMap(1, 3), recovered.getUnflushedReductions());
+    }
+
+    @Test
+    void crashBeforeTheTicketCommitsGivesTheSeatsBack() throws Exception {
+        BookingJournal journal = open(SEGMENT_SIZE, 0);
+        journal.recordTracked(1, 100);
+        journal.recordBooked(1, 5, 2, "crash-lost");
+        journal.recordBooked(1, 2, 2, "crash-kept");
+        // The second ticket committed, but the process died before journaling it
+        TestDatabase.execute("INSERT INTO tickets (event_id, user_id, quantity, total_price, payment_status, request_id) "
+                + "VALUES (1, 2, 2, 100.00, 'PENDING', 'crash-kept')");
+
+        BookingJournal recovered = open(SEGMENT_SIZE, 0);
+        assertEquals(Collections.singletonMap(1, 98), recovered.getAvailableSeats());
+        assertEquals(Collections.singletonMap(1, 2), recovered.getUnflushedReductions());
+
+        // The bookings are settled in the journal, so a second restart agrees
+        BookingJournal again = open(SEGMENT_SIZE, 0);
+        assertEquals(Collections.singletonMap(1, 98), again.getAvailableSeats());
+        assertEquals(Collections.singletonMap(1, 2), again.getUnflushedReductions());
+    }
+
+    @Test
+    void bookingInDoubtIsKeptAcrossASnapshot() throws Exception {
+        // Small segments, so the booked record's segment is snapshotted and deleted
+        int segmentSize = 256;
+        BookingJournal journal = open(segmentSize, 0);
+        journal.recordTracked(1, 100);
+        journal.recordBooked(1, 5, 2, "snapshot-lost");
+        for (int i = 0; i < 50; i++) {
+            journal.recordStatus(i, "COMPLETED");
+        }
+        awaitOneSegment();
+
+        BookingJournal recovered = open(segmentSize, 0);
+        assertEquals(Collections.singletonMap(1, 100), recovered.getAvailableSeats());
+        assertTrue(recovered.getUnflushedReductions().isEmpty());
+    }
+
+    @Test
+    void quietJournalIsSnapshottedOnATimer() throws Exception {
+        BookingJournal journal = open(SEGMENT_SIZE, 20);
+        journal.recordTracked(1, 100);
+        journal.recordBooked(1, 5, 2, "timer-1");
+        journal.recordCommitted(ticket(601, 1, 5, "timer-1"));
+
+        File snapshot = new File(directory, "inventory.snapshot");
+        for (int i = 0; i < 250 && !snapshot.isFile(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(snapshot.isFile());
+
+        BookingJournal recovered = open(SEGMENT_SIZE, 0);
+        assertEquals(Collections.singletonMap(1, 95), recovered.getAvailableSeats());
+        assertEquals(Collections.singletonMap(1, 5), recovered.getUnflushedReductions());
+    }
+
+    private BookingJournal open(int segmentSize, long snapshotIntervalMs) throws IOException {
+        return new BookingJournal(directory, segmentSize, 0, snapshotIntervalMs);
+    }
+
+    // Wait for the background snapshots to drop every segment but the current one
+    private void awaitOneSegment() throws InterruptedException {
+        for (int i = 0; i < 250 && segmentCount() > 1; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, segmentCount());
+        assertFalse(new File(directory, "0000000000.journal").exists());
+    }
+
+    private int segmentCount() {
+        String[] names = directory.list((dir, name) -> name.endsWith(".journal"));
+        return names == null ? 0 : names.length;
+    }
+
+    private static Ticket ticket(int ticketId, int eventId, int quantity, String requestId) {
+        Ticket ticket = new Ticket(eventId, 2, quantity, 50.0 * quantity, "PENDING");
+        ticket.setTicketId(ticketId);
+        ticket.setRequestId(requestId);
+        return ticket;
+    }
+}
@@ -0,0 +1,45 @@
+package com.ticketbooking.service;
+
+import com.ticketbooking.TestDatabase;
+import com.ticketbooking.dao.EventDAO;
+import com.ticketbooking.model.Event;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SeatAllocatorTest {
+
+    @BeforeAll
+    static void createDatabase() throws SQLException {
+        TestDatabase.start("allocator");
+    }
+
+    @Test
+    void rebuiltMapFreesSeatsOfReleasedTickets() throws SQLException {
+        TestDatabase.execute(
+                "INSERT INTO events (event_id, event_name, venue, event_date, event_time, total_seats, available_seats, ticket_price, created_by) "
+                        + "VALUES (100, 'Rebuild', 'Hall', '2030-01-01', '20:00:00', 5, 2, 10.00, 1)",
+                "INSERT INTO tickets (ticket_id, event_id, user_id, quantity, total_price, payment_status) VALUES "
+                        + "(1001, 100, 2, 2, 20.00, 'EXPIRED'), (1002, 100, 2, 1, 10.00, 'REFUNDED'), "
+                        + "(1003, 100, 2, 1, 10.00, 'CANCELLED'), (1004, 100, 2, 1, 10.00, 'PENDING'), "
+                        + "(1005, 100, 2, 1, 10.00, 'COMPLETED')",
+                "INSERT INTO ticket_details (ticket_id, seat_number, attendee_name) VALUES "
+                        + "(1001, 'A-1', 'Guest'), (1001, 'A-2', 'Guest'), (1002, 'A-3', 'Guest'), "
+                        + "(1003, 'A-4', 'Guest'), (1004, 'A-4', 'Guest'), (1005, 'A-5', 'Guest')");
+
+        Event event = new EventDAO().getEventById(100);
+        SeatAllocator allocator = SeatAllocator.getInstance();
+        allocator.invalidate(100);
+
+        // Only the pending and paid tickets still hold their seats
+        List<String> seats = allocator.allocate(event, 3);
+        assertEquals(Arrays.asList("A-1", "A-2", "A-3"), seats);
+        assertNull(allocator.allocate(event, 1));
+    }
+}
@@ -0,0 +1,161 @@
+package com.ticketbooking.service;
+
+import com.ticketbooking.dao.EventDAO;
+import com.ticketbooking.model.Event;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeatInventoryTest {
+    private final RecordingEventDAO eventDAO = new RecordingEventDAO();
+
+    @Test
+    void atomicCounterNeverOversells() throws Exception {
+        assertEquals(1000, reserveConcurrently(newInventory(5000), 1000));
+    }
+
+    @Test
+    void stripedCounterNeverOversells() throws Exception {
+        assertEquals(1000, reserveConcurrently(newInventory(1), 1000));
+    }
+
+    @Test
+    void reserveFailsWithoutChangeWhenShort() {
+        SeatInventory inventory = newInventory(5000);
+        inventory.track(event(1, 5));
+        assertTrue(inventory.tryReserve(1, 3));
+        assertFalse(inventory.tryReserve(1, 3));
+        assertEquals(2, inventory.getAvailableSeats(1));
+
+        inventory.release(1, 3);
+        assertEquals(5, inventory.getAvailableSeats(1));
+    }
+
+    @Test
+    void untrackedEventHasNoSeats() {
+        SeatInventory inventory = newInventory(5000);
+        assertFalse(inventory.isTracked(7));
+        assertFalse(inventory.tryReserve(7, 1));
+        assertEquals(-1, inventory.getAvailableSeats(7));
+    }
+
+    @Test
+    void flushWritesEachReductionOnce() throws SQLException {
+        SeatInventory inventory = newInventory(5000);
+        inventory.track(event(1, 10));
+        inventory.track(event(2, 10));
+        inventory.recordReduction(1, 2);
+        inventory.recordReduction(1, 3);
+        inventory.recordReduction(2, 1);
+
+        inventory.flush();
+        inventory.flush();
+
+        assertEquals(1, eventDAO.batches.size());
+        Map<Integer, Integer> expected = new HashMap<>();
+        expected.put(1, 5);
+        expected.put(2, 1);
+        assertEquals(expected, eventDAO.batches.get(0));
+    }
+
+    @Test
+    void failedFlushKeepsReductionsForTheNextOne() throws SQLException {
+        SeatInventory inventory = newInventory(5000);
+        inventory.track(event(1, 10));
+        inventory.recordReduction(1, 4);
+
+        eventDAO.fail = true;
+        assertThrows(SQLException.class, inventory::flush);
+        inventory.recordReduction(1, 1);
+        eventDAO.fail = false;
+        inventory.flush();
+
+        assertEquals(1, eventDAO.batches.size());
+        assertEquals(Integer.valueOf(5), eventDAO.batches.get(0).get(1));
+    }
+
+    @Test
+    void resizeMovesRemainingSeatsAndKeepsReservations() {
+        SeatInventory inventory = newInventory(5000);
+        inventory.track(event(1, 10));
+        assertTrue(inventory.tryReserve(1, 6));
+
+        assertFalse(inventory.resize(1, -5));
+        assertEquals(4, inventory.getAvailableSeats(1));
+        assertTrue(inventory.resize(1, -4));
+        assertEquals(0, inventory.getAvailableSeats(1));
+        assertTrue(inventory.resize(1, 20));
+        assertEquals(20, inventory.getAvailableSeats(1));
+    }
+
+    private SeatInventory newInventory(int stripeThreshold) {
+        // No journal, and a flush interval long enough that only the test flushes
+        return new SeatInventory(eventDAO, null, stripeThreshold, TimeUnit.HOURS.toMillis(1));
+    }
+
+    private static int reserveConcurrently(SeatInventory inventory, int seats) throws Exception {
+        inventory.track(event(1, seats));
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    int reserved = 0;
+                    for (int attempt = 0; attempt < seats; attempt++) {
+                        if (inventory.tryReserve(1, 1)) {
+                            reserved++;
+                        }
+                    }
+                    return reserved;
+                }));
+            }
+            start.countDown();
+            int reserved = 0;
+            for (Future<Integer> result : results) {
+                reserved += result.get(30, TimeUnit.SECONDS);
+            }
+            assertEquals(0, inventory.getAvailableSeats(1));
+            return reserved;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Event event(int eventId, int seats) {
+        Event event = new Event();
+        event.setEventId(eventId);
+        event.setTotalSeats(seats);
+        event.setAvailableSeats(seats);
+        return event;
+    }
+
+    private static final class RecordingEventDAO extends EventDAO {
+        final List<Map<Integer, Integer>> batches = new ArrayList<>();
+        volatile boolean fail;
+
+        @Override
+        public void applySeatReductions(Map<Integer, Integer> reductions) throws SQLException {
+            if (fail) {
+                throw new SQLException("database down");
+            }
+            batches.add(new HashMap<>(reductions));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.ticketbooking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeatMapTest {
+
+    @Test
+    void groupIsSeatedTogetherInTheFirstRowWithRoom() {
+        SeatMap map = new SeatMap(30, 10);
+        for (int seat : new int[] {0, 3, 6, 9}) {
+            assertTrue(map.markTaken(seat));
+        }
+        // Row A has no three adjacent free seats; row B does
+        assertArrayEquals(new int[] {10, 11, 12}, map.claim(3));
+        assertArrayEquals(new int[] {1, 2}, map.claim(2));
+    }
+
+    @Test
+    void groupIsSplitWhenNoRowHasRoom() {
+        SeatMap map = new SeatMap(20, 10);
+        for (int seat = 0; seat < 20; seat += 2) {
+            map.markTaken(seat);
+        }
+        int[] seats = map.claim(3);
+        assertArrayEquals(new int[] {1, 3, 5}, seats);
+        assertEquals(7, map.freeSeats());
+    }
+
+    @Test
+    void failedClaimTakesNothing() {
+        SeatMap map = new SeatMap(12, 5);
+        assertNotNull(map.claim(10));
+        assertNull(map.claim(3));
+        assertEquals(2, map.freeSeats());
+        assertArrayEquals(new int[] {10, 11}, map.claim(2));
+        assertEquals(0, map.freeSeats());
+    }
+
+    @Test
+    void seatsPastCapacityInTheLastRowAreNeverFree() {
+        SeatMap map = new SeatMap(23, 10);
+        assertEquals(23, map.freeSeats());
+        assertNotNull(map.claim(20));
+        assertNull(map.claimContiguous(4));
+        assertArrayEquals(new int[] {20, 21, 22}, map.claimContiguous(3));
+        assertFalse(map.markTaken(23));
+    }
+
+    @Test
+    void releasedSeatCanBeClaimedAgain() {
+        SeatMap map = new SeatMap(3, 3);
+        assertNotNull(map.claim(3));
+        map.release(1);
+        map.release(1);
+        assertEquals(1, map.freeSeats());
+        assertArrayEquals(new int[] {1}, map.claim(1));
+        assertFalse(map.markTaken(1));
+    }
+
+    @Test
+    void concurrentClaimsNeverShareASeat() throws Exception {
+        int totalSeats = 6400;
+        SeatMap map = new SeatMap(totalSeats, 64);
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<Integer>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int quantity = i % 4 + 1;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    List<Integer> claimed = new ArrayList<>();
+                    int[] seats;
+                    while ((seats = map.claim(quantity)) != null) {
+                        for (int seat : seats) {
+                            claimed.add(seat);
+                        }
+                    }
+                    return claimed;
+                }));
+            }
+            start.countDown();
+
+            Set<Integer> taken = new HashSet<>();
+            int claims = 0;
+            for (Future<List<Integer>> result : results) {
+                for (int seat : result.get(30, TimeUnit.SECONDS)) {
+                    assertTrue(taken.add(seat), "seat " + seat + " claimed twice");
+                    claims++;
+                }
+            }
+            // The single-seat claimers only stop once every seat is taken
+            assertEquals(totalSeats, claims);
+            assertEquals(0, map.freeSeats());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void labelsRoundTrip() {
+        SeatMap map = new SeatMap(1000, 10);
+        assertEquals("A-1", map.label(0));
+        assertEquals("B-3", map.label(12));
+        assertEquals("AA-1", map.label(260));
+        for (int seat = 0; seat < 1000; seat++) {
+            assertEquals(seat, map.indexOf(map.label(seat)));
+        }
+        assertEquals(-1, map.indexOf("A-11"));
+        assertEquals(-1, map.indexOf("ZZ-1"));
+        assertEquals(-1, map.indexOf("A1"));
+        assertEquals(-1, map.indexOf(null));
+    }
+
+    @Test
+    void rowWidthIsLimitedToOneWord() {
+        assertThrows(IllegalArgumentException.class, () -> new SeatMap(100, 65));
+        SeatMap map = new SeatMap(64, 64);
+        assertNotNull(map.claimContiguous(64));
+        assertEquals(0, map.freeSeats());
+    }
+}
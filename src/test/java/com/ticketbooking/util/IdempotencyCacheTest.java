@@ -0,0 +1,122 @@
+package com.ticketbooking.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdempotencyCacheTest {
+
+    @Test
+    void concurrentCallsWithOneKeyRunTheActionOnce() throws Exception {
+        IdempotencyCache<Integer> cache = new IdempotencyCache<>(100, 60000);
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Integer>> results = runConcurrently(8, () -> cache.execute("booking-1", () -> {
+            await(release);
+            return runs.incrementAndGet();
+        }), release);
+
+        for (Future<Integer> result : results) {
+            assertEquals(Integer.valueOf(1), result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, runs.get());
+        assertEquals(Integer.valueOf(1), cache.execute("booking-1", runs::incrementAndGet));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void waitersSeeTheFailureAndTheKeyCanBeRetried() throws Exception {
+        IdempotencyCache<Integer> cache = new IdempotencyCache<>(100, 60000);
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Integer>> results = runConcurrently(4, () -> cache.execute("booking-2", () -> {
+            runs.incrementAndGet();
+            await(release);
+            throw new SQLException("deadlock");
+        }), release);
+
+        for (Future<Integer> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(SQLException.class, e.getCause());
+        }
+        assertEquals(1, runs.get());
+        assertEquals(0, cache.size());
+        assertEquals(Integer.valueOf(7), cache.execute("booking-2", () -> 7));
+    }
+
+    @Test
+    void nullResultIsNotKept() throws SQLException {
+        IdempotencyCache<Integer> cache = new IdempotencyCache<>(100, 60000);
+        assertNull(cache.execute("sold-out", () -> null));
+        assertEquals(0, cache.size());
+        assertEquals(Integer.valueOf(3), cache.execute("sold-out", () -> 3));
+    }
+
+    @Test
+    void oldestEntryIsDroppedWhenFull() throws SQLException {
+        IdempotencyCache<Integer> cache = new IdempotencyCache<>(2, 60000);
+        cache.execute("a", () -> 1);
+        cache.execute("b", () -> 2);
+        cache.execute("c", () -> 3);
+        assertEquals(2, cache.size());
+        assertEquals(Integer.valueOf(3), cache.execute("c", () -> 30));
+        assertEquals(Integer.valueOf(10), cache.execute("a", () -> 10));
+    }
+
+    @Test
+    void entryExpiresAfterItsTtl() throws Exception {
+        IdempotencyCache<Integer> cache = new IdempotencyCache<>(100, 20);
+        cache.execute("a", () -> 1);
+        Thread.sleep(50);
+        assertEquals(Integer.valueOf(2), cache.execute("a", () -> 2));
+    }
+
+    private static void await(CountDownLatch latch) throws SQLException {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted", e);
+        }
+    }
+
+    /**
+     * Start callers together; the release latch opens once all of them have
+     * reached the cache, so the later ones find the first still running
+     */
+    private static List<Future<Integer>> runConcurrently(int callers, Callable<Integer> call,
+                                                         CountDownLatch release) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch started = new CountDownLatch(callers);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(pool.submit(() -> {
+                started.countDown();
+                return call.call();
+            }));
+        }
+        started.await(5, TimeUnit.SECONDS);
+        // Give the callers that just counted down time to reach execute()
+        Thread.sleep(50);
+        release.countDown();
+        pool.shutdown();
+        return results;
+    }
+}
@@ -0,0 +1,122 @@
+package com.ticketbooking.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedJournalTest {
+    private static final int SEGMENT_SIZE = 64;
+
+    @TempDir
+    File directory;
+
+    @Test
+    void recordsSurviveReopening() throws IOException {
+        MappedJournal journal = new MappedJournal(directory, 4096);
+        journal.append(bytes("first"));
+        long end = journal.append(bytes("second"));
+        journal.close();
+
+        MappedJournal reopened = new MappedJournal(directory, 4096);
+        assertEquals(end, reopened.position());
+        reopened.append(bytes("third"));
+        assertEquals(Arrays.asList("first", "second", "third"), replay(reopened, 0));
+    }
+
+    @Test
+    void replayStartsAtAPosition() throws IOException {
+        MappedJournal journal = new MappedJournal(directory, 4096);
+        journal.append(bytes("first"));
+        long after = journal.append(bytes("second"));
+        journal.append(bytes("third"));
+        assertEquals(Arrays.asList("third"), replay(journal, after));
+    }
+
+    @Test
+    void fullSegmentRollsOverToTheNext() throws IOException {
+        MappedJournal journal = new MappedJournal(directory, SEGMENT_SIZE);
+        List<String> written = new ArrayList<>();
+        long previous = 0;
+        for (int i = 0; i < 10; i++) {
+            String record = "record-" + i;
+            long position = journal.append(bytes(record));
+            assertTrue(position > previous);
+            previous = position;
+            written.add(record);
+        }
+        assertEquals(2, MappedJournal.segmentOf(journal.position()));
+        assertEquals(written, replay(journal, 0));
+        assertEquals(written, replay(new MappedJournal(directory, SEGMENT_SIZE), 0));
+        assertThrows(IllegalArgumentException.class, () -> journal.append(new byte[SEGMENT_SIZE]));
+    }
+
+    @Test
+    void tornRecordEndsTheLogAndIsOverwritten() throws IOException {
+        MappedJournal journal = new MappedJournal(directory, 4096);
+        long first = journal.append(bytes("first"));
+        journal.append(bytes("second"));
+        journal.append(bytes("third"));
+        journal.close();
+
+        // Flip a byte in the second record's body, as a crash mid-write would leave it
+        try (RandomAccessFile file = new RandomAccessFile(new File(directory, "0000000000.journal"), "rw")) {
+            long offset = first + 8;
+            file.seek(offset);
+            int b = file.read();
+            file.seek(offset);
+            file.write(b ^ 0xFF);
+        }
+
+        MappedJournal reopened = new MappedJournal(directory, 4096);
+        assertEquals(first, reopened.position());
+        assertEquals(Arrays.asList("first"), replay(reopened, 0));
+
+        reopened.append(bytes("after crash"));
+        assertEquals(Arrays.asList("first", "after crash"), replay(reopened, 0));
+    }
+
+    @Test
+    void deleteBeforeKeepsTheSegmentHoldingThePosition() throws IOException {
+        MappedJournal journal = new MappedJournal(directory, SEGMENT_SIZE);
+        long position = 0;
+        for (int i = 0; i < 10; i++) {
+            position = journal.append(bytes("record-" + i));
+            if (MappedJournal.segmentOf(position) == 2) {
+                break;
+            }
+        }
+        journal.append(bytes("tail"));
+
+        journal.deleteBefore(position);
+        assertFalse(new File(directory, "0000000000.journal").exists());
+        assertFalse(new File(directory, "0000000001.journal").exists());
+        assertEquals(Arrays.asList("tail"), replay(journal, position));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> replay(MappedJournal journal, long from) throws IOException {
+        List<String> records = new ArrayList<>();
+        journal.replay(from, body -> {
+            byte[] data = new byte[body.remaining()];
+            body.get(data);
+            records.add(new String(data, StandardCharsets.UTF_8));
+        });
+        return records;
+    }
+}
@@ -0,0 +1,121 @@
+package com.ticketbooking.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatementCacheTest {
+    private static final String SQL = "SELECT X FROM SYSTEM_RANGE(1, 10) WHERE X >= ?";
+
+    private Connection connection;
+    private AtomicLong hits;
+    private AtomicLong misses;
+    private StatementCache cache;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:statements", "sa", "");
+        hits = new AtomicLong();
+        misses = new AtomicLong();
+        cache = new StatementCache(connection, 2, hits, misses);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void returnedStatementIsReusedWithItsSettingsReset() throws SQLException {
+        int defaultFetchSize;
+        try (PreparedStatement plain = connection.prepareStatement(SQL)) {
+            defaultFetchSize = plain.getFetchSize();
+        }
+        PreparedStatement first = cache.prepare(connection, new Object[] {SQL});
+        first.setInt(1, 3);
+        first.setMaxRows(2);
+        first.setFetchSize(1);
+        first.setQueryTimeout(5);
+        assertEquals(2, countRows(first));
+        first.close();
+        assertTrue(first.isClosed());
+
+        PreparedStatement second = cache.prepare(connection, new Object[] {SQL});
+        assertEquals(1, hits.get());
+        assertEquals(1, misses.get());
+        assertEquals(0, second.getMaxRows());
+        assertEquals(defaultFetchSize, second.getFetchSize());
+        assertEquals(0, second.getQueryTimeout());
+        // Parameters are cleared too, so the old bind value is not reused
+        assertThrows(SQLException.class, second::executeQuery);
+        second.setInt(1, 3);
+        assertEquals(8, countRows(second));
+        second.close();
+    }
+
+    @Test
+    void closingReturnsOpenResultSets() throws SQLException {
+        PreparedStatement statement = cache.prepare(connection, new Object[] {SQL});
+        statement.setInt(1, 1);
+        ResultSet rs = statement.executeQuery();
+        statement.close();
+        assertTrue(rs.isClosed());
+        assertThrows(SQLException.class, () -> statement.setInt(1, 1));
+    }
+
+    @Test
+    void nestedUseOfTheSameSqlGetsAnUncachedStatement() throws SQLException {
+        PreparedStatement outer = cache.prepare(connection, new Object[] {SQL});
+        PreparedStatement inner = cache.prepare(connection, new Object[] {SQL});
+        assertNotSame(outer, inner);
+        assertEquals(2, misses.get());
+        inner.close();
+        outer.close();
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void leastRecentlyUsedStatementIsEvicted() throws SQLException {
+        cache.prepare(connection, new Object[] {"SELECT 1"}).close();
+        cache.prepare(connection, new Object[] {"SELECT 2"}).close();
+        cache.prepare(connection, new Object[] {"SELECT 1"}).close();
+        cache.prepare(connection, new Object[] {"SELECT 3"}).close();
+        assertEquals(2, cache.size());
+
+        cache.prepare(connection, new Object[] {"SELECT 1"}).close();
+        assertEquals(2, hits.get());
+        cache.prepare(connection, new Object[] {"SELECT 2"}).close();
+        assertEquals(2, hits.get());
+    }
+
+    @Test
+    void onlyPlainAndGeneratedKeyPreparesAreCacheable() {
+        assertTrue(StatementCache.isCacheable(new Object[] {SQL}));
+        assertTrue(StatementCache.isCacheable(new Object[] {SQL, 1}));
+        assertFalse(StatementCache.isCacheable(new Object[] {SQL, new int[] {1}}));
+        assertFalse(StatementCache.isCacheable(new Object[] {SQL, 1003, 1007}));
+    }
+
+    private static int countRows(PreparedStatement statement) throws SQLException {
+        int rows = 0;
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,93 @@
+package com.ticketbooking.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    @Test
+    void timeoutFiresOnlyAfterItsDelay() throws InterruptedException {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8);
+        wheel.schedule("hold", 50);
+        assertEquals(Collections.emptyList(), wheel.advance());
+        assertEquals(1, wheel.size());
+
+        Thread.sleep(80);
+        assertEquals(Collections.singletonList("hold"), wheel.advance());
+        assertEquals(0, wheel.size());
+        assertEquals(Collections.emptyList(), wheel.advance());
+    }
+
+    @Test
+    void timeoutsMoreThanOneRevolutionAheadWaitForTheirRound() throws InterruptedException {
+        // 4 buckets of 10 ms: one revolution is 40 ms
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4);
+        wheel.schedule("soon", 20);
+        wheel.schedule("later", 300);
+
+        Thread.sleep(100);
+        assertEquals(Collections.singletonList("soon"), wheel.advance());
+        assertEquals(1, wheel.size());
+
+        Thread.sleep(300);
+        assertEquals(Collections.singletonList("later"), wheel.advance());
+    }
+
+    @Test
+    void expiredItemsComeOutOldestFirst() throws InterruptedException {
+        TimingWheel<Integer> wheel = new TimingWheel<>(5, 16);
+        for (int delay : new int[] {60, 10, 40, 25}) {
+            wheel.schedule(delay, delay);
+        }
+        Thread.sleep(120);
+        assertEquals(Arrays.asList(10, 25, 40, 60), wheel.advance());
+    }
+
+    @Test
+    void cancelledTimeoutNeverFires() throws InterruptedException {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8);
+        TimingWheel.Timeout<String> paid = wheel.schedule("paid", 20);
+        TimingWheel.Timeout<String> unpaid = wheel.schedule("unpaid", 20);
+        assertTrue(wheel.cancel(paid));
+        assertFalse(wheel.cancel(paid));
+        assertEquals(1, wheel.size());
+
+        Thread.sleep(60);
+        assertEquals(Collections.singletonList("unpaid"), wheel.advance());
+        assertFalse(wheel.cancel(unpaid));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelUnlinksFromAnywhereInABucket() throws InterruptedException {
+        // One bucket, so every timeout shares the same list
+        TimingWheel<Integer> wheel = new TimingWheel<>(10, 1);
+        List<TimingWheel.Timeout<Integer>> timeouts = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            timeouts.add(wheel.schedule(i, 20));
+        }
+        wheel.cancel(timeouts.get(0));
+        wheel.cancel(timeouts.get(2));
+        wheel.cancel(timeouts.get(4));
+
+        Thread.sleep(60);
+        List<Integer> expired = wheel.advance();
+        Collections.sort(expired);
+        assertEquals(Arrays.asList(1, 3), expired);
+    }
+
+    @Test
+    void invalidSizesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(0, 8));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(10, 0));
+    }
+}